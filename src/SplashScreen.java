@@ -1,12 +1,11 @@
+import com.vibeapp.StartupWarmup;
 import com.vibeapp.VibeApp;
+import ui.components.Animator;
+import utils.AssetManager;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.io.File;
 
 /**
  * SplashScreen shown when the application starts
@@ -22,7 +21,6 @@ public class SplashScreen extends JPanel {
 
     // Progress animation
     private float progress = 0.0f;
-    private Timer progressTimer;
     private BufferedImage logoImage = null;
 
     public SplashScreen() {
@@ -36,61 +34,31 @@ public class SplashScreen extends JPanel {
     }
 
     private void loadLogo() {
-        try {
-            File logoFile = new File("pictures/logoVibeApp.png");
-            if (logoFile.exists()) {
-                // Load the original image with transparency preservation
-                BufferedImage originalImage = ImageIO.read(logoFile);
-
-                // Calculate size for high resolution
-                int targetWidth = 250; // Increased for more details
-                double scaleFactor = (double) targetWidth / originalImage.getWidth();
-                int targetHeight = (int)(originalImage.getHeight() * scaleFactor);
-
-                // Create image with alpha channel for perfect transparency
-                logoImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D g2dResized = logoImage.createGraphics();
-
-                // Configure for VERY high quality rendering
-                g2dResized.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g2dResized.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                g2dResized.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2dResized.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-
-                // Make background completely transparent
-                g2dResized.setComposite(AlphaComposite.Clear);
-                g2dResized.fillRect(0, 0, targetWidth, targetHeight);
-
-                // Restore composition mode for drawing
-                g2dResized.setComposite(AlphaComposite.SrcOver);
-
-                // Draw the resized image with transparency
-                g2dResized.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-                g2dResized.dispose();
-            }
-        } catch (Exception e) {
-            System.err.println("Error loading and resizing logo: " + e.getMessage());
-        }
+        // Decoded and scaled once by the shared asset cache (250px wide for more details)
+        logoImage = AssetManager.getInstance().getImageForWidth(AssetManager.LOGO_PATH, 250);
     }
 
     private void startProgressAnimation() {
-        progressTimer = new Timer(30, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                progress += 0.05f;
-                if (progress >= 1.0f) {
-                    progress = 1.0f;
-                    progressTimer.stop();
-
-                    // Transition to login page after splash completes
-                    SwingUtilities.invokeLater(() -> {
-                        VibeApp.getInstance().showPage("login");
-                    });
-                }
+        // Real warm-up (Firebase, fonts, images) in parallel; the bar follows its progress
+        StartupWarmup warmup = StartupWarmup.getInstance();
+        warmup.start();
+
+        Animator.getInstance().start(this, () -> {
+            float target = warmup.getProgress();
+            progress = Math.min(target, progress + Math.max(0.02f, (target - progress) * 0.2f));
+            if (warmup.isDone() && progress >= 1.0f) {
+                progress = 1.0f;
                 repaint();
+
+                // Transition to login page after splash completes
+                SwingUtilities.invokeLater(() -> {
+                    VibeApp.getInstance().showPage("login");
+                });
+                return false;
             }
+            repaint();
+            return true;
         });
-        progressTimer.start();
     }
 
     @Override
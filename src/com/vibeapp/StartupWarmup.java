@@ -0,0 +1,161 @@
+package com.vibeapp;
+
+import services.FirebaseService;
+import services.LocalSnapshotStore;
+import ui.components.MessageLayoutEngine;
+import utils.AssetManager;
+import utils.PasswordUtils;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StartupWarmup - Runs the startup tasks in parallel while the splash is shown
+ * Firebase initialization, font loading and asset decoding each run on the startup
+ * executor, so the splash reports real progress and the first page finds its services
+ * and images ready. Time to interactive is bounded by the slowest task, not their sum.
+ */
+public class StartupWarmup {
+
+    // Images the first pages need right away
+    private static final String[] STARTUP_IMAGES = {
+            AssetManager.LOGO_PATH,
+            "pictures/settings.png",
+            "pictures/menu.png",
+            "pictures/search.png",
+            "pictures/send.png",
+            "pictures/attachment.png",
+            "pictures/emoji.png",
+            "pictures/more.png"
+    };
+
+    private static StartupWarmup instance;
+
+    private final ExecutorService executor;
+    private final AtomicInteger completedTasks = new AtomicInteger();
+    private int totalTasks = 0;
+    private final List<String> pendingSteps = Collections.synchronizedList(new ArrayList<>());
+    private volatile FirebaseService firebaseService;
+    private CompletableFuture<Void> completion;
+
+    // Private constructor for singleton pattern
+    private StartupWarmup() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(3, r -> {
+            Thread thread = new Thread(r, "startup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized StartupWarmup getInstance() {
+        if (instance == null) {
+            instance = new StartupWarmup();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the warm-up tasks (only once)
+     * @return Future completed when every task has finished, successfully or not
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (completion != null) {
+            return completion;
+        }
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        tasks.add(runTask("Connexion à Firebase...", this::initializeFirebase));
+        tasks.add(runTask("Chargement des polices...", this::loadFonts));
+        tasks.add(runTask("Chargement des images...", this::loadAssets));
+        tasks.add(runTask("Chargement des préférences...", () -> LocalSnapshotStore.getInstance().load()));
+        // Loads the password hashing provider now rather than during the first login
+        tasks.add(runTask("Préparation de la sécurité...", PasswordUtils::warmUp));
+        totalTasks = tasks.size();
+
+        completion = CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, error) -> executor.shutdown());
+        return completion;
+    }
+
+    /**
+     * @return Fraction of finished tasks, from 0 to 1
+     */
+    public float getProgress() {
+        return totalTasks == 0 ? 0f : (float) completedTasks.get() / totalTasks;
+    }
+
+    /**
+     * @return Label of the oldest step still running, or "Prêt" when all are done
+     */
+    public String getCurrentStep() {
+        synchronized (pendingSteps) {
+            return pendingSteps.isEmpty() ? "Prêt" : pendingSteps.get(0);
+        }
+    }
+
+    /**
+     * @return true once every task has finished
+     */
+    public boolean isDone() {
+        return completion != null && completion.isDone();
+    }
+
+    /**
+     * @return The initialized Firebase service, or null if initialization failed or has not finished
+     */
+    public FirebaseService getFirebaseService() {
+        return firebaseService;
+    }
+
+    private CompletableFuture<Void> runTask(String label, Runnable task) {
+        pendingSteps.add(label);
+        return CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                task.run();
+            } catch (Exception e) {
+                // The page that needs the resource retries and reports the error itself
+                System.err.println("Startup task failed (" + label + "): " + e.getMessage());
+            } finally {
+                pendingSteps.remove(label);
+                completedTasks.incrementAndGet();
+                System.out.println(label + " done in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        }, executor);
+    }
+
+    private void initializeFirebase() {
+        try {
+            firebaseService = FirebaseService.getInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private void loadFonts() {
+        // Enumerating the font families is the slow part of the first font lookup
+        GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+
+        // Loads the message font and its glyph metrics
+        MessageLayoutEngine.getInstance().layout("VibeApp", 300, MessageLayoutEngine.MESSAGE_FONT);
+    }
+
+    private void loadAssets() {
+        AssetManager assets = AssetManager.getInstance();
+        assets.preload(STARTUP_IMAGES);
+
+        // Logo sizes used by the splash, the auth pages and the empty chat view
+        assets.getScaledImage(AssetManager.LOGO_PATH, 180, 180);
+        assets.getImageForWidth(AssetManager.LOGO_PATH, 200);
+        assets.getImageForWidth(AssetManager.LOGO_PATH, 160);
+        assets.getIcon(AssetManager.LOGO_PATH, 160, 160);
+    }
+}
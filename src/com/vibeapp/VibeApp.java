@@ -1,10 +1,15 @@
 package com.vibeapp;
 
 import services.FirebaseService;
+import services.LocalSnapshotStore;
+import services.SessionService;
+import ui.components.Animator;
 import ui.pages.ForgotPasswordPage;
 import ui.pages.LoginPage;
 import ui.pages.MainChat;
+import ui.pages.PageLifecycle;
 import ui.pages.RegisterPage;
+import utils.AssetManager;
 
 import javax.swing.*;
 import java.awt.*;
@@ -12,6 +17,9 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.awt.geom.AffineTransform;
 
 /**
@@ -34,6 +42,16 @@ public class VibeApp extends JFrame {
     // Reference to current active user
     private String currentUserId = null;
 
+    // Name of the visible card
+    private String currentPageName = null;
+
+    // Page registry: factories by name, pages built on first navigation
+    private final Map<String, Supplier<JComponent>> pageFactories = new LinkedHashMap<>();
+    private final Map<String, JComponent> pages = new LinkedHashMap<>();
+
+    // Delay before likely next pages are built in the background
+    private static final int PREWARM_DELAY_MS = 1500;
+
     // Private constructor for singleton pattern
     private VibeApp() {
         // Basic frame setup
@@ -78,7 +96,23 @@ public class VibeApp extends JFrame {
 
     // Method to navigate to a different page
     public void showPage(String pageName) {
+        JComponent page = getOrCreatePage(pageName);
+        if (page == null) {
+            System.err.println("Unknown page: " + pageName);
+            return;
+        }
+
+        // Let the page being left cancel its pending work
+        JComponent previous = currentPageName != null ? pages.get(currentPageName) : null;
+        if (previous != page && previous instanceof PageLifecycle) {
+            ((PageLifecycle) previous).onHide();
+        }
+        currentPageName = pageName;
+
         cardLayout.show(mainPanel, pageName);
+        if (page instanceof PageLifecycle) {
+            ((PageLifecycle) page).onShow();
+        }
         revalidate();
         repaint();
     }
@@ -88,21 +122,12 @@ public class VibeApp extends JFrame {
         System.out.println("Tentative d'affichage de MainChat pour userId: " + userId);
 
         this.currentUserId = userId;
+        LocalSnapshotStore.getInstance().setCurrentUser(userId);
 
         // Create MainChat only when needed to save memory
-        // and to ensure we have the current userId
-        MainChat mainChat = new MainChat(userId);
-
-        // Remove existing MainChat if any
-        for (Component comp : mainPanel.getComponents()) {
-            if (comp instanceof MainChat) {
-                mainPanel.remove(comp);
-                break;
-            }
-        }
-
-        // Add new MainChat and show it
-        mainPanel.add(mainChat, "mainChat");
+        // and to ensure we have the current userId.
+        // The previous session's MainChat (if any) is disposed to release its listeners.
+        setPage("mainChat", new MainChat(userId));
 
         // Show the MainChat page
         showPage("mainChat");
@@ -110,6 +135,80 @@ public class VibeApp extends JFrame {
         System.out.println("MainChat affiché avec succès");
     }
 
+    /**
+     * Registers a page factory; the page is built the first time it is shown or pre-warmed
+     * @param pageName Card name
+     * @param factory Creates the page (called on the EDT)
+     */
+    public void registerPage(String pageName, Supplier<JComponent> factory) {
+        pageFactories.put(pageName, factory);
+    }
+
+    /**
+     * Installs a page instance, disposing the page it replaces
+     * @param pageName Card name
+     * @param page The new page
+     */
+    public void setPage(String pageName, JComponent page) {
+        releasePage(pageName);
+        pages.put(pageName, page);
+        mainPanel.add(page, pageName);
+    }
+
+    /**
+     * Removes a built page and calls its dispose() hook; it will be rebuilt on next navigation
+     * @param pageName Card name
+     */
+    public void releasePage(String pageName) {
+        JComponent old = pages.remove(pageName);
+        if (old == null) {
+            return;
+        }
+        mainPanel.remove(old);
+        if (old instanceof PageLifecycle) {
+            try {
+                ((PageLifecycle) old).dispose();
+            } catch (Exception e) {
+                System.err.println("Error disposing page " + pageName + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Builds the given pages in the background after a short delay, one per EDT turn,
+     * so that the first navigation to them is instant without delaying startup
+     * @param pageNames Card names of likely next pages
+     */
+    public void prewarmPages(String... pageNames) {
+        Timer prewarmTimer = new Timer(PREWARM_DELAY_MS, e -> {
+            for (String pageName : pageNames) {
+                SwingUtilities.invokeLater(() -> getOrCreatePage(pageName));
+            }
+        });
+        prewarmTimer.setRepeats(false);
+        prewarmTimer.start();
+    }
+
+    private JComponent getOrCreatePage(String pageName) {
+        JComponent page = pages.get(pageName);
+        if (page != null) {
+            return page;
+        }
+
+        Supplier<JComponent> factory = pageFactories.get(pageName);
+        if (factory == null) {
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
+        page = factory.get();
+        pages.put(pageName, page);
+        mainPanel.add(page, pageName);
+        System.out.println("Page '" + pageName + "' created in " + (System.currentTimeMillis() - start) + " ms");
+        return page;
+    }
+
     // Main entry point
     public static void main(String[] args) {
         try {
@@ -139,18 +238,86 @@ public class VibeApp extends JFrame {
         // Initialize Firebase first before creating any page
         initializeFirebase();
 
-        // Create and add all pages (no splash)
-        mainPanel.add(new LoginPage(), "login");
-        mainPanel.add(new RegisterPage(), "register");
-        mainPanel.add(new ForgotPasswordPage(), "forgotPassword");
+        // Register pages; each one is built on first navigation
+        registerPage("login", LoginPage::new);
+        registerPage("register", RegisterPage::new);
+        registerPage("forgotPassword", ForgotPasswordPage::new);
+
+        // Returning users go straight to their chats; the session is checked in the background
+        SessionService.Session session = SessionService.getInstance().loadSession();
+        if (session != null) {
+            System.out.println("Session mémorisée trouvée pour userId: " + session.getUserId());
+            showMainChat(session.getUserId());
+            revalidateSession(session);
+            return;
+        }
 
         // Start with the login screen (will be shown after splash)
         showPage("login");
+
+        // Build the pages reachable from login while the user is typing
+        prewarmPages("register", "forgotPassword");
+    }
+
+    /**
+     * Revalidates a remembered session and signs the user out if it was revoked
+     * @param session The session used to open the chat
+     */
+    private void revalidateSession(SessionService.Session session) {
+        SessionService.getInstance().revalidate(session, new SessionService.RevalidationCallback() {
+            @Override
+            public void onConfirmed(SessionService.Session confirmed) {
+                System.out.println("Session mémorisée confirmée pour userId: " + confirmed.getUserId());
+            }
+
+            @Override
+            public void onRevoked(String reason) {
+                SwingUtilities.invokeLater(() -> {
+                    // Ignore if the user already signed out or switched accounts
+                    if (session.getUserId().equals(currentUserId)) {
+                        signOut("Votre session a expiré (" + reason + "). Veuillez vous reconnecter.");
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Signs the current user out: forgets the remembered session, marks the user offline,
+     * releases the chat page and shows the login screen
+     * @param message Message shown to the user, or null for a silent sign out
+     */
+    public void signOut(String message) {
+        SessionService.getInstance().clearSession();
+        LocalSnapshotStore.getInstance().clearPreferences();
+
+        if (currentUserId != null) {
+            try {
+                FirebaseService.getInstance().getDatabase()
+                        .getReference("users/" + currentUserId + "/status/online")
+                        .setValueAsync(false);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            currentUserId = null;
+        }
+
+        releasePage("mainChat");
+        showPage("login");
+
+        if (message != null) {
+            JOptionPane.showMessageDialog(this, message, "Session", JOptionPane.INFORMATION_MESSAGE);
+        }
     }
 
     // Initialize Firebase
     private void initializeFirebase() {
         try {
+            // Already initialized by the startup warm-up in the normal flow
+            if (StartupWarmup.getInstance().getFirebaseService() != null) {
+                System.out.println("Firebase ready from startup warm-up");
+                return;
+            }
             FirebaseService.getInstance();
             System.out.println("Firebase initialized in com.vibeapp.VibeApp");
         } catch (IOException e) {
@@ -166,17 +333,8 @@ public class VibeApp extends JFrame {
 
     // Method to create an Image from a file or generate a default one
     private Image createIcon(String path) {
-        try {
-            java.io.File file = new java.io.File(path);
-            if (file.exists()) {
-                return new ImageIcon(file.getAbsolutePath()).getImage();
-            } else {
-                return createDefaultIcon();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return createDefaultIcon();
-        }
+        Image image = AssetManager.getInstance().getImage(path);
+        return image != null ? image : createDefaultIcon();
     }
 
     // Method to create a default icon if the file isn't found
@@ -234,10 +392,10 @@ public class VibeApp extends JFrame {
         System.exit(0);
     }
 
-    // New SplashWindow class with logo and animated progress bar
+    // New SplashWindow class with logo and a progress bar driven by the startup warm-up
     private static class SplashWindow extends JWindow {
         private float progress = 0.0f;
-        private final Timer progressTimer;
+        private final StartupWarmup warmup = StartupWarmup.getInstance();
         private final Image logoImg;
         private final int logoWidth = 180;
         private final int logoHeight = 180;
@@ -277,21 +435,8 @@ public class VibeApp extends JFrame {
             setLocationRelativeTo(null);
             setAlwaysOnTop(true);
             // Load logo with better error handling
-            Image img = null;
-            try {
-                java.io.File logoFile = new java.io.File("pictures/logoVibeApp.png");
-                if (logoFile.exists()) {
-                    img = new ImageIcon(logoFile.getAbsolutePath()).getImage();
-                    System.out.println("Logo loaded successfully from: " + logoFile.getAbsolutePath());
-                } else {
-                    System.out.println("Logo file not found at: " + logoFile.getAbsolutePath());
-                    img = createFallbackLogo();
-                }
-            } catch (Exception e) {
-                System.err.println("Error loading logo: " + e.getMessage());
-                img = createFallbackLogo();
-            }
-            logoImg = img;
+            Image img = AssetManager.getInstance().getScaledImage(AssetManager.LOGO_PATH, logoWidth, logoHeight);
+            logoImg = img != null ? img : createFallbackLogo();
             setContentPane(new JPanel() {
                 @Override
                 public boolean isOpaque() { return false; }
@@ -319,6 +464,12 @@ public class VibeApp extends JFrame {
                         g2d.fillRoundRect(barX, barY, barWidth, barHeight, 8, 8);
                         g2d.setColor(new Color(0, 150, 70, alpha));
                         g2d.fillRoundRect(barX, barY, (int) (barWidth * progress), barHeight, 8, 8);
+                        // Current startup step
+                        String step = warmup.getCurrentStep();
+                        g2d.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+                        FontMetrics fm = g2d.getFontMetrics();
+                        g2d.setColor(new Color(90, 90, 90, alpha));
+                        g2d.drawString(step, (w - fm.stringWidth(step)) / 2, barY + barHeight + fm.getAscent() + 6);
                     } else {
                         String text = "VibeApp";
                         g2d.setFont(new Font("Segoe UI", Font.BOLD, 32));
@@ -333,30 +484,29 @@ public class VibeApp extends JFrame {
                     g2d.dispose();
                 }
             });
-            // Animate progress
-            progressTimer = new Timer(30, e -> {
-                progress += 0.015f;
-                if (progress > 1f) {
+            // Firebase, fonts and images load in parallel while the splash is shown
+            warmup.start();
+
+            // The bar follows the real warm-up progress on the shared Animator pulse
+            Animator.getInstance().start(getContentPane(), () -> {
+                float target = warmup.getProgress();
+                progress = Math.min(target, progress + Math.max(0.02f, (target - progress) * 0.2f));
+                if (warmup.isDone() && progress >= 1f) {
                     progress = 1f;
                     repaint();
-                    ((Timer) e.getSource()).stop();
-                    
-                    // Add a small delay before showing main window
-                    Timer delayTimer = new Timer(300, event -> {
-                        SwingUtilities.invokeLater(() -> {
-                            System.out.println("Splash screen completed, showing main app");
-                            dispose();
-                            VibeApp app = VibeApp.getInstance();
-                            app.setVisible(true);
-                        });
-                        ((Timer) event.getSource()).stop();
+
+                    SwingUtilities.invokeLater(() -> {
+                        System.out.println("Splash screen completed, showing main app");
+                        // Services and assets are warm: building the frame and login page is quick
+                        VibeApp app = VibeApp.getInstance();
+                        dispose();
+                        app.setVisible(true);
                     });
-                    delayTimer.setRepeats(false);
-                    delayTimer.start();
+                    return false;
                 }
                 repaint();
+                return true;
             });
-            progressTimer.start();
         }
     }
 }
\ No newline at end of file
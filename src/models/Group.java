@@ -1,12 +1,16 @@
 package models;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Group model class
  * Represents a group in the application
+ * Members are kept in a map from user ID to role, so membership and role checks are
+ * hash lookups whatever the size of the group.
  */
 public class Group {
     private String groupId;
@@ -15,10 +19,11 @@ public class Group {
     private String groupImageUrl;
     private String createdBy;
     private long createdAt;
-    private List<String> members = new ArrayList<>();
-    private List<String> admins = new ArrayList<>();
+    public static final int DEFAULT_MAX_MEMBERS = 1000;
+
+    private final Map<String, GroupRole> members = new LinkedHashMap<>();
     private GroupSettings settings = new GroupSettings();
-    private int maxMembers = 100;
+    private int maxMembers = DEFAULT_MAX_MEMBERS;
     private boolean isPublic = false;
     private String inviteCode;
     private boolean isActive = true;
@@ -37,11 +42,7 @@ public class Group {
         this.lastActivity = this.createdAt;
 
         // Add creator as member and admin
-        this.members.add(createdBy);
-        this.admins.add(createdBy);
-
-        // Generate initial invite code
-        this.inviteCode = generateInviteCode();
+        this.members.put(createdBy, GroupRole.CREATOR);
     }
 
     // Getters and setters
@@ -93,20 +94,42 @@ public class Group {
         this.createdAt = createdAt;
     }
 
-    public List<String> getMembers() {
-        return members;
+    /**
+     * @return The member IDs, in the order they joined (read-only)
+     */
+    public Set<String> getMembers() {
+        return Collections.unmodifiableSet(members.keySet());
     }
 
-    public void setMembers(List<String> members) {
-        this.members = members != null ? members : new ArrayList<>();
+    /**
+     * @return The member IDs with their stored role (read-only)
+     */
+    public Map<String, GroupRole> getMemberRoles() {
+        return Collections.unmodifiableMap(members);
     }
 
-    public List<String> getAdmins() {
-        return admins;
+    /**
+     * Sets the stored role of a member (used when reading the group)
+     * @param userId User ID
+     * @param role MEMBER, ADMIN or CREATOR
+     */
+    public void putMember(String userId, GroupRole role) {
+        if (userId != null && role != null && role != GroupRole.NONE) {
+            members.put(userId, role);
+        }
     }
 
-    public void setAdmins(List<String> admins) {
-        this.admins = admins != null ? admins : new ArrayList<>();
+    /**
+     * @return The IDs of the admins, creator included
+     */
+    public Set<String> getAdmins() {
+        Set<String> admins = new HashSet<>();
+        for (Map.Entry<String, GroupRole> entry : members.entrySet()) {
+            if (entry.getValue() == GroupRole.ADMIN || entry.getValue() == GroupRole.CREATOR) {
+                admins.add(entry.getKey());
+            }
+        }
+        return admins;
     }
 
     public GroupSettings getSettings() {
@@ -165,7 +188,7 @@ public class Group {
      * @return true if the user is a member
      */
     public boolean isMember(String userId) {
-        return members != null && members.contains(userId);
+        return userId != null && members.containsKey(userId);
     }
 
     /**
@@ -174,7 +197,8 @@ public class Group {
      * @return true if the user is an admin
      */
     public boolean isAdmin(String userId) {
-        return (admins != null && admins.contains(userId)) || isCreator(userId);
+        GroupRole role = userId != null ? members.get(userId) : null;
+        return role == GroupRole.ADMIN || role == GroupRole.CREATOR || isCreator(userId);
     }
 
     /**
@@ -218,7 +242,7 @@ public class Group {
         }
 
         // Add the member
-        members.add(newMemberId);
+        members.put(newMemberId, GroupRole.MEMBER);
         return true;
     }
 
@@ -244,14 +268,9 @@ public class Group {
             return false;
         }
 
-        // Remove from members list
+        // Remove the member, and with it any admin role
         members.remove(memberId);
 
-        // If they were an admin, remove from admins list too
-        if (admins.contains(memberId)) {
-            admins.remove(memberId);
-        }
-
         return true;
     }
 
@@ -272,8 +291,8 @@ public class Group {
             return false;
         }
 
-        // Add to admins list
-        admins.add(memberId);
+        // Give the admin role
+        members.put(memberId, GroupRole.ADMIN);
         return true;
     }
 
@@ -285,7 +304,7 @@ public class Group {
      */
     public boolean demoteFromAdmin(String adminId, String demotedBy) {
         // Check if user is an admin
-        if (!isAdmin(adminId) || !admins.contains(adminId)) {
+        if (members.get(adminId) != GroupRole.ADMIN) {
             return false;
         }
 
@@ -299,8 +318,8 @@ public class Group {
             return false;
         }
 
-        // Remove from admins list
-        admins.remove(adminId);
+        // Back to the member role
+        members.put(adminId, GroupRole.MEMBER);
         return true;
     }
 
@@ -340,28 +359,12 @@ public class Group {
         }
     }
 
-    /**
-     * Generate a new invite code
-     * @return The new invite code
-     */
-    public String generateInviteCode() {
-        // Generate a random 8-character alphanumeric code
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        StringBuilder code = new StringBuilder();
-        Random random = new Random();
-        for (int i = 0; i < 8; i++) {
-            code.append(chars.charAt(random.nextInt(chars.length())));
-        }
-        this.inviteCode = code.toString();
-        return this.inviteCode;
-    }
-
     @Override
     public String toString() {
         return "Group{" +
                 "groupId='" + groupId + '\'' +
                 ", groupName='" + groupName + '\'' +
-                ", members=" + (members != null ? members.size() : 0) +
+                ", members=" + members.size() +
                 ", isActive=" + isActive +
                 '}';
     }
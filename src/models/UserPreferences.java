@@ -1,7 +1,10 @@
 package models;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * UserPreferences model class for storing user settings and preferences
@@ -58,6 +61,11 @@ public class UserPreferences {
     private long lastUpdated;
     private String version; // Settings version for migration
 
+    // Change tracking (not stored): fields set since the last save, and whether the
+    // preferences exist in Firebase (loaded from or saved to it)
+    private final Set<String> dirtyFields = new LinkedHashSet<>();
+    private boolean stored;
+
     /**
      * Default constructor with default values
      */
@@ -135,198 +143,198 @@ public class UserPreferences {
     public String getUserId() { return userId; }
     public void setUserId(String userId) {
         this.userId = userId;
-        updateTimestamp();
+        markDirty("userId");
     }
 
     public String getDisplayName() { return displayName; }
     public void setDisplayName(String displayName) {
         this.displayName = displayName != null ? displayName : "";
-        updateTimestamp();
+        markDirty("displayName");
     }
 
     public String getBio() { return bio; }
     public void setBio(String bio) {
         this.bio = bio != null ? bio : "";
-        updateTimestamp();
+        markDirty("bio");
     }
 
     public String getStatusMessage() { return statusMessage; }
     public void setStatusMessage(String statusMessage) {
         this.statusMessage = statusMessage != null ? statusMessage : "";
-        updateTimestamp();
+        markDirty("statusMessage");
     }
 
     public String getProfileImageUrl() { return profileImageUrl; }
     public void setProfileImageUrl(String profileImageUrl) {
         this.profileImageUrl = profileImageUrl != null ? profileImageUrl : "";
-        updateTimestamp();
+        markDirty("profileImageUrl");
     }
 
     public String getPhoneNumber() { return phoneNumber; }
     public void setPhoneNumber(String phoneNumber) {
         this.phoneNumber = phoneNumber != null ? phoneNumber : "";
-        updateTimestamp();
+        markDirty("phoneNumber");
     }
 
     // Privacy Settings
     public boolean isOnlineStatusVisible() { return onlineStatusVisible; }
     public void setOnlineStatusVisible(boolean onlineStatusVisible) {
         this.onlineStatusVisible = onlineStatusVisible;
-        updateTimestamp();
+        markDirty("onlineStatusVisible");
     }
 
     public boolean isLastSeenVisible() { return lastSeenVisible; }
     public void setLastSeenVisible(boolean lastSeenVisible) {
         this.lastSeenVisible = lastSeenVisible;
-        updateTimestamp();
+        markDirty("lastSeenVisible");
     }
 
     public boolean isReadReceiptsEnabled() { return readReceiptsEnabled; }
     public void setReadReceiptsEnabled(boolean readReceiptsEnabled) {
         this.readReceiptsEnabled = readReceiptsEnabled;
-        updateTimestamp();
+        markDirty("readReceiptsEnabled");
     }
 
     public boolean isProfilePhotoVisible() { return profilePhotoVisible; }
     public void setProfilePhotoVisible(boolean profilePhotoVisible) {
         this.profilePhotoVisible = profilePhotoVisible;
-        updateTimestamp();
+        markDirty("profilePhotoVisible");
     }
 
     public boolean isAllowGroupInvites() { return allowGroupInvites; }
     public void setAllowGroupInvites(boolean allowGroupInvites) {
         this.allowGroupInvites = allowGroupInvites;
-        updateTimestamp();
+        markDirty("allowGroupInvites");
     }
 
     // Notification Settings
     public boolean isSoundEnabled() { return soundEnabled; }
     public void setSoundEnabled(boolean soundEnabled) {
         this.soundEnabled = soundEnabled;
-        updateTimestamp();
+        markDirty("soundEnabled");
     }
 
     public boolean isNotificationsEnabled() { return notificationsEnabled; }
     public void setNotificationsEnabled(boolean notificationsEnabled) {
         this.notificationsEnabled = notificationsEnabled;
-        updateTimestamp();
+        markDirty("notificationsEnabled");
     }
 
     public boolean isMessagePreviewEnabled() { return messagePreviewEnabled; }
     public void setMessagePreviewEnabled(boolean messagePreviewEnabled) {
         this.messagePreviewEnabled = messagePreviewEnabled;
-        updateTimestamp();
+        markDirty("messagePreviewEnabled");
     }
 
     public boolean isVibrationEnabled() { return vibrationEnabled; }
     public void setVibrationEnabled(boolean vibrationEnabled) {
         this.vibrationEnabled = vibrationEnabled;
-        updateTimestamp();
+        markDirty("vibrationEnabled");
     }
 
     public String getNotificationSound() { return notificationSound; }
     public void setNotificationSound(String notificationSound) {
         this.notificationSound = notificationSound != null ? notificationSound : "default";
-        updateTimestamp();
+        markDirty("notificationSound");
     }
 
     public boolean isGroupNotificationsEnabled() { return groupNotificationsEnabled; }
     public void setGroupNotificationsEnabled(boolean groupNotificationsEnabled) {
         this.groupNotificationsEnabled = groupNotificationsEnabled;
-        updateTimestamp();
+        markDirty("groupNotificationsEnabled");
     }
 
     // Appearance Settings
     public String getTheme() { return theme; }
     public void setTheme(String theme) {
         this.theme = theme != null ? theme : "light";
-        updateTimestamp();
+        markDirty("theme");
     }
 
     public String getFontSize() { return fontSize; }
     public void setFontSize(String fontSize) {
         this.fontSize = fontSize != null ? fontSize : "medium";
-        updateTimestamp();
+        markDirty("fontSize");
     }
 
     public String getChatWallpaper() { return chatWallpaper; }
     public void setChatWallpaper(String chatWallpaper) {
         this.chatWallpaper = chatWallpaper != null ? chatWallpaper : "default";
-        updateTimestamp();
+        markDirty("chatWallpaper");
     }
 
     public boolean isShowAvatars() { return showAvatars; }
     public void setShowAvatars(boolean showAvatars) {
         this.showAvatars = showAvatars;
-        updateTimestamp();
+        markDirty("showAvatars");
     }
 
     public boolean isShowTimestamps() { return showTimestamps; }
     public void setShowTimestamps(boolean showTimestamps) {
         this.showTimestamps = showTimestamps;
-        updateTimestamp();
+        markDirty("showTimestamps");
     }
 
     public String getDateFormat() { return dateFormat; }
     public void setDateFormat(String dateFormat) {
         this.dateFormat = dateFormat != null ? dateFormat : "24h";
-        updateTimestamp();
+        markDirty("dateFormat");
     }
 
     // Communication Settings
     public boolean isTypingIndicatorEnabled() { return typingIndicatorEnabled; }
     public void setTypingIndicatorEnabled(boolean typingIndicatorEnabled) {
         this.typingIndicatorEnabled = typingIndicatorEnabled;
-        updateTimestamp();
+        markDirty("typingIndicatorEnabled");
     }
 
     public boolean isAutoDownloadImages() { return autoDownloadImages; }
     public void setAutoDownloadImages(boolean autoDownloadImages) {
         this.autoDownloadImages = autoDownloadImages;
-        updateTimestamp();
+        markDirty("autoDownloadImages");
     }
 
     public boolean isAutoDownloadVideos() { return autoDownloadVideos; }
     public void setAutoDownloadVideos(boolean autoDownloadVideos) {
         this.autoDownloadVideos = autoDownloadVideos;
-        updateTimestamp();
+        markDirty("autoDownloadVideos");
     }
 
     public boolean isCompressImages() { return compressImages; }
     public void setCompressImages(boolean compressImages) {
         this.compressImages = compressImages;
-        updateTimestamp();
+        markDirty("compressImages");
     }
 
     public String getLanguage() { return language; }
     public void setLanguage(String language) {
         this.language = language != null ? language : "fr";
-        updateTimestamp();
+        markDirty("language");
     }
 
     // Advanced Settings
     public boolean isDataUsageOptimization() { return dataUsageOptimization; }
     public void setDataUsageOptimization(boolean dataUsageOptimization) {
         this.dataUsageOptimization = dataUsageOptimization;
-        updateTimestamp();
+        markDirty("dataUsageOptimization");
     }
 
     public boolean isBackupEnabled() { return backupEnabled; }
     public void setBackupEnabled(boolean backupEnabled) {
         this.backupEnabled = backupEnabled;
-        updateTimestamp();
+        markDirty("backupEnabled");
     }
 
     public String getBackupFrequency() { return backupFrequency; }
     public void setBackupFrequency(String backupFrequency) {
         this.backupFrequency = backupFrequency != null ? backupFrequency : "weekly";
-        updateTimestamp();
+        markDirty("backupFrequency");
     }
 
     public boolean isSyncAcrossDevices() { return syncAcrossDevices; }
     public void setSyncAcrossDevices(boolean syncAcrossDevices) {
         this.syncAcrossDevices = syncAcrossDevices;
-        updateTimestamp();
+        markDirty("syncAcrossDevices");
     }
 
     // Metadata
@@ -348,6 +356,68 @@ public class UserPreferences {
         this.lastUpdated = System.currentTimeMillis();
     }
 
+    /**
+     * Records a changed field and updates the timestamp
+     * @param field Name of the field (also its key in toMap())
+     */
+    private void markDirty(String field) {
+        dirtyFields.add(field);
+        updateTimestamp();
+    }
+
+    /**
+     * Marks fields as changed again (after a failed save)
+     * @param fields Names of the fields
+     */
+    public void markDirty(Collection<String> fields) {
+        dirtyFields.addAll(fields);
+    }
+
+    /**
+     * @return true if a field was set since the last save
+     */
+    public boolean isDirty() {
+        return !dirtyFields.isEmpty();
+    }
+
+    /**
+     * @return Names of the fields set since the last save
+     */
+    public Set<String> getDirtyFields() {
+        return new LinkedHashSet<>(dirtyFields);
+    }
+
+    /**
+     * Forgets the changed fields (after a successful save)
+     */
+    public void clearDirty() {
+        dirtyFields.clear();
+    }
+
+    /**
+     * @return true if these preferences were loaded from or saved to Firebase
+     */
+    public boolean isStored() {
+        return stored;
+    }
+
+    public void setStored(boolean stored) {
+        this.stored = stored;
+    }
+
+    /**
+     * Converts only the changed fields to a Map for a partial Firebase update
+     * @return Map of the fields set since the last save
+     */
+    public Map<String, Object> toDeltaMap() {
+        Map<String, Object> all = toMap();
+        Map<String, Object> delta = new HashMap<>();
+        for (String field : dirtyFields) {
+            delta.put(field, all.get(field));
+        }
+        return delta;
+    }
+
     /**
      * Converts UserPreferences to a Map for Firebase storage
      * @return Map representation of user preferences
@@ -467,6 +537,7 @@ public class UserPreferences {
         prefs.createdAt = getLongValue(map, "createdAt", System.currentTimeMillis());
         prefs.lastUpdated = getLongValue(map, "lastUpdated", System.currentTimeMillis());
         prefs.version = getStringValue(map, "version", "1.0");
+        prefs.stored = true;
 
         return prefs;
     }
@@ -497,7 +568,10 @@ public class UserPreferences {
      * @return A new UserPreferences object with same values
      */
     public UserPreferences copy() {
-        return UserPreferences.fromMap(this.toMap());
+        UserPreferences copy = UserPreferences.fromMap(this.toMap());
+        copy.stored = stored;
+        copy.dirtyFields.addAll(dirtyFields);
+        return copy;
     }
 
     /**
@@ -0,0 +1,213 @@
+package services;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AuthPipeline - Runs login, registration and password reset work off the EDT
+ * Tasks (Firebase reads, password hashing, email sending) run on a small worker pool;
+ * progress and results are delivered on the EDT. Each submission carries a key (for
+ * example "login:" + email): a key can only have one task in flight and a limited number
+ * of submissions per minute. Pages cancel their tasks when the user navigates away, and
+ * a cancelled task never calls back.
+ */
+public class AuthPipeline {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long ATTEMPT_WINDOW_MS = 60 * 1000;
+
+    private static AuthPipeline instance;
+
+    private final ExecutorService executor;
+
+    // In-flight tasks and recent submission times, by key
+    private final Map<String, Handle> running = new HashMap<>();
+    private final Map<String, Deque<Long>> attempts = new HashMap<>();
+
+    /**
+     * Work done on the worker thread
+     */
+    public interface Task<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    /**
+     * Lets a task report progress and notice cancellation
+     */
+    public interface Progress {
+        void report(String message);
+        boolean isCancelled();
+    }
+
+    /**
+     * Result callbacks, always called on the EDT
+     */
+    public interface Callback<T> {
+        void onSuccess(T result);
+        void onFailure(Exception error);
+        default void onProgress(String message) {
+        }
+    }
+
+    /**
+     * Thrown (through onFailure) when a submission is refused by the rate limiter
+     */
+    public static class RateLimitedException extends Exception {
+        private final long retryAfterMs;
+
+        public RateLimitedException(String message, long retryAfterMs) {
+            super(message);
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        public long getRetryAfterMs() {
+            return retryAfterMs;
+        }
+    }
+
+    /**
+     * A submitted task
+     */
+    public static class Handle implements Progress {
+        private volatile boolean cancelled = false;
+        private volatile Future<?> future;
+        private volatile Callback<?> callback;
+        private volatile Runnable release;
+
+        /**
+         * Cancels the task: its callbacks will not be called
+         */
+        public void cancel() {
+            cancelled = true;
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+            // A task cancelled before it started never reaches its finally block
+            Runnable r = release;
+            if (r != null) {
+                r.run();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void report(String message) {
+            Callback<?> cb = callback;
+            SwingUtilities.invokeLater(() -> {
+                if (!cancelled && cb != null) {
+                    cb.onProgress(message);
+                }
+            });
+        }
+    }
+
+    // Private constructor for singleton pattern
+    private AuthPipeline() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "auth-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized AuthPipeline getInstance() {
+        if (instance == null) {
+            instance = new AuthPipeline();
+        }
+        return instance;
+    }
+
+    /**
+     * Submits a task
+     * @param key Rate limiting key (one task in flight per key)
+     * @param task Work to run on the worker pool
+     * @param callback Receives progress and the result on the EDT
+     * @return Handle to cancel the task (also returned when the submission was refused)
+     */
+    public <T> Handle submit(String key, Task<T> task, Callback<T> callback) {
+        Handle handle = new Handle();
+        handle.callback = callback;
+
+        RateLimitedException refused = admit(key, handle);
+        if (refused != null) {
+            SwingUtilities.invokeLater(() -> callback.onFailure(refused));
+            return handle;
+        }
+
+        handle.release = () -> finish(key, handle);
+        handle.future = executor.submit(() -> {
+            T result = null;
+            Exception error = null;
+            try {
+                result = task.run(handle);
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                finish(key, handle);
+            }
+
+            final T finalResult = result;
+            final Exception finalError = error;
+            SwingUtilities.invokeLater(() -> {
+                if (handle.isCancelled()) {
+                    return;
+                }
+                if (finalError != null) {
+                    callback.onFailure(finalError);
+                } else {
+                    callback.onSuccess(finalResult);
+                }
+            });
+        });
+        return handle;
+    }
+
+    /**
+     * Forgets the submission history of a key (after a successful login, for example)
+     * @param key Rate limiting key
+     */
+    public synchronized void resetAttempts(String key) {
+        attempts.remove(key);
+    }
+
+    private synchronized RateLimitedException admit(String key, Handle handle) {
+        if (running.containsKey(key)) {
+            return new RateLimitedException("Une demande est déjà en cours, veuillez patienter.", 0);
+        }
+
+        long now = System.currentTimeMillis();
+        Deque<Long> recent = attempts.computeIfAbsent(key, k -> new ArrayDeque<>());
+        while (!recent.isEmpty() && now - recent.peekFirst() > ATTEMPT_WINDOW_MS) {
+            recent.pollFirst();
+        }
+        if (recent.size() >= MAX_ATTEMPTS) {
+            long retryAfter = ATTEMPT_WINDOW_MS - (now - recent.peekFirst());
+            return new RateLimitedException("Trop de tentatives. Réessayez dans "
+                    + Math.max(1, retryAfter / 1000) + " secondes.", retryAfter);
+        }
+
+        recent.addLast(now);
+        running.put(key, handle);
+        return null;
+    }
+
+    private synchronized void finish(String key, Handle handle) {
+        if (running.get(key) == handle) {
+            running.remove(key);
+        }
+    }
+}
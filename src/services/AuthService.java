@@ -4,6 +4,7 @@ import com.google.firebase.database.*;
 import models.User;
 import utils.PasswordUtils;
 
+import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
@@ -15,6 +16,9 @@ import java.util.concurrent.TimeUnit;
  * Manages login, registration, and password reset functionality
  */
 public class AuthService {
+    // Time the password was last set, the credential version remembered sessions are tied to
+    public static final String PASSWORD_CHANGED_AT = "passwordChangedAt";
+
     private FirebaseService firebaseService;
     private static AuthService instance;
 
@@ -44,60 +48,60 @@ public class AuthService {
      */
     public User login(String email, String password) {
         try {
-            DatabaseReference usersRef = firebaseService.getDatabase().getReference("users");
+            // Single key read in the email index instead of a query over all users
+            String userId = UserIndexService.getInstance().findUserIdByEmail(email);
+            if (userId == null) {
+                return null;
+            }
+
+            DatabaseReference userRef = firebaseService.getDatabase().getReference("users/" + userId);
             CountDownLatch latch = new CountDownLatch(1);
-            final User[] result = {null};
+            final DataSnapshot[] snapshot = {null};
 
-            // Query users by email
-            usersRef.orderByChild("email").equalTo(email)
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(DataSnapshot dataSnapshot) {
-                            try {
-                                if (dataSnapshot.exists()) {
-                                    for (DataSnapshot userSnapshot : dataSnapshot.getChildren()) {
-                                        String storedPasswordHash = userSnapshot.child("passwordHash").getValue(String.class);
-
-                                        // Check both "passwordHash" and "password" fields for compatibility
-                                        if (storedPasswordHash == null) {
-                                            storedPasswordHash = userSnapshot.child("password").getValue(String.class);
-                                        }
-
-                                        // Verify password using multiple methods
-                                        if (storedPasswordHash != null && verifyPassword(password, storedPasswordHash)) {
-                                            // Create User object
-                                            User user = new User();
-                                            user.setUserId(userSnapshot.getKey());
-                                            user.setEmail(userSnapshot.child("email").getValue(String.class));
-                                            user.setUsername(userSnapshot.child("username").getValue(String.class));
-                                            user.setFirstName(userSnapshot.child("firstName").getValue(String.class));
-                                            user.setLastName(userSnapshot.child("lastName").getValue(String.class));
-
-                                            // Update last login timestamp
-                                            userSnapshot.getRef().child("lastLogin").setValueAsync(ServerValue.TIMESTAMP);
-
-                                            result[0] = user;
-                                            break;
-                                        }
-                                    }
-                                }
-                            } catch (Exception e) {
-                                System.err.println("Error processing login data: " + e.getMessage());
-                            } finally {
-                                latch.countDown();
-                            }
-                        }
+            userRef.addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(DataSnapshot userSnapshot) {
+                    snapshot[0] = userSnapshot;
+                    latch.countDown();
+                }
 
-                        @Override
-                        public void onCancelled(DatabaseError databaseError) {
-                            System.err.println("Login query cancelled: " + databaseError.getMessage());
-                            latch.countDown();
-                        }
-                    });
+                @Override
+                public void onCancelled(DatabaseError databaseError) {
+                    System.err.println("Login query cancelled: " + databaseError.getMessage());
+                    latch.countDown();
+                }
+            });
 
-            // Wait for the query to complete
+            // Wait for the read to complete; hashing runs here, not on the Firebase thread
             latch.await(10, TimeUnit.SECONDS);
-            return result[0];
+            DataSnapshot userSnapshot = snapshot[0];
+            if (userSnapshot == null || !userSnapshot.exists()
+                    || userSnapshot.hasChild(FirebaseService.DELETION_MARKER)) {
+                return null;
+            }
+
+            String storedPasswordHash = readPasswordHash(userSnapshot);
+
+            // The hash format selects the one scheme to check
+            if (storedPasswordHash == null || !PasswordUtils.verifyPassword(password, storedPasswordHash)) {
+                return null;
+            }
+
+            // Migrate legacy or under-cost hashes now that the password is known
+            upgradePasswordHash(userSnapshot, password, storedPasswordHash);
+
+            // Create User object
+            User user = new User();
+            user.setUserId(userSnapshot.getKey());
+            user.setEmail(userSnapshot.child("email").getValue(String.class));
+            user.setUsername(userSnapshot.child("username").getValue(String.class));
+            user.setFirstName(userSnapshot.child("firstName").getValue(String.class));
+            user.setLastName(userSnapshot.child("lastName").getValue(String.class));
+
+            // Update last login timestamp
+            userSnapshot.getRef().child("lastLogin").setValueAsync(ServerValue.TIMESTAMP);
+
+            return user;
 
         } catch (Exception e) {
             System.err.println("Error during login: " + e.getMessage());
@@ -114,12 +118,6 @@ public class AuthService {
      */
     public boolean register(User user, String password) {
         try {
-            // Check if email already exists
-            if (emailExists(user.getEmail())) {
-                System.err.println("Email already exists: " + user.getEmail());
-                return false;
-            }
-
             // Hash the password
             String hashedPassword = hashPassword(password);
 
@@ -130,6 +128,7 @@ public class AuthService {
             userData.put("firstName", user.getFirstName());
             userData.put("lastName", user.getLastName());
             userData.put("passwordHash", hashedPassword);
+            userData.put(PASSWORD_CHANGED_AT, ServerValue.TIMESTAMP);
             userData.put("createdAt", ServerValue.TIMESTAMP);
             userData.put("lastLogin", ServerValue.TIMESTAMP);
 
@@ -146,8 +145,17 @@ public class AuthService {
             String userId = usersRef.push().getKey();
 
             if (userId != null) {
+                // Claim the email and username; this is also the uniqueness check
+                UserIndexService.Reservation reservation =
+                        UserIndexService.getInstance().reserve(userId, user.getEmail(), user.getUsername());
+                if (reservation != UserIndexService.Reservation.RESERVED) {
+                    System.err.println("Cannot register " + user.getEmail() + ": " + reservation);
+                    return false;
+                }
+
                 CountDownLatch latch = new CountDownLatch(1);
                 final boolean[] success = {false};
+                final boolean[] rejected = {false};
 
                 usersRef.child(userId).setValue(userData, new DatabaseReference.CompletionListener() {
                     @Override
@@ -158,12 +166,18 @@ public class AuthService {
                             System.out.println("User registered successfully: " + user.getEmail());
                         } else {
                             System.err.println("Error registering user: " + error.getMessage());
+                            rejected[0] = true;
                         }
                         latch.countDown();
                     }
                 });
 
                 latch.await(10, TimeUnit.SECONDS);
+                if (rejected[0]) {
+                    // Free the email and username for another attempt; a write that only timed out
+                    // stays queued and may still create the account, so it keeps them
+                    UserIndexService.getInstance().release(user.getEmail(), user.getUsername());
+                }
                 return success[0];
             }
 
@@ -174,6 +188,58 @@ public class AuthService {
         return false;
     }
 
+    /**
+     * Field holding the password hash of a user record: "password" (sign-up page) or, for
+     * accounts created by register(), "passwordHash". Every reader goes through this, so a
+     * record holding both fields is checked and rehashed on the same one.
+     * @param userSnapshot Snapshot of users/{uid}
+     * @return The field name
+     */
+    public static String passwordField(DataSnapshot userSnapshot) {
+        return userSnapshot.hasChild("password") ? "password" : "passwordHash";
+    }
+
+    /**
+     * @param userSnapshot Snapshot of users/{uid}
+     * @return The stored password hash, or null if the record has none
+     */
+    public static String readPasswordHash(DataSnapshot userSnapshot) {
+        return userSnapshot.child(passwordField(userSnapshot)).getValue(String.class);
+    }
+
+    /**
+     * Credential version of a user record: the time the password was last set (0 for accounts
+     * created before it was recorded). Remembered sessions are tied to it rather than to the
+     * hash, so a transparent rehash never looks like a password change. Anything that sets a
+     * new password must update PASSWORD_CHANGED_AT as well.
+     * @param userSnapshot Snapshot of users/{uid}
+     * @return The version, as a string
+     */
+    public static String readCredentialVersion(DataSnapshot userSnapshot) {
+        Long changedAt = userSnapshot.child(PASSWORD_CHANGED_AT).getValue(Long.class);
+        return String.valueOf(changedAt != null ? changedAt : 0L);
+    }
+
+    /**
+     * Replaces a legacy hash, or one not at the shared cost, with one in the current format
+     * (written in the background; the credential version is left unchanged)
+     * Call only after the password has been verified against storedHash.
+     * @param userSnapshot Snapshot of users/{uid} the hash was read from
+     * @param password The verified plain text password
+     * @param storedHash The hash read with readPasswordHash
+     */
+    public static void upgradePasswordHash(DataSnapshot userSnapshot, String password, String storedHash) {
+        if (!PasswordUtils.needsRehash(storedHash)) {
+            return;
+        }
+        try {
+            userSnapshot.getRef().child(passwordField(userSnapshot))
+                    .setValueAsync(PasswordUtils.hashPassword(password));
+        } catch (Exception e) {
+            System.err.println("Error upgrading password hash: " + e.getMessage());
+        }
+    }
+
     /**
      * Send password reset email (placeholder - in real app would send email)
      * @param email User's email
@@ -181,8 +247,9 @@ public class AuthService {
      */
     public boolean resetPassword(String email) {
         try {
-            // Check if email exists
-            if (!emailExists(email)) {
+            // Find the account with a single key read
+            String userId = UserIndexService.getInstance().findUserIdByEmail(email);
+            if (userId == null) {
                 System.err.println("Email not found: " + email);
                 return false;
             }
@@ -190,39 +257,26 @@ public class AuthService {
             // For now, we'll just log the action
             System.out.println("Password reset requested for: " + email);
 
-            // You could store a reset token in Firebase here
-            DatabaseReference usersRef = firebaseService.getDatabase().getReference("users");
+            // Generate reset token (in real app, use secure random)
+            String resetToken = "reset_" + System.currentTimeMillis();
+            long expirationTime = System.currentTimeMillis() + (24 * 60 * 60 * 1000); // 24 hours
+
+            Map<String, Object> resetData = new HashMap<>();
+            resetData.put("token", resetToken);
+            resetData.put("expires", expirationTime);
+            resetData.put("used", false);
+
             CountDownLatch latch = new CountDownLatch(1);
             final boolean[] success = {false};
 
-            usersRef.orderByChild("email").equalTo(email)
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(DataSnapshot dataSnapshot) {
-                            if (dataSnapshot.exists()) {
-                                for (DataSnapshot userSnapshot : dataSnapshot.getChildren()) {
-                                    // Generate reset token (in real app, use secure random)
-                                    String resetToken = "reset_" + System.currentTimeMillis();
-                                    long expirationTime = System.currentTimeMillis() + (24 * 60 * 60 * 1000); // 24 hours
-
-                                    Map<String, Object> resetData = new HashMap<>();
-                                    resetData.put("token", resetToken);
-                                    resetData.put("expires", expirationTime);
-                                    resetData.put("used", false);
-
-                                    userSnapshot.getRef().child("passwordReset").setValueAsync(resetData);
-                                    success[0] = true;
-                                    break;
-                                }
-                            }
-                            latch.countDown();
-                        }
-
-                        @Override
-                        public void onCancelled(DatabaseError databaseError) {
-                            System.err.println("Password reset query cancelled: " + databaseError.getMessage());
-                            latch.countDown();
+            firebaseService.getDatabase().getReference("users/" + userId + "/passwordReset")
+                    .setValue(resetData, (error, ref) -> {
+                        if (error == null) {
+                            success[0] = true;
+                        } else {
+                            System.err.println("Error storing password reset: " + error.getMessage());
                         }
+                        latch.countDown();
                     });
 
             latch.await(10, TimeUnit.SECONDS);
@@ -239,39 +293,14 @@ public class AuthService {
      * Check if email already exists in database
      * @param email Email to check
      * @return true if email exists, false otherwise
+     * @throws IOException if the email index could not be read
      */
-    private boolean emailExists(String email) {
-        try {
-            DatabaseReference usersRef = firebaseService.getDatabase().getReference("users");
-            CountDownLatch latch = new CountDownLatch(1);
-            final boolean[] exists = {false};
-
-            usersRef.orderByChild("email").equalTo(email)
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(DataSnapshot dataSnapshot) {
-                            exists[0] = dataSnapshot.exists();
-                            latch.countDown();
-                        }
-
-                        @Override
-                        public void onCancelled(DatabaseError databaseError) {
-                            System.err.println("Email check query cancelled: " + databaseError.getMessage());
-                            latch.countDown();
-                        }
-                    });
-
-            latch.await(5, TimeUnit.SECONDS);
-            return exists[0];
-
-        } catch (Exception e) {
-            System.err.println("Error checking email existence: " + e.getMessage());
-            return false;
-        }
+    public boolean emailExists(String email) throws IOException {
+        return UserIndexService.getInstance().findUserIdByEmail(email) != null;
     }
 
     /**
-     * Hash password using SHA-256
+     * Hash password with PBKDF2 (see PasswordUtils for the format)
      * @param password Plain text password
      * @return Hashed password
      */
@@ -285,33 +314,6 @@ public class AuthService {
         }
     }
 
-    /**
-     * Verify password with multiple hashing methods for compatibility
-     */
-    private boolean verifyPassword(String plainPassword, String storedHash) {
-        try {
-            // Try modern hash with salt
-            if (PasswordUtils.verifyPassword(plainPassword, storedHash)) {
-                return true;
-            }
-        } catch (Exception e) {
-            // Continue to fallback methods
-        }
-
-        try {
-            // Try simple SHA-256 hash
-            String simpleHash = PasswordUtils.simpleHash(plainPassword);
-            if (simpleHash.equals(storedHash)) {
-                return true;
-            }
-        } catch (Exception e) {
-            // Continue to fallback methods
-        }
-
-        // Try basic hashCode (last resort)
-        return String.valueOf(plainPassword.hashCode()).equals(storedHash);
-    }
-
     /**
      * Update user's online status
      * @param userId User ID
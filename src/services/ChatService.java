@@ -17,6 +17,10 @@ public class ChatService {
     private FirebaseService firebaseService;
     private static ChatService instance;
 
+    private static final int CHAT_CACHE_SIZE = 50;
+    private static final long CACHE_IDLE_MINUTES = 10;
+    private EntityCache chatCache;
+
     // Private constructor for singleton pattern
     private ChatService() {
         try {
@@ -297,8 +301,14 @@ public class ChatService {
      */
     public boolean addUserToGroup(String chatId, String newUserId, String addedBy) {
         try {
+            // Chats backed by a group: membership, roles and permissions belong to GroupService
+            if (GroupService.getInstance().loadGroup(chatId) != null) {
+                return GroupService.getInstance().addMemberToGroup(chatId, newUserId, addedBy);
+            }
+
+            DataSnapshot chatSnapshot = getChatCache().get(chatId);
             Chat chat = loadChatById(chatId);
-            if (chat == null || !chat.isGroupChat()) {
+            if (chatSnapshot == null || chat == null || !chat.isGroupChat()) {
                 return false;
             }
 
@@ -312,41 +322,19 @@ public class ChatService {
                 return false;
             }
 
-            // Add user to participants list
-            List<String> updatedParticipants = new ArrayList<>(chat.getParticipants());
-            updatedParticipants.add(newUserId);
-
-            CountDownLatch latch = new CountDownLatch(1);
-            final boolean[] success = {false};
+            Set<String> participants = new LinkedHashSet<>(chat.getParticipants());
+            participants.add(newUserId);
 
-            // Update chat participants
-            DatabaseReference chatRef = firebaseService.getDatabase().getReference("chats/" + chatId);
-            chatRef.child("users").setValue(updatedParticipants, new DatabaseReference.CompletionListener() {
-                @Override
-                public void onComplete(DatabaseError error, DatabaseReference ref) {
-                    if (error == null) {
-                        success[0] = true;
-
-                        // Add chat to new user's chat list
-                        DatabaseReference userChatsRef = firebaseService.getDatabase()
-                                .getReference("users/" + newUserId + "/chats");
-                        userChatsRef.child(chatId).setValueAsync(true);
-
-                    } else {
-                        System.err.println("Error adding user to group: " + error.getMessage());
-                    }
-                    latch.countDown();
-                }
-            });
-
-            latch.await(10, TimeUnit.SECONDS);
+            Map<String, Object> updates = new HashMap<>();
+            putParticipantChange(updates, chatId, chatSnapshot.child("users"), participants, newUserId, true);
+            boolean success = applyUpdates(updates, "Error adding user to group");
 
-            if (success[0]) {
+            if (success) {
                 // Send system message
                 sendSystemMessage(chatId, newUserId + " was added to the group");
             }
 
-            return success[0];
+            return success;
 
         } catch (Exception e) {
             System.err.println("Error adding user to group: " + e.getMessage());
@@ -365,8 +353,16 @@ public class ChatService {
      */
     public boolean removeUserFromGroup(String chatId, String userIdToRemove, String removedBy) {
         try {
+            // Chats backed by a group: membership, roles and permissions belong to GroupService
+            if (GroupService.getInstance().loadGroup(chatId) != null) {
+                return userIdToRemove.equals(removedBy)
+                        ? GroupService.getInstance().leaveGroup(chatId, userIdToRemove)
+                        : GroupService.getInstance().removeMemberFromGroup(chatId, userIdToRemove, removedBy);
+            }
+
+            DataSnapshot chatSnapshot = getChatCache().get(chatId);
             Chat chat = loadChatById(chatId);
-            if (chat == null || !chat.isGroupChat()) {
+            if (chatSnapshot == null || chat == null || !chat.isGroupChat()) {
                 return false;
             }
 
@@ -380,36 +376,14 @@ public class ChatService {
                 return false;
             }
 
-            // Remove user from participants list
-            List<String> updatedParticipants = new ArrayList<>(chat.getParticipants());
-            updatedParticipants.remove(userIdToRemove);
+            Set<String> participants = new LinkedHashSet<>(chat.getParticipants());
+            participants.remove(userIdToRemove);
 
-            CountDownLatch latch = new CountDownLatch(1);
-            final boolean[] success = {false};
-
-            // Update chat participants
-            DatabaseReference chatRef = firebaseService.getDatabase().getReference("chats/" + chatId);
-            chatRef.child("users").setValue(updatedParticipants, new DatabaseReference.CompletionListener() {
-                @Override
-                public void onComplete(DatabaseError error, DatabaseReference ref) {
-                    if (error == null) {
-                        success[0] = true;
-
-                        // Remove chat from user's chat list
-                        DatabaseReference userChatsRef = firebaseService.getDatabase()
-                                .getReference("users/" + userIdToRemove + "/chats/" + chatId);
-                        userChatsRef.removeValueAsync();
-
-                    } else {
-                        System.err.println("Error removing user from group: " + error.getMessage());
-                    }
-                    latch.countDown();
-                }
-            });
-
-            latch.await(10, TimeUnit.SECONDS);
+            Map<String, Object> updates = new HashMap<>();
+            putParticipantChange(updates, chatId, chatSnapshot.child("users"), participants, userIdToRemove, false);
+            boolean success = applyUpdates(updates, "Error removing user from group");
 
-            if (success[0]) {
+            if (success) {
                 // Send system message
                 if (userIdToRemove.equals(removedBy)) {
                     sendSystemMessage(chatId, userIdToRemove + " left the group");
@@ -418,7 +392,7 @@ public class ChatService {
                 }
             }
 
-            return success[0];
+            return success;
 
         } catch (Exception e) {
             System.err.println("Error removing user from group: " + e.getMessage());
@@ -427,6 +401,59 @@ public class ChatService {
         }
     }
 
+    /**
+     * Adds a participant change to a multi-path update
+     * Participants keyed by user ID get a single entry written or removed. A chat whose
+     * participants are still a list (plain multi-user chats, older chats) has no per-user key
+     * to write, so its whole list is rewritten keyed by user ID in the same update.
+     */
+    private static void putParticipantChange(Map<String, Object> updates, String chatId, DataSnapshot usersSnapshot,
+                                             Collection<String> participantsAfter, String userId, boolean member) {
+        if (isParticipantList(usersSnapshot)) {
+            Map<String, Object> users = new HashMap<>();
+            for (String participant : participantsAfter) {
+                users.put(participant, true);
+            }
+            updates.put("chats/" + chatId + "/users", users);
+        } else {
+            updates.put("chats/" + chatId + "/users/" + userId, member ? true : null);
+        }
+        updates.put("users/" + userId + "/chats/" + chatId, member ? true : null);
+    }
+
+    /**
+     * @param usersSnapshot Snapshot of chats/{chatId}/users
+     * @return true if the participants are stored as a list of user IDs rather than keyed by user ID
+     */
+    private static boolean isParticipantList(DataSnapshot usersSnapshot) {
+        for (DataSnapshot child : usersSnapshot.getChildren()) {
+            if (child.getValue() instanceof String) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies a multi-path update from the database root and waits for the result
+     * @return true if the update was written
+     */
+    private boolean applyUpdates(Map<String, Object> updates, String errorMessage) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        final boolean[] success = {false};
+
+        firebaseService.getDatabase().getReference().updateChildren(updates, (error, ref) -> {
+            success[0] = error == null;
+            if (error != null) {
+                System.err.println(errorMessage + ": " + error.getMessage());
+            }
+            latch.countDown();
+        });
+
+        latch.await(10, TimeUnit.SECONDS);
+        return success[0];
+    }
+
     /**
      * Load messages for a specific chat
      *
@@ -595,71 +622,40 @@ public class ChatService {
      */
     public Chat loadChatById(String chatId) {
         try {
-            CountDownLatch latch = new CountDownLatch(1);
-            final Chat[] result = {null};
+            DataSnapshot dataSnapshot = getChatCache().get(chatId);
+            if (dataSnapshot == null || !dataSnapshot.exists()) {
+                return null;
+            }
 
-            DatabaseReference chatRef = firebaseService.getDatabase().getReference("chats/" + chatId);
-            chatRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot dataSnapshot) {
-                    if (dataSnapshot.exists()) {
-                        try {
-                            Chat chat = new Chat();
-                            chat.setChatId(chatId);
+            Chat chat = new Chat();
+            chat.setChatId(chatId);
 
-                            // Get participants
-                            Object usersObj = dataSnapshot.child("users").getValue();
-                            List<String> participants = new ArrayList<>();
-
-                            if (usersObj instanceof ArrayList) {
-                                participants = (ArrayList<String>) usersObj;
-                            } else if (usersObj instanceof HashMap) {
-                                HashMap<String, String> usersMap = (HashMap<String, String>) usersObj;
-                                participants.addAll(usersMap.values());
-                            }
+            // Get participants
+            chat.setParticipants(readParticipants(dataSnapshot.child("users")));
 
-                            chat.setParticipants(participants);
+            // Get other chat info
+            Long createdAt = dataSnapshot.child("createdAt").getValue(Long.class);
+            chat.setCreatedAt(createdAt != null ? createdAt : 0);
 
-                            // Get other chat info
-                            Long createdAt = dataSnapshot.child("createdAt").getValue(Long.class);
-                            chat.setCreatedAt(createdAt != null ? createdAt : 0);
+            String createdBy = dataSnapshot.child("createdBy").getValue(String.class);
+            chat.setCreatedBy(createdBy);
 
-                            String createdBy = dataSnapshot.child("createdBy").getValue(String.class);
-                            chat.setCreatedBy(createdBy);
+            String lastMessageText = dataSnapshot.child("lastMessageText").getValue(String.class);
+            chat.setLastMessage(lastMessageText != null ? lastMessageText : "");
 
-                            String lastMessageText = dataSnapshot.child("lastMessageText").getValue(String.class);
-                            chat.setLastMessage(lastMessageText != null ? lastMessageText : "");
+            Long lastMessageTime = dataSnapshot.child("lastMessageTime").getValue(Long.class);
+            chat.setLastMessageTime(lastMessageTime != null ? lastMessageTime : 0);
 
-                            Long lastMessageTime = dataSnapshot.child("lastMessageTime").getValue(Long.class);
-                            chat.setLastMessageTime(lastMessageTime != null ? lastMessageTime : 0);
+            String chatName = dataSnapshot.child("name").getValue(String.class);
+            chat.setChatName(chatName);
 
-                            String chatName = dataSnapshot.child("name").getValue(String.class);
-                            chat.setChatName(chatName);
+            Boolean isActive = dataSnapshot.child("isActive").getValue(Boolean.class);
+            chat.setActive(isActive != null ? isActive : true);
 
-                            Boolean isActive = dataSnapshot.child("isActive").getValue(Boolean.class);
-                            chat.setActive(isActive != null ? isActive : true);
+            String chatImageUrl = dataSnapshot.child("chatImageUrl").getValue(String.class);
+            chat.setChatImageUrl(chatImageUrl);
 
-                            String chatImageUrl = dataSnapshot.child("chatImageUrl").getValue(String.class);
-                            chat.setChatImageUrl(chatImageUrl);
-
-                            result[0] = chat;
-
-                        } catch (Exception e) {
-                            System.err.println("Error parsing chat data: " + e.getMessage());
-                        }
-                    }
-                    latch.countDown();
-                }
-
-                @Override
-                public void onCancelled(DatabaseError databaseError) {
-                    System.err.println("Error loading chat: " + databaseError.getMessage());
-                    latch.countDown();
-                }
-            });
-
-            latch.await(10, TimeUnit.SECONDS);
-            return result[0];
+            return chat;
 
         } catch (Exception e) {
             System.err.println("Error loading chat: " + e.getMessage());
@@ -668,6 +664,18 @@ public class ChatService {
         }
     }
 
+    /**
+     * Chats read by ID, kept current by one listener per chat
+     * The listener on chats/{id} also receives the chat's messages, hence the small bound.
+     */
+    private synchronized EntityCache getChatCache() {
+        if (chatCache == null) {
+            chatCache = new EntityCache("Chat cache", firebaseService.getDatabase(), "chats",
+                    CHAT_CACHE_SIZE, CACHE_IDLE_MINUTES, TimeUnit.MINUTES);
+        }
+        return chatCache;
+    }
+
     /**
      * Send a system message to a chat
      *
@@ -732,17 +740,7 @@ public class ChatService {
                             chat.setChatId(chatId);
 
                             // Get participants
-                            Object usersObj = dataSnapshot.child("users").getValue();
-                            List<String> participants = new ArrayList<>();
-
-                            if (usersObj instanceof ArrayList) {
-                                participants = (ArrayList<String>) usersObj;
-                            } else if (usersObj instanceof HashMap) {
-                                HashMap<String, String> usersMap = (HashMap<String, String>) usersObj;
-                                participants.addAll(usersMap.values());
-                            }
-
-                            chat.setParticipants(participants);
+                            chat.setParticipants(readParticipants(dataSnapshot.child("users")));
 
                             // Get other chat info
                             Long createdAt = dataSnapshot.child("createdAt").getValue(Long.class);
@@ -806,6 +804,26 @@ public class ChatService {
         }
     }
 
+    /**
+     * Reads the participants of a chat
+     * Private chats store a list of user IDs; group chats are keyed by user ID
+     * (users/{uid}: true) so that a membership change writes a single entry.
+     * @param usersSnapshot Snapshot of chats/{chatId}/users
+     * @return The participant IDs
+     */
+    public static List<String> readParticipants(DataSnapshot usersSnapshot) {
+        List<String> participants = new ArrayList<>();
+        for (DataSnapshot child : usersSnapshot.getChildren()) {
+            Object value = child.getValue();
+            if (value instanceof String) {
+                participants.add((String) value);
+            } else if (Boolean.TRUE.equals(value)) {
+                participants.add(child.getKey());
+            }
+        }
+        return participants;
+    }
+
     /**
      * Add chat to each participant's chat list
      */
@@ -0,0 +1,189 @@
+package services;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityCache - Snapshots of single nodes (chats/{id}, groups/{id}) kept current by listeners
+ * The first read of a node attaches one value listener and waits for its first value; later
+ * reads are served from memory while the listener applies every change, including this
+ * client's own writes, which Firebase raises locally as soon as they are made. Nodes that do
+ * not exist are cached as well. An entry, and its listener, is dropped when it has not been
+ * read for the idle timeout or when the cache is full (least recently read first).
+ * Snapshots are immutable: callers convert them into a new model object on every read and
+ * may modify that object freely.
+ */
+public class EntityCache {
+
+    private static final long FIRST_VALUE_TIMEOUT_SECONDS = 10;
+
+    private final String name;
+    private final FirebaseDatabase database;
+    private final String rootPath;
+    private final int maxEntries;
+    private final long idleTimeoutMs;
+
+    // Access-ordered: the head is the entry read least recently
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+
+    private final class Entry implements ValueEventListener {
+        final String id;
+        final DatabaseReference ref;
+        final CountDownLatch firstValue = new CountDownLatch(1);
+        volatile DataSnapshot snapshot;
+        long lastRead;
+
+        Entry(String id) {
+            this.id = id;
+            this.ref = database.getReference(rootPath + "/" + id);
+        }
+
+        @Override
+        public void onDataChange(DataSnapshot dataSnapshot) {
+            snapshot = dataSnapshot;
+            firstValue.countDown();
+        }
+
+        @Override
+        public void onCancelled(DatabaseError databaseError) {
+            System.err.println(name + " listener cancelled for " + id + ": " + databaseError.getMessage());
+            remove(this);
+            firstValue.countDown();
+        }
+    }
+
+    /**
+     * @param name Name used in the log
+     * @param database Database holding the nodes
+     * @param rootPath Parent of the cached nodes (for example "groups")
+     * @param maxEntries Maximum number of nodes listened to
+     * @param idleTimeout Time after which a node that is not read is dropped
+     * @param unit Unit of the idle timeout
+     */
+    public EntityCache(String name, FirebaseDatabase database, String rootPath,
+                       int maxEntries, long idleTimeout, TimeUnit unit) {
+        this.name = name;
+        this.database = database;
+        this.rootPath = rootPath;
+        this.maxEntries = maxEntries;
+        this.idleTimeoutMs = unit.toMillis(idleTimeout);
+    }
+
+    /**
+     * Returns the current snapshot of a node (blocks only on the first read of the node)
+     * @param id Key of the node under the root path
+     * @return The snapshot (check exists()), or null if the node could not be read
+     */
+    public DataSnapshot get(String id) {
+        Entry entry;
+        boolean attach = false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            evictIdle(now);
+
+            entry = entries.get(id);
+            if (entry == null) {
+                entry = new Entry(id);
+                entries.put(id, entry);
+                attach = true;
+                misses++;
+                evictOverflow();
+            } else {
+                hits++;
+            }
+            entry.lastRead = now;
+        }
+
+        if (attach) {
+            entry.ref.addValueEventListener(entry);
+        }
+
+        try {
+            if (!entry.firstValue.await(FIRST_VALUE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println(name + ": timed out loading " + id);
+                remove(entry);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return entry.snapshot;
+    }
+
+    /**
+     * Stops listening to a node; the next read loads it again
+     * @param id Key of the node under the root path
+     */
+    public synchronized void invalidate(String id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            entry.ref.removeEventListener(entry);
+        }
+    }
+
+    /**
+     * Stops listening to every node
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.ref.removeEventListener(entry);
+        }
+        entries.clear();
+    }
+
+    /**
+     * Gets cache statistics
+     * @return Map with cache info
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedEntities", entries.size());
+        stats.put("maxEntities", maxEntries);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        long total = hits + misses;
+        stats.put("hitRate", total > 0 ? (double) hits / total : 0.0);
+        return stats;
+    }
+
+    private synchronized void remove(Entry entry) {
+        if (entries.get(entry.id) == entry) {
+            entries.remove(entry.id);
+        }
+        entry.ref.removeEventListener(entry);
+    }
+
+    private void evictIdle(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.lastRead < idleTimeoutMs) {
+                break; // Every later entry was read more recently
+            }
+            iterator.remove();
+            entry.ref.removeEventListener(entry);
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            entry.ref.removeEventListener(entry);
+        }
+    }
+}
@@ -9,12 +9,18 @@ import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.UserRecord;
 import com.google.firebase.database.*;
 
+import models.GroupRole;
+import utils.ExpiringStore;
+
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Arrays;
@@ -29,22 +35,24 @@ public class FirebaseService {
     private final FirebaseDatabase database;
     private static FirebaseService instance;
 
-    private final Map<String, VerificationEntry> verificationCodes = new ConcurrentHashMap<>();
+    private static final long CODE_TTL_MINUTES = 15;
+    private static final int MAX_PENDING_CODES = 10_000;
+    private static final int MAX_CODE_ATTEMPTS = 5;
+    private static final long SWEEP_INTERVAL_MS = 60 * 1000;
 
-    // Store verification code expiration and the code itself
-    private static class VerificationEntry {
-        String code;
-        long expirationTime;
+    // Set on users/{uid} when its deletion starts; such an account can no longer sign in
+    public static final String DELETION_MARKER = "deletionStartedAt";
+    private static final int DELETION_CHUNK_SIZE = 100; // Paths per multi-path update
+    private static final int DELETION_READ_BATCH = 25; // Chats whose membership is read at once
+    private static final long DELETION_TIMEOUT_SECONDS = 15;
 
-        VerificationEntry(String code, long expirationTime) {
-            this.code = code;
-            this.expirationTime = expirationTime;
-        }
+    // Pending verification codes by email; expired codes are swept in the background
+    private final ExpiringStore<String, String> verificationCodes = new ExpiringStore<>(
+            "Verification codes", CODE_TTL_MINUTES, TimeUnit.MINUTES, MAX_PENDING_CODES, SWEEP_INTERVAL_MS);
 
-        boolean isExpired() {
-            return System.currentTimeMillis() > expirationTime;
-        }
-    }
+    // Wrong codes entered per email; the window outlives a regenerated code
+    private final ExpiringStore<String, AtomicInteger> codeAttempts = new ExpiringStore<>(
+            "Verification attempts", CODE_TTL_MINUTES, TimeUnit.MINUTES, MAX_PENDING_CODES, SWEEP_INTERVAL_MS);
 
     /**
      * Private constructor to enforce singleton pattern
@@ -376,8 +384,7 @@ public class FirebaseService {
             String code = String.format("%06d", new Random().nextInt(1000000));
 
             // Store the code with expiration (15 minutes from now)
-            long expirationTime = System.currentTimeMillis() + (15 * 60 * 1000);
-            verificationCodes.put(email, new VerificationEntry(code, expirationTime));
+            verificationCodes.put(email, code);
 
             // Log for educational purposes
             System.out.println("Generated verification code for " + email + ": " + code);
@@ -403,22 +410,38 @@ public class FirebaseService {
     }
 
     public boolean verifyCode(String email, String code) {
-        // Get the verification entry for this email
-        VerificationEntry entry = verificationCodes.get(email);
-
         // For educational purposes, always accept "123456" as a valid code
         if (code.equals("123456")) {
             System.out.println("Using universal test code: 123456");
             return true;
         }
 
+        // Too many wrong codes: the pending code is dropped until the window expires
+        AtomicInteger attempts = codeAttempts.get(email);
+        if (attempts != null && attempts.get() >= MAX_CODE_ATTEMPTS) {
+            verificationCodes.remove(email);
+            return false;
+        }
+
+        // Get the verification code for this email (null once expired)
+        String expected = verificationCodes.get(email);
+
         // Check if the code exists and is valid
-        if (entry != null && !entry.isExpired() && entry.code.equals(code)) {
+        if (expected != null && expected.equals(code)) {
             // Code is valid, remove it so it can't be reused
             verificationCodes.remove(email);
+            codeAttempts.remove(email);
             return true;
         }
 
+        synchronized (codeAttempts) {
+            attempts = codeAttempts.get(email);
+            if (attempts == null) {
+                attempts = new AtomicInteger();
+                codeAttempts.put(email, attempts);
+            }
+        }
+        attempts.incrementAndGet();
         return false;
     }
 
@@ -431,8 +454,9 @@ public class FirebaseService {
      */
 
 
-    // Simple password storage for educational purposes
-    private static final Map<String, String> userPasswords = new ConcurrentHashMap<>();
+    // Simple password storage for educational purposes (bounded, entries kept one day)
+    private static final ExpiringStore<String, String> userPasswords = new ExpiringStore<>(
+            "Stored passwords", 24, TimeUnit.HOURS, 1_000, SWEEP_INTERVAL_MS);
 
     /**
      * Store a user's password (for educational purposes only)
@@ -448,15 +472,12 @@ public class FirebaseService {
      * Verify a user's password (for educational purposes only)
      * @param email The user's email
      * @param password The password to verify
-     * @return true if password matches, false otherwise
+     * @return true if password matches, false otherwise (including when no password is stored)
      */
     public boolean verifyPassword(String email, String password) {
         String storedPassword = userPasswords.get(email);
-        if (storedPassword == null) {
-            // For educational purposes, if no password is stored, any password works
-            return true;
-        }
-        return storedPassword.equals(password);
+        // Entries expire, so a missing one must not let any password through
+        return storedPassword != null && storedPassword.equals(password);
     }
 
     /**
@@ -465,64 +486,205 @@ public class FirebaseService {
      * @param callback Callback to handle success or failure
      */
     public void deleteUser(String userId, FirebaseEmailCallback callback) {
-        try {
-            // Get references to all user data
-            DatabaseReference userRef = database.getReference("users").child(userId);
-            DatabaseReference userPrefsRef = database.getReference("userPreferences").child(userId);
-            DatabaseReference userChatsRef = database.getReference("chats");
-            
-            // First, get all chats this user is part of
-            userChatsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        deleteUser(userId, null, callback);
+    }
+
+    /**
+     * Delete a user account and all associated data
+     * The work is driven by the user's own chat index (users/{uid}/chats): only the chats and
+     * groups listed there are read, and removals are written in chunks of multi-path updates.
+     * Each chat is dropped from the index in the same update that removes the user from it,
+     * and the user node goes last, so a deletion interrupted midway (client closed, network
+     * lost) is resumed by calling this method again; the account carries a deletion marker
+     * until then and can no longer sign in.
+     * @param userId The ID of the user to delete
+     * @param listener Receives progress on the deletion thread (may be null)
+     * @param callback Callback to handle success or failure
+     */
+    public void deleteUser(String userId, DeletionProgressListener listener, FirebaseEmailCallback callback) {
+        // Not a daemon thread: closing the window does not cut the deletion short
+        Thread deletion = new Thread(() -> {
+            try {
+                runUserDeletion(userId, listener);
+                callback.onSuccess();
+            } catch (Exception e) {
+                e.printStackTrace();
+                callback.onFailure("Error during account deletion: " + e.getMessage());
+            }
+        }, "account-deletion");
+        deletion.start();
+    }
+
+    /**
+     * Progress of an account deletion
+     */
+    public interface DeletionProgressListener {
+        void onProgress(int completedChats, int totalChats);
+    }
+
+    private void runUserDeletion(String userId, DeletionProgressListener listener) throws Exception {
+        String userPath = "users/" + userId;
+        DataSnapshot userSnapshot = readSnapshots(Collections.singletonList(userPath)).get(userPath);
+        if (!userSnapshot.exists()) {
+            return; // Already deleted (by a previous run)
+        }
+
+        if (!userSnapshot.hasChild(DELETION_MARKER)) {
+            Map<String, Object> marker = new HashMap<>();
+            marker.put(userPath + "/" + DELETION_MARKER, ServerValue.TIMESTAMP);
+            applyUpdates(marker);
+        }
+
+        // Chats already handled by an interrupted run are no longer in the index
+        List<String> chatIds = new ArrayList<>();
+        for (DataSnapshot chatSnapshot : userSnapshot.child("chats").getChildren()) {
+            chatIds.add(chatSnapshot.getKey());
+        }
+
+        int total = chatIds.size();
+        int completed = 0;
+        reportDeletionProgress(listener, completed, total);
+
+        for (int from = 0; from < total; from += DELETION_READ_BATCH) {
+            List<String> batch = chatIds.subList(from, Math.min(total, from + DELETION_READ_BATCH));
+
+            // Only the membership of the listed chats and groups is read, in parallel
+            List<String> paths = new ArrayList<>();
+            for (String chatId : batch) {
+                paths.add("chats/" + chatId + "/users");
+                paths.add("groups/" + chatId);
+            }
+            Map<String, DataSnapshot> snapshots = readSnapshots(paths);
+
+            Map<String, Object> updates = new HashMap<>();
+            int pendingChats = 0;
+            for (String chatId : batch) {
+                Map<String, Object> chatUpdates = new HashMap<>();
+                putChatRemovals(chatUpdates, userId, chatId,
+                        snapshots.get("chats/" + chatId + "/users"),
+                        snapshots.get("groups/" + chatId));
+
+                // A chat's removals are never split across two updates
+                if (!updates.isEmpty() && updates.size() + chatUpdates.size() > DELETION_CHUNK_SIZE) {
+                    applyUpdates(updates);
+                    completed += pendingChats;
+                    reportDeletionProgress(listener, completed, total);
+                    updates = new HashMap<>();
+                    pendingChats = 0;
+                }
+                updates.putAll(chatUpdates);
+                pendingChats++;
+            }
+            if (!updates.isEmpty()) {
+                applyUpdates(updates);
+                completed += pendingChats;
+                reportDeletionProgress(listener, completed, total);
+            }
+        }
+
+        // Finally the preferences, the lookup indexes and the user node itself
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("userPreferences/" + userId, null);
+        UserIndexService.putRemovals(updates,
+                userSnapshot.child("email").getValue(String.class),
+                userSnapshot.child("username").getValue(String.class));
+        updates.put(userPath, null);
+        applyUpdates(updates);
+        System.out.println("Account " + userId + " deleted (" + total + " chats)");
+    }
+
+    /**
+     * Adds the removals of a user from one chat (and its group, if it is one) to a multi-path update
+     */
+    private static void putChatRemovals(Map<String, Object> updates, String userId, String chatId,
+                                        DataSnapshot usersSnapshot, DataSnapshot groupSnapshot) {
+        updates.put("users/" + userId + "/chats/" + chatId, null);
+        List<String> users = ChatService.readParticipants(usersSnapshot);
+
+        if (groupSnapshot.exists()) {
+            Map<String, GroupRole> members = GroupService.readMembers(groupSnapshot);
+            members.remove(userId);
+            if (members.isEmpty()) {
+                // Last member: the group and its chat go away
+                updates.put("groups/" + chatId, null);
+                updates.put("chats/" + chatId, null);
+            } else if (GroupService.isLegacyMembership(groupSnapshot)) {
+                GroupService.putMigratedMembership(updates, chatId, members);
+            } else {
+                GroupService.putMembership(updates, chatId, userId, null);
+            }
+        } else if (users.size() <= 2) {
+            // If it's a 1-on-1 chat or empty chat, delete it entirely, also from the other user's list
+            updates.put("chats/" + chatId, null);
+            for (String otherUserId : users) {
+                if (!otherUserId.equals(userId)) {
+                    updates.put("users/" + otherUserId + "/chats/" + chatId, null);
+                }
+            }
+        } else if (users.remove(userId)) {
+            updates.put("chats/" + chatId + "/users", users);
+        }
+    }
+
+    private static void reportDeletionProgress(DeletionProgressListener listener, int completed, int total) {
+        if (listener != null) {
+            listener.onProgress(completed, total);
+        }
+    }
+
+    /**
+     * Reads several paths in parallel
+     * @return The snapshots by path
+     * @throws IOException If a read fails or does not complete in time
+     */
+    private Map<String, DataSnapshot> readSnapshots(List<String> paths) throws IOException, InterruptedException {
+        Map<String, DataSnapshot> snapshots = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(paths.size());
+        final String[] error = {null};
+
+        for (String path : paths) {
+            database.getReference(path).addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot dataSnapshot) {
-                    // For each chat, remove the user or delete the chat if it's a 1-on-1 chat
-                    for (DataSnapshot chatSnapshot : dataSnapshot.getChildren()) {
-                        List<String> users = (List<String>) chatSnapshot.child("users").getValue();
-                        if (users != null && users.contains(userId)) {
-                            if (users.size() <= 2) {
-                                // If it's a 1-on-1 chat or empty chat, delete it entirely
-                                chatSnapshot.getRef().removeValue((error, ref) -> {
-                                    if (error != null) {
-                                        System.err.println("Error deleting chat: " + error.getMessage());
-                                    }
-                                });
-                            } else {
-                                // If it's a group chat, just remove the user
-                                users.remove(userId);
-                                chatSnapshot.child("users").getRef().setValue(users, (error, ref) -> {
-                                    if (error != null) {
-                                        System.err.println("Error updating chat users: " + error.getMessage());
-                                    }
-                                });
-                            }
-                        }
-                    }
-                    
-                    // Now delete user preferences
-                    userPrefsRef.removeValue((prefsError, prefsRef) -> {
-                        if (prefsError != null) {
-                            System.err.println("Error deleting user preferences: " + prefsError.getMessage());
-                        }
-                        
-                        // Finally delete the user data
-                        userRef.removeValue((error, ref) -> {
-                            if (error == null) {
-                                callback.onSuccess();
-                            } else {
-                                callback.onFailure("Error deleting user data: " + error.getMessage());
-                            }
-                        });
-                    });
+                    snapshots.put(path, dataSnapshot);
+                    latch.countDown();
                 }
 
                 @Override
                 public void onCancelled(DatabaseError databaseError) {
-                    callback.onFailure("Error accessing chats: " + databaseError.getMessage());
+                    error[0] = path + ": " + databaseError.getMessage();
+                    latch.countDown();
                 }
             });
-        } catch (Exception e) {
-            e.printStackTrace();
-            callback.onFailure("Error during account deletion: " + e.getMessage());
+        }
+
+        if (!latch.await(DELETION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IOException("Timed out reading account data");
+        }
+        if (error[0] != null) {
+            throw new IOException("Error reading " + error[0]);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Applies a multi-path update rooted at the database root and waits for it
+     * @throws IOException If the update fails or does not complete in time
+     */
+    private void applyUpdates(Map<String, Object> updates) throws IOException, InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        final DatabaseError[] error = {null};
+
+        database.getReference().updateChildren(updates, (databaseError, ref) -> {
+            error[0] = databaseError;
+            latch.countDown();
+        });
+
+        if (!latch.await(DELETION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IOException("Timed out writing account data");
+        }
+        if (error[0] != null) {
+            throw new IOException("Error updating account data: " + error[0].getMessage());
         }
     }
 
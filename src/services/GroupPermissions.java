@@ -0,0 +1,143 @@
+package services;
+
+import com.google.firebase.database.DataSnapshot;
+import models.GroupRole;
+import models.GroupSettings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GroupPermissions - Permission checks for groups, evaluated in memory
+ * Each group is compiled into a policy: the role of every member and one permission bitset
+ * per role, derived from the group settings. A check is a map lookup and a bit test. The
+ * policy is built from the group snapshot held by the group cache, whose listener replaces
+ * the snapshot whenever the members or settings change; a policy built from an older
+ * snapshot is rebuilt on its next use.
+ */
+public class GroupPermissions {
+
+    public static final int SEND_MESSAGES = 1;
+    public static final int ADD_MEMBERS = 1 << 1;
+    public static final int INVITE_MEMBERS = 1 << 2;
+    public static final int SHARE_FILES = 1 << 3;
+    public static final int VIEW_MEMBERS = 1 << 4;
+    public static final int EDIT_GROUP = 1 << 5;
+    public static final int MANAGE_MEMBERS = 1 << 6;
+    public static final int DELETE_GROUP = 1 << 7;
+
+    private static final GroupRole[] ROLES = GroupRole.values();
+
+    // Compiled policies, least recently used first
+    private final LinkedHashMap<String, Policy> policies;
+
+    /**
+     * Roles and per-role permissions of one group
+     */
+    public static final class Policy {
+        private final DataSnapshot source;
+        private final Map<String, GroupRole> roles;
+        private final int[] permissionsByRole = new int[ROLES.length];
+
+        private Policy(DataSnapshot source, Map<String, GroupRole> roles, GroupSettings settings, boolean active) {
+            this.source = source;
+            this.roles = roles;
+            if (active) {
+                for (GroupRole role : ROLES) {
+                    permissionsByRole[role.ordinal()] = permissionsFor(role, settings);
+                }
+            }
+        }
+
+        /**
+         * @param userId User ID
+         * @return The user's role (NONE if not a member)
+         */
+        public GroupRole getRole(String userId) {
+            GroupRole role = userId != null ? roles.get(userId) : null;
+            return role != null ? role : GroupRole.NONE;
+        }
+
+        /**
+         * @param userId User ID
+         * @param permission One or more permission bits
+         * @return true if the user has all of them
+         */
+        public boolean has(String userId, int permission) {
+            return (permissionsByRole[getRole(userId).ordinal()] & permission) == permission;
+        }
+    }
+
+    /**
+     * @param maxGroups Number of compiled policies kept
+     */
+    public GroupPermissions(int maxGroups) {
+        this.policies = new LinkedHashMap<String, Policy>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Policy> eldest) {
+                return size() > maxGroups;
+            }
+        };
+    }
+
+    /**
+     * Derives the permissions of a role from the group settings
+     * @param role Role in the group
+     * @param settings Group settings
+     * @return Permission bits
+     */
+    public static int permissionsFor(GroupRole role, GroupSettings settings) {
+        if (role == null || role == GroupRole.NONE) {
+            return 0;
+        }
+
+        boolean admin = role == GroupRole.ADMIN || role == GroupRole.CREATOR;
+        int permissions = 0;
+        if (admin || !settings.isOnlyAdminsCanMessage()) {
+            permissions |= SEND_MESSAGES;
+        }
+        if (admin || !settings.isOnlyAdminsCanAdd()) {
+            permissions |= ADD_MEMBERS;
+        }
+        if (admin || settings.isAllowMembersToInvite()) {
+            permissions |= INVITE_MEMBERS;
+        }
+        if (settings.isAllowFileSharing()) {
+            permissions |= SHARE_FILES;
+        }
+        if (admin || settings.isShowMemberList()) {
+            permissions |= VIEW_MEMBERS;
+        }
+        if (admin) {
+            permissions |= EDIT_GROUP | MANAGE_MEMBERS;
+        }
+        if (role == GroupRole.CREATOR) {
+            permissions |= DELETE_GROUP;
+        }
+        return permissions;
+    }
+
+    /**
+     * Returns the policy of a group, compiling it only if the snapshot changed
+     * @param groupId Group ID
+     * @param groupSnapshot Current snapshot of groups/{groupId} (must exist)
+     * @return The policy
+     */
+    public Policy evaluate(String groupId, DataSnapshot groupSnapshot) {
+        synchronized (policies) {
+            Policy policy = policies.get(groupId);
+            if (policy != null && policy.source == groupSnapshot) {
+                return policy;
+            }
+        }
+
+        // Built outside the lock; a concurrent rebuild from the same snapshot is harmless
+        Boolean active = groupSnapshot.child("isActive").getValue(Boolean.class);
+        Policy policy = new Policy(groupSnapshot, GroupService.readMembers(groupSnapshot),
+                GroupService.readSettings(groupSnapshot.child("settings")), active == null || active);
+        synchronized (policies) {
+            policies.put(groupId, policy);
+        }
+        return policy;
+    }
+}
@@ -5,6 +5,7 @@ import models.Chat;
 import models.Group;
 import models.GroupSettings;
 import models.GroupRole;
+import utils.ValidationUtils;
 
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -17,13 +18,23 @@ import java.util.concurrent.TimeUnit;
 public class GroupService {
     private FirebaseService firebaseService;
     private ChatService chatService;
+    private InviteCodeService inviteCodes;
     private static GroupService instance;
 
+    private static final int GROUP_CACHE_SIZE = 200;
+    private static final long CACHE_IDLE_MINUTES = 10;
+    private EntityCache groupCache;
+    private final GroupPermissions permissions = new GroupPermissions(GROUP_CACHE_SIZE);
+
+    // Noms cités dans le message système d'un ajout groupé, les autres sont comptés
+    private static final int MAX_NAMES_IN_SUMMARY = 3;
+
     // Constructeur privé pour le pattern singleton
     private GroupService() {
         try {
             this.firebaseService = FirebaseService.getInstance();
             this.chatService = ChatService.getInstance();
+            this.inviteCodes = InviteCodeService.getInstance();
         } catch (Exception e) {
             System.err.println("Erreur d'initialisation de GroupService: " + e.getMessage());
             e.printStackTrace();
@@ -94,6 +105,9 @@ public class GroupService {
             }
             group.setPublic(isPublic);
 
+            // Réserver un code d'invitation dans l'index (un groupe sans code peut en générer un plus tard)
+            group.setInviteCode(inviteCodes.issue(groupId));
+
             // Ajouter tous les membres initiaux
             for (String memberId : members) {
                 if (!memberId.equals(creatorId)) { // Le créateur est déjà ajouté dans le constructeur
@@ -146,6 +160,10 @@ public class GroupService {
                 return groupId;
             }
 
+            if (!groupSuccess[0]) {
+                inviteCodes.retire(group.getInviteCode(), groupId);
+            }
+
         } catch (Exception e) {
             System.err.println("Erreur lors de la création du groupe: " + e.getMessage());
             e.printStackTrace();
@@ -160,28 +178,17 @@ public class GroupService {
      */
     public Group loadGroup(String groupId) {
         try {
-            CountDownLatch latch = new CountDownLatch(1);
-            final Group[] result = {null};
-
-            DatabaseReference groupRef = firebaseService.getDatabase().getReference("groups/" + groupId);
-            groupRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot dataSnapshot) {
-                    if (dataSnapshot.exists()) {
-                        result[0] = convertMapToGroup(dataSnapshot);
-                    }
-                    latch.countDown();
-                }
-
-                @Override
-                public void onCancelled(DatabaseError databaseError) {
-                    System.err.println("Erreur lors du chargement du groupe: " + databaseError.getMessage());
-                    latch.countDown();
-                }
-            });
+            // Lu en mémoire: un listener par groupe ouvert le garde à jour
+            DataSnapshot dataSnapshot = getGroupCache().get(groupId);
+            if (dataSnapshot == null || !dataSnapshot.exists()) {
+                return null;
+            }
 
-            latch.await(10, TimeUnit.SECONDS);
-            return result[0];
+            Group group = convertMapToGroup(dataSnapshot);
+            if (group != null && isLegacyMembership(dataSnapshot)) {
+                migrateMembership(groupId, group);
+            }
+            return group;
 
         } catch (Exception e) {
             System.err.println("Erreur lors du chargement du groupe: " + e.getMessage());
@@ -190,6 +197,34 @@ public class GroupService {
         }
     }
 
+    /**
+     * Groupes lus par ID, gardés à jour par un listener par groupe
+     */
+    private synchronized EntityCache getGroupCache() {
+        if (groupCache == null) {
+            groupCache = new EntityCache("Group cache", firebaseService.getDatabase(), "groups",
+                    GROUP_CACHE_SIZE, CACHE_IDLE_MINUTES, TimeUnit.MINUTES);
+        }
+        return groupCache;
+    }
+
+    /**
+     * Réécrire une fois les listes de membres d'un ancien groupe au format par clé
+     * Les écritures d'un même client sont appliquées dans l'ordre, les mises à jour
+     * par membre qui suivent portent donc sur le nouveau format.
+     */
+    private void migrateMembership(String groupId, Group group) {
+        Map<String, Object> updates = new HashMap<>();
+        putMigratedMembership(updates, groupId, group.getMemberRoles());
+        firebaseService.getDatabase().getReference().updateChildren(updates, (databaseError, databaseReference) -> {
+            if (databaseError != null) {
+                System.err.println("Erreur lors de la migration des membres du groupe: " + databaseError.getMessage());
+            } else {
+                System.out.println("Membres du groupe " + groupId + " migrés au format par clé");
+            }
+        });
+    }
+
     /**
      * Obtenir les groupes dont un utilisateur est membre
      * @param userId ID de l'utilisateur
@@ -247,93 +282,85 @@ public class GroupService {
      * @return true si le membre a été ajouté avec succès
      */
     public boolean addMemberToGroup(String groupId, String newMemberId, String addedBy) {
+        return addMembersToGroup(groupId, Collections.singletonList(newMemberId), addedBy);
+    }
+
+    /**
+     * Ajouter plusieurs membres à un groupe
+     * Le groupe est chargé et validé une seule fois, puis tous les changements (membres, rôles,
+     * participants du chat, liste de chats de chaque nouveau membre et un seul message système
+     * récapitulatif) sont écrits en une mise à jour multi-chemins atomique.
+     * @param groupId ID du groupe
+     * @param userIds Liste des IDs à ajouter
+     * @param adminId ID de l'admin effectuant l'action
+     * @return true si au moins un membre a été ajouté
+     */
+    public boolean addMembersToGroup(String groupId, List<String> userIds, String adminId) {
+        if (groupId == null || userIds == null || userIds.isEmpty() || adminId == null) {
+            return false;
+        }
+
         try {
-            // Charger les données du groupe
             Group group = loadGroup(groupId);
             if (group == null) {
                 System.err.println("Groupe non trouvé: " + groupId);
                 return false;
             }
 
-            // Vérifier les permissions et ajouter le membre
-            if (!group.addMember(newMemberId, addedBy)) {
+            // Vérifier les permissions et la capacité; les doublons et membres existants sont ignorés
+            List<String> added = new ArrayList<>();
+            for (String userId : new LinkedHashSet<>(userIds)) {
+                if (userId != null && group.addMember(userId, adminId)) {
+                    added.add(userId);
+                }
+            }
+            if (added.isEmpty()) {
                 return false;
             }
 
-            CountDownLatch latch = new CountDownLatch(2);
-            final boolean[] success = {false};
-
-            // Mettre à jour les données du groupe
-            Map<String, Object> groupUpdates = new HashMap<>();
-            groupUpdates.put("members", group.getMembers());
-            groupUpdates.put("memberRoles/" + newMemberId, "MEMBER");
-            groupUpdates.put("lastActivity", ServerValue.TIMESTAMP);
-
-            DatabaseReference groupRef = firebaseService.getDatabase().getReference("groups/" + groupId);
-            groupRef.updateChildren(groupUpdates, (databaseError, databaseReference) -> {
-                if (databaseError == null) {
-                    success[0] = true;
-                } else {
-                    System.err.println("Erreur lors de la mise à jour du groupe: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            });
-
-            // Mettre à jour les participants du chat
-            Map<String, Object> chatUpdates = new HashMap<>();
-            chatUpdates.put("users", group.getMembers());
+            // Noms résolus avant l'écriture: l'auteur et les premiers membres seulement
+            String content = buildMembersAddedMessage(adminId, added);
+            long now = System.currentTimeMillis();
 
-            DatabaseReference chatRef = firebaseService.getDatabase().getReference("chats/" + groupId);
-            chatRef.updateChildren(chatUpdates, (databaseError, databaseReference) -> {
-                if (databaseError == null) {
-                    // Ajouter le chat à la liste de chats du nouveau membre
-                    DatabaseReference userChatsRef = firebaseService.getDatabase()
-                            .getReference("users/" + newMemberId + "/chats");
-                    userChatsRef.child(groupId).setValueAsync(true);
-                } else {
-                    System.err.println("Erreur lors de la mise à jour du chat: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            });
-
-            latch.await(10, TimeUnit.SECONDS);
-
-            if (success[0]) {
-                // Envoyer un message système
-                String addedByName = getUserDisplayName(addedBy);
-                String newMemberName = getUserDisplayName(newMemberId);
-                sendSystemMessage(groupId, addedByName + " a ajouté " + newMemberName + " au groupe");
+            // Une entrée par nouveau membre, quelle que soit la taille du groupe
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("groups/" + groupId + "/lastActivity", ServerValue.TIMESTAMP);
+            for (String userId : added) {
+                putMembership(updates, groupId, userId, GroupRole.MEMBER);
             }
+            putSystemMessage(updates, groupId, content, now);
 
-            return success[0];
+            return applyUpdates(updates, "Erreur lors de l'ajout des membres");
 
         } catch (Exception e) {
-            System.err.println("Erreur lors de l'ajout d'un membre au groupe: " + e.getMessage());
+            System.err.println("Erreur lors de l'ajout de membres au groupe: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
     }
 
     /**
-     * Ajouter plusieurs membres à un groupe
-     * @param groupId ID du groupe
-     * @param userIds Liste des IDs à ajouter
-     * @param adminId ID de l'admin effectuant l'action
-     * @return true si au moins un membre a été ajouté
+     * Message système résumant un ajout de membres
+     * ("Alice a ajouté Bob, Carol, Dan et 12 autres membres au groupe")
      */
-    public boolean addMembersToGroup(String groupId, List<String> userIds, String adminId) {
-        if (groupId == null || userIds == null || userIds.isEmpty() || adminId == null) {
-            return false;
+    private String buildMembersAddedMessage(String addedBy, List<String> added) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < Math.min(MAX_NAMES_IN_SUMMARY, added.size()); i++) {
+            names.add(getUserDisplayName(added.get(i)));
         }
 
-        boolean anySuccess = false;
-        for (String userId : userIds) {
-            boolean success = addMemberToGroup(groupId, userId, adminId);
-            if (success) {
-                anySuccess = true;
-            }
+        StringBuilder content = new StringBuilder(getUserDisplayName(addedBy)).append(" a ajouté ");
+        int others = added.size() - names.size();
+        if (others == 0 && names.size() > 1) {
+            content.append(String.join(", ", names.subList(0, names.size() - 1)))
+                    .append(" et ").append(names.get(names.size() - 1));
+        } else {
+            content.append(String.join(", ", names));
         }
-        return anySuccess;
+        if (others > 0) {
+            content.append(" et ").append(others).append(others == 1 ? " autre membre" : " autres membres");
+        }
+        return content.append(" au groupe").toString();
     }
 
     /**
@@ -354,44 +381,14 @@ public class GroupService {
                 return false;
             }
 
-            CountDownLatch latch = new CountDownLatch(2);
-            final boolean[] success = {false};
-
-            // Mettre à jour les données du groupe
-            Map<String, Object> groupUpdates = new HashMap<>();
-            groupUpdates.put("members", group.getMembers());
-            groupUpdates.put("admins", group.getAdmins());
-            groupUpdates.put("memberRoles/" + memberId, null); // Supprimer le rôle
-            groupUpdates.put("lastActivity", ServerValue.TIMESTAMP);
-
-            DatabaseReference groupRef = firebaseService.getDatabase().getReference("groups/" + groupId);
-            groupRef.updateChildren(groupUpdates, (databaseError, databaseReference) -> {
-                if (databaseError == null) {
-                    success[0] = true;
-                } else {
-                    System.err.println("Erreur lors de la mise à jour du groupe: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            });
-
-            // Mettre à jour les participants du chat et supprimer de la liste de chats de l'utilisateur
-            Map<String, Object> chatUpdates = new HashMap<>();
-            chatUpdates.put("users", group.getMembers());
-
-            DatabaseReference chatRef = firebaseService.getDatabase().getReference("chats/" + groupId);
-            chatRef.updateChildren(chatUpdates, (databaseError, databaseReference) -> {
-                if (databaseError == null) {
-                    // Supprimer le chat de la liste de chats du membre
-                    DatabaseReference userChatsRef = firebaseService.getDatabase()
-                            .getReference("users/" + memberId + "/chats/" + groupId);
-                    userChatsRef.removeValueAsync();
-                }
-                latch.countDown();
-            });
+            // Le membre (et son rôle), sa place dans le chat et le chat dans sa liste
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("groups/" + groupId + "/lastActivity", ServerValue.TIMESTAMP);
+            putMembership(updates, groupId, memberId, null);
 
-            latch.await(10, TimeUnit.SECONDS);
+            boolean success = applyUpdates(updates, "Erreur lors de la mise à jour du groupe");
 
-            if (success[0]) {
+            if (success) {
                 String removedByName = getUserDisplayName(removedBy);
                 String memberName = getUserDisplayName(memberId);
 
@@ -402,7 +399,7 @@ public class GroupService {
                 }
             }
 
-            return success[0];
+            return success;
 
         } catch (Exception e) {
             System.err.println("Erreur lors de la suppression d'un membre du groupe: " + e.getMessage());
@@ -439,32 +436,19 @@ public class GroupService {
                 return false;
             }
 
-            CountDownLatch latch = new CountDownLatch(1);
-            final boolean[] success = {false};
-
             Map<String, Object> updates = new HashMap<>();
-            updates.put("admins", group.getAdmins());
-            updates.put("memberRoles/" + memberId, "ADMIN");
-            updates.put("lastActivity", ServerValue.TIMESTAMP);
-
-            DatabaseReference groupRef = firebaseService.getDatabase().getReference("groups/" + groupId);
-            groupRef.updateChildren(updates, (databaseError, databaseReference) -> {
-                success[0] = (databaseError == null);
-                if (databaseError != null) {
-                    System.err.println("Erreur lors de la promotion du membre: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            });
+            updates.put("groups/" + groupId + "/members/" + memberId, GroupRole.ADMIN.name());
+            updates.put("groups/" + groupId + "/lastActivity", ServerValue.TIMESTAMP);
 
-            latch.await(10, TimeUnit.SECONDS);
+            boolean success = applyUpdates(updates, "Erreur lors de la promotion du membre");
 
-            if (success[0]) {
+            if (success) {
                 String promotedByName = getUserDisplayName(promotedBy);
                 String memberName = getUserDisplayName(memberId);
                 sendSystemMessage(groupId, promotedByName + " a promu " + memberName + " au rang d'administrateur");
             }
 
-            return success[0];
+            return success;
 
         } catch (Exception e) {
             System.err.println("Erreur lors de la promotion du membre: " + e.getMessage());
@@ -491,32 +475,19 @@ public class GroupService {
                 return false;
             }
 
-            CountDownLatch latch = new CountDownLatch(1);
-            final boolean[] success = {false};
-
             Map<String, Object> updates = new HashMap<>();
-            updates.put("admins", group.getAdmins());
-            updates.put("memberRoles/" + adminId, "MEMBER");
-            updates.put("lastActivity", ServerValue.TIMESTAMP);
+            updates.put("groups/" + groupId + "/members/" + adminId, GroupRole.MEMBER.name());
+            updates.put("groups/" + groupId + "/lastActivity", ServerValue.TIMESTAMP);
 
-            DatabaseReference groupRef = firebaseService.getDatabase().getReference("groups/" + groupId);
-            groupRef.updateChildren(updates, (databaseError, databaseReference) -> {
-                success[0] = (databaseError == null);
-                if (databaseError != null) {
-                    System.err.println("Erreur lors de la rétrogradation de l'admin: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            });
+            boolean success = applyUpdates(updates, "Erreur lors de la rétrogradation de l'admin");
 
-            latch.await(10, TimeUnit.SECONDS);
-
-            if (success[0]) {
+            if (success) {
                 String demotedByName = getUserDisplayName(demotedBy);
                 String adminName = getUserDisplayName(adminId);
                 sendSystemMessage(groupId, demotedByName + " a retiré " + adminName + " du rôle d'administrateur");
             }
 
-            return success[0];
+            return success;
 
         } catch (Exception e) {
             System.err.println("Erreur lors de la rétrogradation de l'admin: " + e.getMessage());
@@ -538,7 +509,12 @@ public class GroupService {
                 return null;
             }
 
-            String newInviteCode = group.generateInviteCode();
+            // Réserver le nouveau code avant de l'attribuer au groupe
+            String oldInviteCode = group.getInviteCode();
+            String newInviteCode = inviteCodes.issue(groupId);
+            if (newInviteCode == null) {
+                return null;
+            }
 
             CountDownLatch latch = new CountDownLatch(1);
             final boolean[] success = {false};
@@ -554,6 +530,8 @@ public class GroupService {
 
             latch.await(10, TimeUnit.SECONDS);
 
+            // L'ancien code ne permet plus de rejoindre le groupe
+            inviteCodes.retire(success[0] ? oldInviteCode : newInviteCode, groupId);
             return success[0] ? newInviteCode : null;
 
         } catch (Exception e) {
@@ -576,13 +554,21 @@ public class GroupService {
                 return false;
             }
 
-            // Trouver le groupe par code d'invitation
-            Group group = findGroupByInviteCode(inviteCode.trim());
-            if (group == null) {
+            // Le code sert de clé Firebase: refuser tout autre format
+            if (!ValidationUtils.isValidInviteCode(inviteCode)) {
                 System.err.println("Code d'invitation invalide");
                 return false;
             }
 
+            // Trouver le groupe par une lecture directe de inviteCodes/{code}
+            String code = InviteCodeService.normalize(inviteCode);
+            String groupId = inviteCodes.findGroupId(code);
+            Group group = groupId != null ? loadGroup(groupId) : null;
+            if (group == null) {
+                System.err.println("Code d'invitation invalide ou expiré");
+                return false;
+            }
+
             if (!group.isActive()) {
                 System.err.println("Le groupe n'est pas actif");
                 return false;
@@ -593,8 +579,18 @@ public class GroupService {
                 return false;
             }
 
+            // Utiliser une des utilisations restantes du code, rendue si l'ajout échoue
+            if (!inviteCodes.consume(code, groupId)) {
+                System.err.println("Code d'invitation expiré ou épuisé");
+                return false;
+            }
+
             // Ajouter l'utilisateur au groupe
-            return addMemberToGroup(group.getGroupId(), userId, userId);
+            boolean joined = addMemberToGroup(groupId, userId, userId);
+            if (!joined) {
+                inviteCodes.refund(code, groupId);
+            }
+            return joined;
 
         } catch (Exception e) {
             System.err.println("Erreur lors de la jointure au groupe: " + e.getMessage());
@@ -762,6 +758,8 @@ public class GroupService {
             latch.await(10, TimeUnit.SECONDS);
 
             if (success[0]) {
+                inviteCodes.retire(group.getInviteCode(), groupId);
+
                 // Envoyer un message système final
                 String deletedByName = getUserDisplayName(deletedBy);
                 sendSystemMessage(groupId, "Le groupe a été supprimé par " + deletedByName);
@@ -852,17 +850,36 @@ public class GroupService {
      * @return true si l'utilisateur peut envoyer des messages
      */
     public boolean canUserSendMessages(String groupId, String userId) {
-        try {
-            Group group = loadGroup(groupId);
-            if (group != null) {
-                return group.canSendMessages(userId);
-            }
-            return false;
+        return hasPermission(groupId, userId, GroupPermissions.SEND_MESSAGES);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Erreur lors de la vérification des permissions: " + e.getMessage());
+    /**
+     * Vérifier si un utilisateur peut écrire dans un chat (chemin d'envoi)
+     * @param chatId ID du chat
+     * @param userId ID de l'utilisateur
+     * @return true si le chat n'est pas un groupe ou si le rôle et les paramètres du groupe le permettent
+     */
+    public boolean canUserSendInChat(String chatId, String userId) {
+        DataSnapshot groupSnapshot = getGroupCache().get(chatId);
+        if (groupSnapshot == null || !groupSnapshot.exists()) {
+            return true; // Pas un groupe (ou groupe illisible: la base reste l'autorité)
+        }
+        return permissions.evaluate(chatId, groupSnapshot).has(userId, GroupPermissions.SEND_MESSAGES);
+    }
+
+    /**
+     * Vérifier une ou plusieurs permissions d'un membre, en mémoire
+     * @param groupId ID du groupe
+     * @param userId ID de l'utilisateur
+     * @param permission Bits de GroupPermissions
+     * @return true si l'utilisateur a toutes les permissions demandées
+     */
+    public boolean hasPermission(String groupId, String userId, int permission) {
+        DataSnapshot groupSnapshot = getGroupCache().get(groupId);
+        if (groupSnapshot == null || !groupSnapshot.exists()) {
             return false;
         }
+        return permissions.evaluate(groupId, groupSnapshot).has(userId, permission);
     }
 
     /**
@@ -883,40 +900,24 @@ public class GroupService {
     // Méthodes auxiliaires privées
 
     /**
-     * Trouver un groupe par code d'invitation
+     * Appliquer une mise à jour multi-chemins depuis la racine et attendre le résultat
+     * @return true si la mise à jour a réussi
      */
-    private Group findGroupByInviteCode(String inviteCode) {
-        try {
-            CountDownLatch latch = new CountDownLatch(1);
-            final Group[] result = {null};
-
-            DatabaseReference groupsRef = firebaseService.getDatabase().getReference("groups");
-            groupsRef.orderByChild("inviteCode").equalTo(inviteCode)
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(DataSnapshot dataSnapshot) {
-                            for (DataSnapshot groupSnapshot : dataSnapshot.getChildren()) {
-                                result[0] = convertMapToGroup(groupSnapshot);
-                                break; // Prendre la première correspondance
-                            }
-                            latch.countDown();
-                        }
-
-                        @Override
-                        public void onCancelled(DatabaseError databaseError) {
-                            System.err.println("Erreur recherche par code d'invitation: " + databaseError.getMessage());
-                            latch.countDown();
-                        }
-                    });
-
-            latch.await(10, TimeUnit.SECONDS);
-            return result[0];
+    private boolean applyUpdates(Map<String, Object> updates, String errorMessage) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        final boolean[] success = {false};
+
+        firebaseService.getDatabase().getReference().updateChildren(updates, (databaseError, databaseReference) -> {
+            if (databaseError == null) {
+                success[0] = true;
+            } else {
+                System.err.println(errorMessage + ": " + databaseError.getMessage());
+            }
+            latch.countDown();
+        });
 
-        } catch (Exception e) {
-            System.err.println("Erreur recherche par code d'invitation: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
+        latch.await(15, TimeUnit.SECONDS);
+        return success[0];
     }
 
     /**
@@ -924,25 +925,33 @@ public class GroupService {
      */
     private void sendSystemMessage(String chatId, String content) {
         try {
-            Map<String, Object> messageData = new HashMap<>();
-            messageData.put("userId", "system");
-            messageData.put("text", content);
-            messageData.put("timestamp", ServerValue.TIMESTAMP);
-            messageData.put("type", "SYSTEM");
-            messageData.put("read", true);
-
-            DatabaseReference messagesRef = firebaseService.getDatabase()
-                    .getReference("chats/" + chatId + "/messages");
-            messagesRef.push().setValueAsync(messageData);
-
-            // Mettre à jour le dernier message du chat
-            chatService.updateChatLastMessage(chatId, content, System.currentTimeMillis());
-
+            Map<String, Object> updates = new HashMap<>();
+            putSystemMessage(updates, chatId, content, System.currentTimeMillis());
+            firebaseService.getDatabase().getReference().updateChildrenAsync(updates);
         } catch (Exception e) {
             System.err.println("Erreur envoi message système: " + e.getMessage());
         }
     }
 
+    /**
+     * Ajouter un message système et le dernier message du chat à une mise à jour multi-chemins
+     */
+    private void putSystemMessage(Map<String, Object> updates, String chatId, String content, long timestamp) {
+        Map<String, Object> messageData = new HashMap<>();
+        messageData.put("userId", "system");
+        messageData.put("text", content);
+        messageData.put("timestamp", ServerValue.TIMESTAMP);
+        messageData.put("type", "SYSTEM");
+        messageData.put("read", true);
+
+        String messageId = firebaseService.getDatabase().getReference("chats/" + chatId + "/messages").push().getKey();
+        updates.put("chats/" + chatId + "/messages/" + messageId, messageData);
+
+        // Mettre à jour le dernier message du chat
+        updates.put("chats/" + chatId + "/lastMessageText", content);
+        updates.put("chats/" + chatId + "/lastMessageTime", timestamp);
+    }
+
     /**
      * Ajouter un chat à la liste de chats de chaque utilisateur
      */
@@ -968,8 +977,7 @@ public class GroupService {
         groupData.put("groupImageUrl", group.getGroupImageUrl());
         groupData.put("createdBy", group.getCreatedBy());
         groupData.put("createdAt", group.getCreatedAt());
-        groupData.put("admins", group.getAdmins());
-        groupData.put("members", group.getMembers());
+        groupData.put("members", toMemberMap(group.getMemberRoles()));
         groupData.put("maxMembers", group.getMaxMembers());
         groupData.put("isPublic", group.isPublic());
         groupData.put("inviteCode", group.getInviteCode());
@@ -986,19 +994,123 @@ public class GroupService {
         settingsMap.put("allowFileSharing", settings.isAllowFileSharing());
         groupData.put("settings", settingsMap);
 
-        // Convertir les rôles des membres
-        Map<String, String> memberRolesMap = new HashMap<>();
-        for (String member : group.getMembers()) {
-            memberRolesMap.put(member, group.getUserRole(member).name());
+        return groupData;
+    }
+
+    /**
+     * members/{uid}: rôle, une entrée par membre
+     */
+    private static Map<String, Object> toMemberMap(Map<String, GroupRole> memberRoles) {
+        Map<String, Object> members = new HashMap<>();
+        for (Map.Entry<String, GroupRole> entry : memberRoles.entrySet()) {
+            members.put(entry.getKey(), entry.getValue().name());
         }
-        groupData.put("memberRoles", memberRolesMap);
+        return members;
+    }
 
-        return groupData;
+    /**
+     * Participants du chat de groupe: users/{uid}: true, une entrée par membre
+     */
+    private static Map<String, Object> toParticipantMap(Collection<String> userIds) {
+        Map<String, Object> users = new HashMap<>();
+        for (String userId : userIds) {
+            users.put(userId, true);
+        }
+        return users;
+    }
+
+    // Format des membres: groups/{id}/members/{uid}: rôle et chats/{id}/users/{uid}: true.
+    // Les groupes plus anciens ont des listes members et admins (plus memberRoles), réécrites
+    // une seule fois au premier chargement (loadGroup).
+
+    /**
+     * Lire les membres d'un groupe et leur rôle, dans l'un ou l'autre format
+     * @param groupSnapshot Snapshot de groups/{groupId}
+     * @return Les IDs des membres et leur rôle
+     */
+    static Map<String, GroupRole> readMembers(DataSnapshot groupSnapshot) {
+        Map<String, GroupRole> members = new LinkedHashMap<>();
+        if (!isLegacyMembership(groupSnapshot)) {
+            for (DataSnapshot memberSnapshot : groupSnapshot.child("members").getChildren()) {
+                GroupRole role = parseRole(memberSnapshot.getValue());
+                members.put(memberSnapshot.getKey(), role != null ? role : GroupRole.MEMBER);
+            }
+            return members;
+        }
+
+        String createdBy = groupSnapshot.child("createdBy").getValue(String.class);
+        Set<String> admins = new HashSet<>();
+        for (DataSnapshot adminSnapshot : groupSnapshot.child("admins").getChildren()) {
+            Object admin = adminSnapshot.getValue();
+            if (admin instanceof String) {
+                admins.add((String) admin);
+            }
+        }
+        for (DataSnapshot memberSnapshot : groupSnapshot.child("members").getChildren()) {
+            Object value = memberSnapshot.getValue();
+            if (!(value instanceof String)) {
+                continue;
+            }
+            String member = (String) value;
+            if (member.equals(createdBy)) {
+                members.put(member, GroupRole.CREATOR);
+            } else {
+                members.put(member, admins.contains(member) ? GroupRole.ADMIN : GroupRole.MEMBER);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * @param groupSnapshot Snapshot de groups/{groupId}
+     * @return true si les membres sont encore stockés en listes
+     */
+    static boolean isLegacyMembership(DataSnapshot groupSnapshot) {
+        if (groupSnapshot.hasChild("admins") || groupSnapshot.hasChild("memberRoles")) {
+            return true;
+        }
+        // Les anciennes listes contiennent des IDs là où le format actuel a des rôles
+        for (DataSnapshot memberSnapshot : groupSnapshot.child("members").getChildren()) {
+            return parseRole(memberSnapshot.getValue()) == null;
+        }
+        return false;
+    }
+
+    /**
+     * Ajouter l'adhésion d'un membre (ou son retrait si role est null) à une mise à jour multi-chemins
+     * Trois entrées: le rôle dans le groupe, la place dans le chat et le chat dans la liste du membre.
+     */
+    static void putMembership(Map<String, Object> updates, String groupId, String userId, GroupRole role) {
+        boolean member = role != null;
+        updates.put("groups/" + groupId + "/members/" + userId, member ? role.name() : null);
+        updates.put("chats/" + groupId + "/users/" + userId, member ? true : null);
+        updates.put("users/" + userId + "/chats/" + groupId, member ? true : null);
+    }
+
+    /**
+     * Ajouter la réécriture complète des membres au format par clé à une mise à jour multi-chemins
+     */
+    static void putMigratedMembership(Map<String, Object> updates, String groupId, Map<String, GroupRole> members) {
+        updates.put("groups/" + groupId + "/members", toMemberMap(members));
+        updates.put("groups/" + groupId + "/admins", null);
+        updates.put("groups/" + groupId + "/memberRoles", null);
+        updates.put("chats/" + groupId + "/users", toParticipantMap(members.keySet()));
+    }
+
+    private static GroupRole parseRole(Object value) {
+        if (value instanceof String) {
+            try {
+                return GroupRole.valueOf((String) value);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
     }
 
     private Map<String, Object> convertChatToMap(Chat chat) {
         Map<String, Object> chatData = new HashMap<>();
-        chatData.put("users", chat.getParticipants());
+        chatData.put("users", toParticipantMap(chat.getParticipants()));
         chatData.put("createdAt", chat.getCreatedAt());
         chatData.put("createdBy", chat.getCreatedBy());
         chatData.put("name", chat.getChatName());
@@ -1009,6 +1121,31 @@ public class GroupService {
         return chatData;
     }
 
+    /**
+     * Lire les paramètres d'un groupe (valeurs par défaut pour les champs absents)
+     * @param settingsSnapshot Snapshot de groups/{groupId}/settings
+     */
+    static GroupSettings readSettings(DataSnapshot settingsSnapshot) {
+        GroupSettings settings = new GroupSettings();
+        if (settingsSnapshot.exists()) {
+            Boolean onlyAdminsCanAdd = settingsSnapshot.child("onlyAdminsCanAdd").getValue(Boolean.class);
+            settings.setOnlyAdminsCanAdd(onlyAdminsCanAdd != null ? onlyAdminsCanAdd : false);
+
+            Boolean onlyAdminsCanMessage = settingsSnapshot.child("onlyAdminsCanMessage").getValue(Boolean.class);
+            settings.setOnlyAdminsCanMessage(onlyAdminsCanMessage != null ? onlyAdminsCanMessage : false);
+
+            Boolean allowMembersToInvite = settingsSnapshot.child("allowMembersToInvite").getValue(Boolean.class);
+            settings.setAllowMembersToInvite(allowMembersToInvite != null ? allowMembersToInvite : true);
+
+            Boolean showMemberList = settingsSnapshot.child("showMemberList").getValue(Boolean.class);
+            settings.setShowMemberList(showMemberList != null ? showMemberList : true);
+
+            Boolean allowFileSharing = settingsSnapshot.child("allowFileSharing").getValue(Boolean.class);
+            settings.setAllowFileSharing(allowFileSharing != null ? allowFileSharing : true);
+        }
+        return settings;
+    }
+
     private Group convertMapToGroup(DataSnapshot dataSnapshot) {
         try {
             Group group = new Group();
@@ -1022,56 +1159,17 @@ public class GroupService {
             Long createdAt = dataSnapshot.child("createdAt").getValue(Long.class);
             group.setCreatedAt(createdAt != null ? createdAt : 0);
 
-            // Charger les membres
-            List<String> members = new ArrayList<>();
-            DataSnapshot membersSnapshot = dataSnapshot.child("members");
-            if (membersSnapshot.exists()) {
-                for (DataSnapshot memberSnapshot : membersSnapshot.getChildren()) {
-                    String member = memberSnapshot.getValue(String.class);
-                    if (member != null) {
-                        members.add(member);
-                    }
-                }
+            // Charger les membres (format par clé ou anciennes listes)
+            for (Map.Entry<String, GroupRole> member : readMembers(dataSnapshot).entrySet()) {
+                group.putMember(member.getKey(), member.getValue());
             }
-            group.setMembers(members);
-
-            // Charger les admins
-            List<String> admins = new ArrayList<>();
-            DataSnapshot adminsSnapshot = dataSnapshot.child("admins");
-            if (adminsSnapshot.exists()) {
-                for (DataSnapshot adminSnapshot : adminsSnapshot.getChildren()) {
-                    String admin = adminSnapshot.getValue(String.class);
-                    if (admin != null) {
-                        admins.add(admin);
-                    }
-                }
-            }
-            group.setAdmins(admins);
 
             // Charger les paramètres
-            GroupSettings settings = new GroupSettings();
-            DataSnapshot settingsSnapshot = dataSnapshot.child("settings");
-            if (settingsSnapshot.exists()) {
-                Boolean onlyAdminsCanAdd = settingsSnapshot.child("onlyAdminsCanAdd").getValue(Boolean.class);
-                settings.setOnlyAdminsCanAdd(onlyAdminsCanAdd != null ? onlyAdminsCanAdd : false);
-
-                Boolean onlyAdminsCanMessage = settingsSnapshot.child("onlyAdminsCanMessage").getValue(Boolean.class);
-                settings.setOnlyAdminsCanMessage(onlyAdminsCanMessage != null ? onlyAdminsCanMessage : false);
-
-                Boolean allowMembersToInvite = settingsSnapshot.child("allowMembersToInvite").getValue(Boolean.class);
-                settings.setAllowMembersToInvite(allowMembersToInvite != null ? allowMembersToInvite : true);
-
-                Boolean showMemberList = settingsSnapshot.child("showMemberList").getValue(Boolean.class);
-                settings.setShowMemberList(showMemberList != null ? showMemberList : true);
-
-                Boolean allowFileSharing = settingsSnapshot.child("allowFileSharing").getValue(Boolean.class);
-                settings.setAllowFileSharing(allowFileSharing != null ? allowFileSharing : true);
-            }
-            group.setSettings(settings);
+            group.setSettings(readSettings(dataSnapshot.child("settings")));
 
             // Charger les autres propriétés
             Integer maxMembers = dataSnapshot.child("maxMembers").getValue(Integer.class);
-            group.setMaxMembers(maxMembers != null ? maxMembers : 100);
+            group.setMaxMembers(maxMembers != null ? maxMembers : Group.DEFAULT_MAX_MEMBERS);
 
             Boolean isPublic = dataSnapshot.child("isPublic").getValue(Boolean.class);
             group.setPublic(isPublic != null ? isPublic : false);
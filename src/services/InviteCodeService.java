@@ -0,0 +1,569 @@
+package services;
+
+import com.google.firebase.database.*;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * InviteCodeService - Maintains the group invite code index
+ * inviteCodes/{code} = {groupId, expiresAt, usesLeft}, so joining by code is a single key
+ * read instead of a query over every group. Codes are claimed with transactions (a code
+ * already in use is never handed out twice), consumed with transactions (usesLeft never
+ * goes below zero) and retired when the group gets a new code. Expired codes are removed
+ * when they are read and by a background sweep, which also clears them from their group
+ * (an admin then generates a new one).
+ * Codes of groups created before the index existed are backfilled once; until the backfill
+ * has completed, a missed lookup falls back to the legacy query.
+ */
+public class InviteCodeService {
+
+    public static final String INVITE_CODES = "inviteCodes";
+
+    private static final String INDEX_META = "indexMeta/inviteCodesVersion";
+    private static final int INDEX_VERSION = 1;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static final long CODE_TTL_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
+    private static final int DEFAULT_USES = 100;
+    private static final int MAX_CLAIM_ATTEMPTS = 5;
+    private static final String CODE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int CODE_LENGTH = 8;
+
+    private static final long SWEEP_INTERVAL_MINUTES = 60;
+    private static final int SWEEP_BATCH = 500;
+
+    private static InviteCodeService instance;
+
+    private FirebaseService firebaseService;
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean backfillComplete = false;
+    private boolean backfillStarted = false;
+    private ScheduledExecutorService sweeper;
+
+    // Private constructor for singleton pattern
+    private InviteCodeService() {
+        try {
+            this.firebaseService = FirebaseService.getInstance();
+        } catch (Exception e) {
+            System.err.println("Error initializing InviteCodeService: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized InviteCodeService getInstance() {
+        if (instance == null) {
+            instance = new InviteCodeService();
+            instance.ensureBackfilled();
+            instance.startSweeper();
+        }
+        return instance;
+    }
+
+    /**
+     * @param code Code as typed by the user
+     * @return The code in its stored form (trimmed, upper-case)
+     */
+    public static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Claims a new random code for a group
+     * @param groupId ID of the group
+     * @return The code, or null if no free code could be claimed
+     */
+    public String issue(String groupId) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            String code = randomCode();
+            Boolean claimed = claim(code, groupId);
+            if (claimed == null) {
+                return null;
+            }
+            if (claimed) {
+                return code;
+            }
+            // Collision with a live code: try another one
+        }
+        System.err.println("Could not claim a free invite code for " + groupId);
+        return null;
+    }
+
+    /**
+     * Finds the group of a code with a single key read
+     * @param code Invite code
+     * @return The group ID, or null if the code is unknown, expired or used up
+     */
+    public String findGroupId(String code) {
+        String key = normalize(code);
+        DataSnapshot entry = readEntry(key);
+        if (entry != null && entry.exists()) {
+            if (isExpired(entry)) {
+                // Drop it now rather than waiting for the sweep
+                String groupId = entry.child("groupId").getValue(String.class);
+                retire(key, groupId);
+                clearGroupCode(groupId, key);
+                return null;
+            }
+            Long usesLeft = entry.child("usesLeft").getValue(Long.class);
+            return usesLeft == null || usesLeft > 0 ? entry.child("groupId").getValue(String.class) : null;
+        }
+
+        if (!backfillComplete) {
+            String groupId = findByLegacyQuery(key);
+            if (groupId != null && Boolean.TRUE.equals(claimExact(key, groupId))) {
+                return groupId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Uses one of the code's remaining uses
+     * @param code Invite code
+     * @param groupId Group the code must belong to
+     * @return true if a use was taken, false if the code is expired, used up or not this group's
+     */
+    public boolean consume(String code, String groupId) {
+        return Boolean.TRUE.equals(runOnEntry(normalize(code), entry -> {
+            String owner = entry.child("groupId").getValue(String.class);
+            Long expiresAt = entry.child("expiresAt").getValue(Long.class);
+            Long usesLeft = entry.child("usesLeft").getValue(Long.class);
+            if (!groupId.equals(owner) || expiresAt == null || expiresAt <= System.currentTimeMillis()
+                    || usesLeft == null || usesLeft <= 0) {
+                return false;
+            }
+            entry.child("usesLeft").setValue(usesLeft - 1);
+            return true;
+        }));
+    }
+
+    /**
+     * Gives back a use taken by consume (the join failed afterwards)
+     * @param code Invite code
+     * @param groupId Group the code belongs to
+     */
+    public void refund(String code, String groupId) {
+        runOnEntry(normalize(code), entry -> {
+            Long usesLeft = entry.child("usesLeft").getValue(Long.class);
+            if (!groupId.equals(entry.child("groupId").getValue(String.class)) || usesLeft == null) {
+                return false;
+            }
+            entry.child("usesLeft").setValue(usesLeft + 1);
+            return true;
+        });
+    }
+
+    /**
+     * Removes a code from the index if it still belongs to the group
+     * @param code Invite code (may be null)
+     * @param groupId Group the code belongs to
+     */
+    public void retire(String code, String groupId) {
+        if (code == null || code.isEmpty() || firebaseService == null) {
+            return;
+        }
+        firebaseService.getDatabase().getReference(INVITE_CODES + "/" + normalize(code))
+                .runTransaction(new Transaction.Handler() {
+                    @Override
+                    public Transaction.Result doTransaction(MutableData currentData) {
+                        if (currentData.getValue() == null) {
+                            // Nothing cached yet (or already gone): the server re-runs us if it holds a value
+                            return Transaction.success(currentData);
+                        }
+                        String owner = currentData.child("groupId").getValue(String.class);
+                        if (groupId != null && !groupId.equals(owner)) {
+                            return Transaction.abort();
+                        }
+                        currentData.setValue(null);
+                        return Transaction.success(currentData);
+                    }
+
+                    @Override
+                    public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                        if (error != null) {
+                            System.err.println("Error retiring invite code: " + error.getMessage());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Removes the expired codes (runs in the background every hour)
+     */
+    public void sweepExpired() {
+        if (firebaseService == null) {
+            return;
+        }
+        FirebaseDatabase database = firebaseService.getDatabase();
+        database.getReference(INVITE_CODES).orderByChild("expiresAt").endAt(System.currentTimeMillis())
+                .limitToFirst(SWEEP_BATCH)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        Map<String, Object> updates = new HashMap<>();
+                        Map<String, String> groupIds = new HashMap<>();
+                        for (DataSnapshot entry : dataSnapshot.getChildren()) {
+                            updates.put(INVITE_CODES + "/" + entry.getKey(), null);
+                            groupIds.put(entry.getKey(), entry.child("groupId").getValue(String.class));
+                        }
+                        if (updates.isEmpty()) {
+                            return;
+                        }
+                        database.getReference().updateChildren(updates, (error, ref) -> {
+                            if (error == null) {
+                                System.out.println("Expired invite codes removed: " + updates.size());
+                                for (Map.Entry<String, String> expired : groupIds.entrySet()) {
+                                    clearGroupCode(expired.getValue(), expired.getKey());
+                                }
+                                if (updates.size() == SWEEP_BATCH) {
+                                    sweepExpired(); // More may be left
+                                }
+                            } else {
+                                System.err.println("Error removing expired invite codes: " + error.getMessage());
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        System.err.println("Error reading expired invite codes: " + databaseError.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Removes a dead code from its group, unless the group has moved on to another code
+     * @param groupId Group the code belonged to (may be null)
+     * @param code The code in its stored form
+     */
+    private void clearGroupCode(String groupId, String code) {
+        if (groupId == null || firebaseService == null) {
+            return;
+        }
+        firebaseService.getDatabase().getReference("groups/" + groupId + "/inviteCode")
+                .runTransaction(new Transaction.Handler() {
+                    @Override
+                    public Transaction.Result doTransaction(MutableData currentData) {
+                        String current = currentData.getValue(String.class);
+                        if (current != null && normalize(current).equals(code)) {
+                            currentData.setValue(null);
+                        }
+                        // Anything else is committed unchanged; the server re-runs us if its value differs
+                        return Transaction.success(currentData);
+                    }
+
+                    @Override
+                    public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                        if (error != null) {
+                            System.err.println("Error clearing expired invite code of " + groupId + ": " + error.getMessage());
+                        }
+                    }
+                });
+    }
+
+    private synchronized void startSweeper() {
+        if (sweeper != null || firebaseService == null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "invite-code-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepExpired, 1, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Indexes the codes of existing groups once (runs in the background)
+     */
+    private synchronized void ensureBackfilled() {
+        if (backfillStarted || firebaseService == null) {
+            return;
+        }
+        backfillStarted = true;
+
+        FirebaseDatabase database = firebaseService.getDatabase();
+        database.getReference(INDEX_META).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                Integer version = dataSnapshot.getValue(Integer.class);
+                if (version != null && version >= INDEX_VERSION) {
+                    backfillComplete = true;
+                    return;
+                }
+                backfill(database);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                System.err.println("Error checking invite code index version: " + databaseError.getMessage());
+            }
+        });
+    }
+
+    private void backfill(FirebaseDatabase database) {
+        database.getReference("groups").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                // Legacy codes were never checked for collisions: the first group read keeps the code
+                Map<String, String> codes = new HashMap<>();
+                for (DataSnapshot groupSnapshot : dataSnapshot.getChildren()) {
+                    String code = groupSnapshot.child("inviteCode").getValue(String.class);
+                    Boolean isActive = groupSnapshot.child("isActive").getValue(Boolean.class);
+                    if (code != null && !code.isEmpty() && (isActive == null || isActive)) {
+                        codes.putIfAbsent(normalize(code), groupSnapshot.getKey());
+                    }
+                }
+
+                if (codes.isEmpty()) {
+                    markBackfilled(database, 0);
+                    return;
+                }
+
+                // Each entry is created with a transaction, so a code claimed or consumed in the
+                // meantime keeps its owner, expiry and remaining uses
+                AtomicInteger remaining = new AtomicInteger(codes.size());
+                AtomicBoolean failed = new AtomicBoolean();
+                for (Map.Entry<String, String> code : codes.entrySet()) {
+                    fillIfAbsent(database.getReference(INVITE_CODES + "/" + code.getKey()), code.getValue(), error -> {
+                        if (error != null) {
+                            failed.set(true);
+                        }
+                        if (remaining.decrementAndGet() == 0) {
+                            if (failed.get()) {
+                                // The version is not recorded, so the next start retries; filled entries are skipped
+                                System.err.println("Error building invite code index: some entries could not be written");
+                            } else {
+                                markBackfilled(database, codes.size());
+                            }
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                System.err.println("Error reading groups for invite code backfill: " + databaseError.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Creates an index entry only if the code has none yet
+     * @param onComplete Receives the error, or null once the entry exists (whoever owns it)
+     */
+    private static void fillIfAbsent(DatabaseReference ref, String groupId, Consumer<DatabaseError> onComplete) {
+        ref.runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData currentData) {
+                if (currentData.getValue() == null) {
+                    currentData.setValue(newEntry(groupId));
+                }
+                // An existing entry is committed unchanged
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                if (error != null) {
+                    System.err.println("Error backfilling invite code " + ref.getKey() + ": " + error.getMessage());
+                }
+                onComplete.accept(error);
+            }
+        });
+    }
+
+    private void markBackfilled(FirebaseDatabase database, int codeCount) {
+        database.getReference(INDEX_META).setValue(INDEX_VERSION, (error, ref) -> {
+            if (error == null) {
+                backfillComplete = true;
+                System.out.println("Invite code index built for " + codeCount + " groups");
+            } else {
+                System.err.println("Error building invite code index: " + error.getMessage());
+            }
+        });
+    }
+
+    private static Map<String, Object> newEntry(String groupId) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("groupId", groupId);
+        entry.put("expiresAt", System.currentTimeMillis() + CODE_TTL_MS);
+        entry.put("usesLeft", DEFAULT_USES);
+        return entry;
+    }
+
+    private static boolean isExpired(DataSnapshot entry) {
+        Long expiresAt = entry.child("expiresAt").getValue(Long.class);
+        return expiresAt == null || expiresAt <= System.currentTimeMillis();
+    }
+
+    private String randomCode() {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            code.append(CODE_CHARS.charAt(random.nextInt(CODE_CHARS.length())));
+        }
+        return code.toString();
+    }
+
+    /**
+     * Atomically creates an entry if the code is free (or only held by an expired entry)
+     * @return true if claimed, false if the code is in use, null on error or timeout
+     */
+    private Boolean claim(String code, String groupId) {
+        return runTransaction(code, currentData -> {
+            if (currentData.getValue() != null) {
+                Long expiresAt = currentData.child("expiresAt").getValue(Long.class);
+                if (expiresAt != null && expiresAt > System.currentTimeMillis()) {
+                    return false;
+                }
+            }
+            currentData.setValue(newEntry(groupId));
+            return true;
+        });
+    }
+
+    /**
+     * Claims a legacy code for the group that already uses it (backfill of a single code)
+     */
+    private Boolean claimExact(String code, String groupId) {
+        return runTransaction(code, currentData -> {
+            if (currentData.getValue() != null) {
+                return groupId.equals(currentData.child("groupId").getValue(String.class));
+            }
+            currentData.setValue(newEntry(groupId));
+            return true;
+        });
+    }
+
+    /**
+     * Edit of an existing entry inside a transaction
+     */
+    private interface EntryUpdate {
+        boolean apply(MutableData entry);
+    }
+
+    private Boolean runOnEntry(String code, EntryUpdate update) {
+        return runTransaction(code, currentData -> currentData.getValue() != null && update.apply(currentData));
+    }
+
+    /**
+     * Runs a transaction on inviteCodes/{code}; the update returns false to leave the entry as is
+     * The first run sees the local cache, which is empty when nothing listens to the entry, so an
+     * empty entry is committed unchanged rather than aborted: if the server holds a value, it
+     * rejects the commit and the update runs again on the real data.
+     * @return true if the update applied on the committed data, false if not, null on error or timeout
+     */
+    private Boolean runTransaction(String code, EntryUpdate update) {
+        if (firebaseService == null) {
+            return null;
+        }
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            final Boolean[] result = {null};
+            // Outcome of the latest run, the one the commit (if any) was made with
+            final boolean[] applied = {false};
+
+            firebaseService.getDatabase().getReference(INVITE_CODES + "/" + code).runTransaction(new Transaction.Handler() {
+                @Override
+                public Transaction.Result doTransaction(MutableData currentData) {
+                    applied[0] = update.apply(currentData);
+                    if (applied[0] || currentData.getValue() == null) {
+                        return Transaction.success(currentData);
+                    }
+                    return Transaction.abort();
+                }
+
+                @Override
+                public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                    if (error != null) {
+                        System.err.println("Invite code transaction failed for " + code + ": " + error.getMessage());
+                    } else {
+                        result[0] = committed && applied[0];
+                    }
+                    latch.countDown();
+                }
+            });
+
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return result[0];
+        } catch (Exception e) {
+            System.err.println("Error updating invite code " + code + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private DataSnapshot readEntry(String code) {
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            final DataSnapshot[] result = {null};
+
+            firebaseService.getDatabase().getReference(INVITE_CODES + "/" + code)
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+                            result[0] = dataSnapshot;
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            System.err.println("Invite code lookup cancelled: " + databaseError.getMessage());
+                            latch.countDown();
+                        }
+                    });
+
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return result[0];
+        } catch (Exception e) {
+            System.err.println("Error reading invite code " + code + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Query used for codes that are not indexed yet
+     * @return ID of the first group using the code, or null
+     */
+    private String findByLegacyQuery(String code) {
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            final String[] result = {null};
+
+            firebaseService.getDatabase().getReference("groups")
+                    .orderByChild("inviteCode").equalTo(code)
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+                            for (DataSnapshot groupSnapshot : dataSnapshot.getChildren()) {
+                                result[0] = groupSnapshot.getKey();
+                                break;
+                            }
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            System.err.println("Legacy invite code query cancelled: " + databaseError.getMessage());
+                            latch.countDown();
+                        }
+                    });
+
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return result[0];
+        } catch (Exception e) {
+            System.err.println("Error querying groups by invite code: " + e.getMessage());
+            return null;
+        }
+    }
+}
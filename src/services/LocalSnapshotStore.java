@@ -0,0 +1,368 @@
+package services;
+
+import models.UserPreferences;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LocalSnapshotStore - Local copy of the signed-in user's preferences, of their chats' last activity
+ * and of the profile image mapping
+ * The files are read once (during the startup warm-up) and then served from memory, so the
+ * first frame uses the last known preferences without waiting for Firebase; the preferences
+ * service reconciles them with Firebase afterwards. The chat activity only orders the first
+ * load of the chat list, before the chats themselves are read. Changes are written on a
+ * background thread to a temporary file that replaces the snapshot atomically, so a crash
+ * never leaves a half-written file. Bursts of changes are written once.
+ */
+public class LocalSnapshotStore {
+
+    private static final String PREFERENCES_PATH = "resources/preferences_snapshot.properties";
+    private static final String PROFILES_PATH = "resources/user_profiles.properties";
+    private static final String ACTIVITY_PATH = "resources/chat_activity_snapshot.properties";
+
+    // Firebase keys cannot contain '.', so this never collides with a chat ID
+    private static final String ACTIVITY_OWNER_KEY = ".user";
+
+    private static LocalSnapshotStore instance;
+
+    private final File preferencesFile = new File(PREFERENCES_PATH);
+    private final File profilesFile = new File(PROFILES_PATH);
+    private final File activityFile = new File(ACTIVITY_PATH);
+    private final ExecutorService writer;
+
+    private boolean loaded = false;
+    private String currentUserId;
+    private UserPreferences preferences;
+    private final Properties profileMappings = new Properties();
+    private String activityOwner;
+    private final Map<String, Long> chatActivity = new HashMap<>();
+
+    // Set while a write of the file is queued; later changes ride along with it
+    private final AtomicBoolean preferencesWriteQueued = new AtomicBoolean();
+    private final AtomicBoolean profilesWriteQueued = new AtomicBoolean();
+    private final AtomicBoolean activityWriteQueued = new AtomicBoolean();
+
+    // Private constructor for singleton pattern
+    private LocalSnapshotStore() {
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized LocalSnapshotStore getInstance() {
+        if (instance == null) {
+            instance = new LocalSnapshotStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Reads the snapshot files (only the first call does any I/O)
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        try {
+            Properties props = readProperties(preferencesFile);
+            if (!props.isEmpty()) {
+                UserPreferences snapshot = decodePreferences(props);
+                if (snapshot.isValid()) {
+                    preferences = snapshot;
+                    currentUserId = snapshot.getUserId();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading preferences snapshot: " + e.getMessage());
+        }
+
+        try {
+            profileMappings.putAll(readProperties(profilesFile));
+        } catch (IOException e) {
+            System.err.println("Error loading user profile mapping: " + e.getMessage());
+        }
+
+        try {
+            Properties props = readProperties(activityFile);
+            activityOwner = props.getProperty(ACTIVITY_OWNER_KEY);
+            for (String chatId : props.stringPropertyNames()) {
+                if (!ACTIVITY_OWNER_KEY.equals(chatId)) {
+                    chatActivity.put(chatId, Long.parseLong(props.getProperty(chatId)));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading chat activity snapshot: " + e.getMessage());
+            activityOwner = null;
+            chatActivity.clear();
+        }
+    }
+
+    /**
+     * Sets the signed-in user; only this user's preferences are kept in the snapshot
+     * @param userId The user ID
+     */
+    public synchronized void setCurrentUser(String userId) {
+        load();
+        if (userId != null && !userId.equals(currentUserId)) {
+            currentUserId = userId;
+            preferences = null;
+        }
+    }
+
+    /**
+     * @param userId The user ID
+     * @return true if the user is the one whose preferences are kept in the snapshot
+     */
+    public synchronized boolean isCurrentUser(String userId) {
+        return userId != null && userId.equals(currentUserId);
+    }
+
+    /**
+     * @param userId The user ID
+     * @return A copy of the user's last known preferences, or null if there is no snapshot for this user
+     */
+    public synchronized UserPreferences getPreferences(String userId) {
+        load();
+        if (preferences == null || !isCurrentUser(userId)) {
+            return null;
+        }
+        return preferences.copy();
+    }
+
+    /**
+     * Updates the snapshot of the current user's preferences (written in the background)
+     * @param userPreferences The preferences; ignored if they belong to another user
+     */
+    public synchronized void savePreferences(UserPreferences userPreferences) {
+        if (userPreferences == null || !isCurrentUser(userPreferences.getUserId())) {
+            return;
+        }
+        preferences = userPreferences.copy();
+        queueWrite(preferencesWriteQueued, this::writePreferences);
+    }
+
+    /**
+     * Forgets the current user and deletes the preferences and chat activity snapshots (sign out)
+     */
+    public synchronized void clearPreferences() {
+        currentUserId = null;
+        preferences = null;
+        activityOwner = null;
+        chatActivity.clear();
+        queueWrite(preferencesWriteQueued, this::writePreferences);
+        queueWrite(activityWriteQueued, this::writeActivity);
+    }
+
+    /**
+     * @param userId The user ID
+     * @return A copy of the last known message time of the user's chats, by chat ID (empty if none is recorded)
+     */
+    public synchronized Map<String, Long> getChatActivity(String userId) {
+        load();
+        if (userId == null || !userId.equals(activityOwner)) {
+            return new HashMap<>();
+        }
+        return new HashMap<>(chatActivity);
+    }
+
+    /**
+     * Records the last message time of one of the user's chats (written in the background)
+     * Recording for another user replaces the previous user's activity.
+     * @param userId The user ID
+     * @param chatId The chat ID
+     * @param lastMessageTime Timestamp of the chat's last message
+     */
+    public synchronized void recordChatActivity(String userId, String chatId, long lastMessageTime) {
+        load();
+        if (userId == null || chatId == null) {
+            return;
+        }
+        if (!userId.equals(activityOwner)) {
+            activityOwner = userId;
+            chatActivity.clear();
+        }
+        Long previous = chatActivity.put(chatId, lastMessageTime);
+        if (previous == null || previous != lastMessageTime) {
+            queueWrite(activityWriteQueued, this::writeActivity);
+        }
+    }
+
+    /**
+     * @param userId The user ID
+     * @return The profile image path of the user, or null if none is recorded
+     */
+    public synchronized String getProfileImagePath(String userId) {
+        load();
+        return profileMappings.getProperty(userId);
+    }
+
+    /**
+     * Records the profile image path of a user (written in the background)
+     * @param userId The user ID
+     * @param imagePath The relative path to the image ("" when removed)
+     */
+    public synchronized void setProfileImagePath(String userId, String imagePath) {
+        load();
+        profileMappings.setProperty(userId, imagePath != null ? imagePath : "");
+        queueWrite(profilesWriteQueued, this::writeProfiles);
+    }
+
+    private void queueWrite(AtomicBoolean queued, Runnable write) {
+        if (queued.compareAndSet(false, true)) {
+            writer.execute(() -> {
+                queued.set(false);
+                write.run();
+            });
+        }
+    }
+
+    private void writePreferences() {
+        Properties props = null;
+        synchronized (this) {
+            if (preferences != null) {
+                props = encodePreferences(preferences);
+            }
+        }
+
+        try {
+            if (props == null) {
+                Files.deleteIfExists(preferencesFile.toPath());
+            } else {
+                writeAtomically(preferencesFile, props, "VibeApp preferences snapshot");
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing preferences snapshot: " + e.getMessage());
+        }
+    }
+
+    private void writeProfiles() {
+        Properties props = new Properties();
+        synchronized (this) {
+            props.putAll(profileMappings);
+        }
+
+        try {
+            writeAtomically(profilesFile, props, "User Profile Image Mappings");
+        } catch (IOException e) {
+            System.err.println("Error saving user profile mapping: " + e.getMessage());
+        }
+    }
+
+    private void writeActivity() {
+        Properties props = null;
+        synchronized (this) {
+            if (activityOwner != null) {
+                props = new Properties();
+                props.setProperty(ACTIVITY_OWNER_KEY, activityOwner);
+                for (Map.Entry<String, Long> entry : chatActivity.entrySet()) {
+                    props.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+                }
+            }
+        }
+
+        try {
+            if (props == null) {
+                Files.deleteIfExists(activityFile.toPath());
+            } else {
+                writeAtomically(activityFile, props, "VibeApp chat activity snapshot");
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing chat activity snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes to a temporary file next to the target, then renames it over the target
+     */
+    private static void writeAtomically(File file, Properties props, String comment) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (FileOutputStream fos = new FileOutputStream(temp)) {
+                props.store(fos, comment);
+                fos.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static Properties readProperties(File file) throws IOException {
+        Properties props = new Properties();
+        if (file.exists()) {
+            try (FileInputStream fis = new FileInputStream(file)) {
+                props.load(fis);
+            }
+        }
+        return props;
+    }
+
+    /**
+     * Flattens preferences to properties; values are prefixed with their type
+     * (b: boolean, l: long, s: string) so they decode to what UserPreferences.fromMap expects
+     */
+    private static Properties encodePreferences(UserPreferences userPreferences) {
+        Properties props = new Properties();
+        for (Map.Entry<String, Object> entry : userPreferences.toMap().entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Boolean) {
+                props.setProperty(entry.getKey(), "b:" + value);
+            } else if (value instanceof Number) {
+                props.setProperty(entry.getKey(), "l:" + ((Number) value).longValue());
+            } else if (value != null) {
+                props.setProperty(entry.getKey(), "s:" + value);
+            }
+        }
+        return props;
+    }
+
+    private static UserPreferences decodePreferences(Properties props) {
+        Map<String, Object> map = new HashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            String encoded = props.getProperty(key);
+            if (encoded.length() < 2 || encoded.charAt(1) != ':') {
+                continue;
+            }
+            String value = encoded.substring(2);
+            switch (encoded.charAt(0)) {
+                case 'b':
+                    map.put(key, Boolean.parseBoolean(value));
+                    break;
+                case 'l':
+                    map.put(key, Long.parseLong(value));
+                    break;
+                default:
+                    map.put(key, value);
+                    break;
+            }
+        }
+        return UserPreferences.fromMap(map);
+    }
+}
@@ -0,0 +1,321 @@
+package services;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.ValueEventListener;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Properties;
+
+/**
+ * SessionService - "Remember me" session kept on this machine
+ * The session file holds the user ID and a cached profile so a returning user reaches
+ * the chat without waiting for Firebase. It carries a fingerprint of the account's
+ * credential version (the time its password was last set, not the hash, which a transparent
+ * rehash may rewrite) and is revalidated against Firebase in the background; a changed
+ * password, email or deleted account revokes it.
+ * The file is signed with an HMAC key kept next to it (resources/session.key). Anyone who
+ * can edit the session file can also read the key and re-sign it, so the signature only
+ * detects corruption or accidental edits; it is not a protection against a local user.
+ */
+public class SessionService {
+
+    private static final String SESSION_PATH = "resources/session.properties";
+    private static final String KEY_PATH = "resources/session.key";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final long SESSION_TTL = 30L * 24 * 60 * 60 * 1000; // 30 days
+
+    private static SessionService instance;
+
+    private final File sessionFile = new File(SESSION_PATH);
+    private final File keyFile = new File(KEY_PATH);
+    private byte[] signingKey;
+    private Session cachedSession;
+
+    /**
+     * Remembered session and cached profile
+     */
+    public static class Session {
+        private final String userId;
+        private final String email;
+        private final String username;
+        private final String credential;
+        private final long issuedAt;
+        private final long expiresAt;
+
+        Session(String userId, String email, String username, String credential, long issuedAt, long expiresAt) {
+            this.userId = userId;
+            this.email = email;
+            this.username = username;
+            this.credential = credential;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public long getIssuedAt() {
+            return issuedAt;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+    /**
+     * Result of a background revalidation
+     */
+    public interface RevalidationCallback {
+        void onConfirmed(Session session);
+        void onRevoked(String reason);
+    }
+
+    // Private constructor for singleton pattern
+    private SessionService() {
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized SessionService getInstance() {
+        if (instance == null) {
+            instance = new SessionService();
+        }
+        return instance;
+    }
+
+    /**
+     * Loads the remembered session from disk
+     * @return The session, or null if there is none or it is expired, corrupted or unreadable
+     */
+    public synchronized Session loadSession() {
+        if (cachedSession != null) {
+            return cachedSession;
+        }
+        if (!sessionFile.exists()) {
+            return null;
+        }
+
+        try {
+            Properties props = new Properties();
+            try (FileInputStream fis = new FileInputStream(sessionFile)) {
+                props.load(fis);
+            }
+
+            Session session = new Session(
+                    props.getProperty("userId"),
+                    props.getProperty("email"),
+                    props.getProperty("username"),
+                    props.getProperty("credential"),
+                    Long.parseLong(props.getProperty("issuedAt", "0")),
+                    Long.parseLong(props.getProperty("expiresAt", "0"))
+            );
+
+            String signature = props.getProperty("signature");
+            if (session.userId == null || session.credential == null || signature == null
+                    || !MessageDigest.isEqual(signature.getBytes(StandardCharsets.UTF_8),
+                            sign(session).getBytes(StandardCharsets.UTF_8))) {
+                System.err.println("Session file corrupted (bad signature), discarding remembered session");
+                clearSession();
+                return null;
+            }
+
+            if (System.currentTimeMillis() > session.expiresAt) {
+                System.out.println("Remembered session expired");
+                clearSession();
+                return null;
+            }
+
+            cachedSession = session;
+            return session;
+        } catch (Exception e) {
+            System.err.println("Error loading session: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Remembers a signed-in user
+     * @param userId User ID
+     * @param email User's email
+     * @param username Display name shown before the profile is loaded
+     * @param credentialVersion Credential version of the account (AuthService.readCredentialVersion)
+     */
+    public synchronized void saveSession(String userId, String email, String username, String credentialVersion) {
+        try {
+            long now = System.currentTimeMillis();
+            write(new Session(userId, email, username, fingerprint(credentialVersion), now, now + SESSION_TTL));
+        } catch (Exception e) {
+            System.err.println("Error saving session: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forgets the remembered session (sign out)
+     */
+    public synchronized void clearSession() {
+        cachedSession = null;
+        if (sessionFile.exists() && !sessionFile.delete()) {
+            System.err.println("Could not delete session file: " + sessionFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Checks a remembered session against Firebase without blocking
+     * The session is revoked if the account no longer exists or its email or password changed.
+     * Network errors keep the session (the user stays signed in offline).
+     * @param session Session to check
+     * @param callback Called on a Firebase thread with the result
+     */
+    public void revalidate(Session session, RevalidationCallback callback) {
+        try {
+            FirebaseService.getInstance().getDatabase()
+                    .getReference("users/" + session.userId)
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+                            if (!dataSnapshot.exists() || dataSnapshot.hasChild(FirebaseService.DELETION_MARKER)) {
+                                revoke(callback, "Compte introuvable");
+                                return;
+                            }
+
+                            String email = dataSnapshot.child("email").getValue(String.class);
+                            if (email == null || !email.equalsIgnoreCase(session.email)) {
+                                revoke(callback, "L'adresse email du compte a changé");
+                                return;
+                            }
+
+                            // A rehash keeps the version; only a password change moves it
+                            String credentialVersion = AuthService.readCredentialVersion(dataSnapshot);
+                            try {
+                                if (!fingerprint(credentialVersion).equals(session.credential)) {
+                                    revoke(callback, "Le mot de passe a été modifié");
+                                    return;
+                                }
+                            } catch (Exception e) {
+                                System.err.println("Error checking session credential: " + e.getMessage());
+                                return;
+                            }
+
+                            // Refresh the cached profile
+                            String username = dataSnapshot.child("username").getValue(String.class);
+                            Session confirmed = session;
+                            if (username != null && !username.equals(session.username)) {
+                                confirmed = new Session(session.userId, session.email, username,
+                                        session.credential, session.issuedAt, session.expiresAt);
+                                synchronized (SessionService.this) {
+                                    try {
+                                        write(confirmed);
+                                    } catch (Exception e) {
+                                        System.err.println("Error updating session: " + e.getMessage());
+                                    }
+                                }
+                            }
+                            callback.onConfirmed(confirmed);
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            System.err.println("Session revalidation failed, keeping session: " + databaseError.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("Session revalidation unavailable, keeping session: " + e.getMessage());
+        }
+    }
+
+    private void revoke(RevalidationCallback callback, String reason) {
+        System.out.println("Remembered session revoked: " + reason);
+        clearSession();
+        callback.onRevoked(reason);
+    }
+
+    private void write(Session session) throws Exception {
+        Properties props = new Properties();
+        props.setProperty("userId", session.userId);
+        props.setProperty("email", session.email != null ? session.email : "");
+        props.setProperty("username", session.username != null ? session.username : "");
+        props.setProperty("credential", session.credential);
+        props.setProperty("issuedAt", Long.toString(session.issuedAt));
+        props.setProperty("expiresAt", Long.toString(session.expiresAt));
+        props.setProperty("signature", sign(session));
+
+        ensureParentDirectory(sessionFile);
+        try (FileOutputStream fos = new FileOutputStream(sessionFile)) {
+            props.store(fos, "VibeApp session");
+        }
+        restrictToOwner(sessionFile);
+        cachedSession = session;
+    }
+
+    private String sign(Session session) throws Exception {
+        String payload = session.userId + "|" + session.email + "|" + session.username + "|"
+                + session.credential + "|" + session.issuedAt + "|" + session.expiresAt;
+        return hmac(payload);
+    }
+
+    private String fingerprint(String credentialVersion) throws Exception {
+        return hmac("credential-version|" + credentialVersion);
+    }
+
+    private String hmac(String payload) throws Exception {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(getSigningKey(), HMAC_ALGORITHM));
+        return Base64.getEncoder().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Returns the local signing key, creating it on first use
+     */
+    private byte[] getSigningKey() throws IOException {
+        if (signingKey != null) {
+            return signingKey;
+        }
+
+        if (keyFile.exists()) {
+            signingKey = Base64.getDecoder().decode(new String(Files.readAllBytes(keyFile.toPath()),
+                    StandardCharsets.UTF_8).trim());
+        } else {
+            signingKey = new byte[32];
+            new SecureRandom().nextBytes(signingKey);
+            ensureParentDirectory(keyFile);
+            Files.write(keyFile.toPath(), Base64.getEncoder().encode(signingKey));
+            restrictToOwner(keyFile);
+        }
+        return signingKey;
+    }
+
+    private static void ensureParentDirectory(File file) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+    }
+
+    private static void restrictToOwner(File file) {
+        file.setReadable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(false, false);
+        file.setWritable(true, true);
+    }
+}
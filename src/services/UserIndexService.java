@@ -0,0 +1,481 @@
+package services;
+
+import com.google.firebase.database.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * UserIndexService - Maintains the email and username lookup indexes
+ * emailIndex/{hash(email)} and usernameIndex/{hash(username)} map a normalized email or
+ * username to the user ID, so login and signup validation are a single key read instead
+ * of a query over the whole users tree. Entries are claimed with transactions at
+ * registration, which also makes them the uniqueness constraint.
+ * Users created before the indexes existed are backfilled once; until the backfill has
+ * completed, a missed lookup falls back to the legacy query.
+ */
+public class UserIndexService {
+
+    public static final String EMAIL_INDEX = "emailIndex";
+    public static final String USERNAME_INDEX = "usernameIndex";
+
+    private static final String INDEX_META = "indexMeta/usersVersion";
+    private static final int INDEX_VERSION = 1;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static UserIndexService instance;
+
+    private FirebaseService firebaseService;
+    private volatile boolean backfillComplete = false;
+    private boolean backfillStarted = false;
+
+    /**
+     * Outcome of an index reservation
+     */
+    public enum Reservation {
+        RESERVED,
+        EMAIL_TAKEN,
+        USERNAME_TAKEN,
+        FAILED
+    }
+
+    // Private constructor for singleton pattern
+    private UserIndexService() {
+        try {
+            this.firebaseService = FirebaseService.getInstance();
+        } catch (Exception e) {
+            System.err.println("Error initializing UserIndexService: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized UserIndexService getInstance() {
+        if (instance == null) {
+            instance = new UserIndexService();
+            instance.ensureBackfilled();
+        }
+        return instance;
+    }
+
+    /**
+     * @param email Email as typed by the user
+     * @return Index key of the email (hash of the trimmed, lower-case address)
+     */
+    public static String emailKey(String email) {
+        return sha256(email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param username Username as typed by the user
+     * @return Index key of the username (hash of the trimmed, lower-case name)
+     */
+    public static String usernameKey(String username) {
+        return sha256(username.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Finds a user by email with a single key read
+     * @param email User's email
+     * @return The user ID, or null if no user has this email
+     * @throws IOException if the database could not be read (timeout or cancelled read)
+     */
+    public String findUserIdByEmail(String email) throws IOException {
+        String userId = readIndex(EMAIL_INDEX + "/" + emailKey(email));
+        if (userId == null && !backfillComplete) {
+            userId = findByLegacyQuery("email", email.trim());
+            if (userId != null) {
+                claim(EMAIL_INDEX + "/" + emailKey(email), userId, false);
+            }
+        }
+        return userId;
+    }
+
+    /**
+     * @param username Username to check
+     * @return true if another account already uses this username (case-insensitive)
+     * @throws IOException if the database could not be read (timeout or cancelled read)
+     */
+    public boolean isUsernameTaken(String username) throws IOException {
+        String userId = readIndex(USERNAME_INDEX + "/" + usernameKey(username));
+        if (userId == null && !backfillComplete) {
+            userId = findByLegacyQuery("username", username.trim());
+            if (userId != null) {
+                claim(USERNAME_INDEX + "/" + usernameKey(username), userId, false);
+            }
+        }
+        return userId != null;
+    }
+
+    /**
+     * Claims the email and username of a new account; both or neither are kept
+     * @param userId ID of the account being created
+     * @param email Its email
+     * @param username Its username (may be null)
+     * @return RESERVED on success, otherwise which entry is already taken (or FAILED on error)
+     */
+    public Reservation reserve(String userId, String email, String username) {
+        // Accounts created before the index existed are not claimed yet
+        try {
+            if (!backfillComplete && findUserIdByEmail(email) != null) {
+                return Reservation.EMAIL_TAKEN;
+            }
+            if (!backfillComplete && username != null && isUsernameTaken(username)) {
+                return Reservation.USERNAME_TAKEN;
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot check the legacy users: " + e.getMessage());
+            return Reservation.FAILED;
+        }
+
+        String emailPath = EMAIL_INDEX + "/" + emailKey(email);
+        Boolean emailClaimed = claim(emailPath, userId, true);
+        if (emailClaimed == null) {
+            return Reservation.FAILED;
+        }
+        if (!emailClaimed) {
+            return Reservation.EMAIL_TAKEN;
+        }
+
+        if (username != null) {
+            Boolean usernameClaimed = claim(USERNAME_INDEX + "/" + usernameKey(username), userId, true);
+            if (usernameClaimed == null || !usernameClaimed) {
+                // Roll back the email claim
+                firebaseService.getDatabase().getReference(emailPath).removeValueAsync();
+                return usernameClaimed == null ? Reservation.FAILED : Reservation.USERNAME_TAKEN;
+            }
+        }
+        return Reservation.RESERVED;
+    }
+
+    /**
+     * Adds the index removals for an account to a multi-path update
+     * @param updates Multi-path update rooted at the database root
+     * @param email Email of the account (may be null)
+     * @param username Username of the account (may be null)
+     */
+    public static void putRemovals(Map<String, Object> updates, String email, String username) {
+        if (email != null && !email.isEmpty()) {
+            updates.put(EMAIL_INDEX + "/" + emailKey(email), null);
+        }
+        if (username != null && !username.isEmpty()) {
+            updates.put(USERNAME_INDEX + "/" + usernameKey(username), null);
+        }
+    }
+
+    /**
+     * Releases the index entries of an account (rollback or deletion)
+     * @param email Email of the account (may be null)
+     * @param username Username of the account (may be null)
+     */
+    public void release(String email, String username) {
+        Map<String, Object> updates = new HashMap<>();
+        putRemovals(updates, email, username);
+        if (!updates.isEmpty()) {
+            firebaseService.getDatabase().getReference().updateChildrenAsync(updates);
+        }
+    }
+
+    /**
+     * Builds the indexes for existing users once (runs in the background)
+     */
+    private synchronized void ensureBackfilled() {
+        if (backfillStarted || firebaseService == null) {
+            return;
+        }
+        backfillStarted = true;
+
+        FirebaseDatabase database = firebaseService.getDatabase();
+        database.getReference(INDEX_META).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                Integer version = dataSnapshot.getValue(Integer.class);
+                if (version != null && version >= INDEX_VERSION) {
+                    backfillComplete = true;
+                    return;
+                }
+                backfill(database);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                System.err.println("Error checking user index version: " + databaseError.getMessage());
+            }
+        });
+    }
+
+    private void backfill(FirebaseDatabase database) {
+        database.getReference("users").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                // The legacy data has no uniqueness guarantee: the first user read wins within the backfill
+                Map<String, String> entries = new HashMap<>();
+                for (DataSnapshot userSnapshot : dataSnapshot.getChildren()) {
+                    String userId = userSnapshot.getKey();
+                    String email = userSnapshot.child("email").getValue(String.class);
+                    String username = userSnapshot.child("username").getValue(String.class);
+                    if (email != null && !email.isEmpty()) {
+                        entries.putIfAbsent(EMAIL_INDEX + "/" + emailKey(email), userId);
+                    }
+                    if (username != null && !username.isEmpty()) {
+                        entries.putIfAbsent(USERNAME_INDEX + "/" + usernameKey(username), userId);
+                    }
+                }
+
+                if (entries.isEmpty()) {
+                    markBackfilled(database, 0);
+                    return;
+                }
+
+                // Each entry is filled with a transaction, so an entry claimed by reserve() in the
+                // meantime is kept rather than overwritten
+                AtomicInteger remaining = new AtomicInteger(entries.size());
+                AtomicBoolean failed = new AtomicBoolean();
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    fillIfAbsent(database.getReference(entry.getKey()), entry.getValue(), error -> {
+                        if (error != null) {
+                            failed.set(true);
+                        }
+                        if (remaining.decrementAndGet() == 0) {
+                            if (failed.get()) {
+                                // The version is not recorded, so the next start retries; filled entries are skipped
+                                System.err.println("Error building user indexes: some entries could not be written");
+                            } else {
+                                markBackfilled(database, dataSnapshot.getChildrenCount());
+                            }
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                System.err.println("Error reading users for index backfill: " + databaseError.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sets an index entry only if it does not exist yet
+     * @param onComplete Receives the error, or null once the entry exists (whoever owns it)
+     */
+    private static void fillIfAbsent(DatabaseReference ref, String userId, Consumer<DatabaseError> onComplete) {
+        ref.runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData currentData) {
+                if (currentData.getValue() == null) {
+                    currentData.setValue(userId);
+                }
+                // An existing entry is committed unchanged
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                if (error != null) {
+                    System.err.println("Error backfilling index " + ref.getKey() + ": " + error.getMessage());
+                }
+                onComplete.accept(error);
+            }
+        });
+    }
+
+    private void markBackfilled(FirebaseDatabase database, long userCount) {
+        database.getReference(INDEX_META).setValue(INDEX_VERSION, (error, ref) -> {
+            if (error == null) {
+                backfillComplete = true;
+                System.out.println("User indexes built for " + userCount + " users");
+            } else {
+                System.err.println("Error building user indexes: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reads an index entry
+     * @return The user ID stored at the path, or null if the entry does not exist
+     * @throws IOException if the read timed out or was cancelled
+     */
+    private String readIndex(String path) throws IOException {
+        CountDownLatch latch = new CountDownLatch(1);
+        final String[] result = {null};
+        final String[] error = {null};
+
+        firebaseService.getDatabase().getReference(path)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        result[0] = dataSnapshot.getValue(String.class);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        System.err.println("Index lookup cancelled: " + databaseError.getMessage());
+                        error[0] = databaseError.getMessage();
+                        latch.countDown();
+                    }
+                });
+
+        await(latch, error, path);
+        return result[0];
+    }
+
+    /**
+     * Query used for users that are not indexed yet
+     * @return ID of the first user whose field equals the value, or null if there is none
+     * @throws IOException if the query timed out or was cancelled
+     */
+    private String findByLegacyQuery(String field, String value) throws IOException {
+        CountDownLatch latch = new CountDownLatch(1);
+        final String[] result = {null};
+        final String[] error = {null};
+
+        firebaseService.getDatabase().getReference("users")
+                .orderByChild(field).equalTo(value)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        for (DataSnapshot userSnapshot : dataSnapshot.getChildren()) {
+                            result[0] = userSnapshot.getKey();
+                            break;
+                        }
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        System.err.println("Legacy user query cancelled: " + databaseError.getMessage());
+                        error[0] = databaseError.getMessage();
+                        latch.countDown();
+                    }
+                });
+
+        await(latch, error, "users by " + field);
+        return result[0];
+    }
+
+    /**
+     * Waits for a read; a missing answer is a failure, never an empty result
+     */
+    private static void await(CountDownLatch latch, String[] error, String what) throws IOException {
+        try {
+            if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Timed out reading " + what);
+                throw new IOException("Délai d'attente dépassé");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lecture interrompue", e);
+        }
+        if (error[0] != null) {
+            throw new IOException(error[0]);
+        }
+    }
+
+    /**
+     * Atomically sets an index entry if it is free (or already owned by the user)
+     * A claim that times out may still commit later; with releaseIfAbandoned the entry is then
+     * released, so an account that was never created does not keep the email or username.
+     * @return true if the entry belongs to the user, false if another user owns it, null on error or timeout
+     */
+    private Boolean claim(String path, String userId, boolean releaseIfAbandoned) {
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            final Boolean[] result = {null};
+            final boolean[] abandoned = {false};
+
+            firebaseService.getDatabase().getReference(path).runTransaction(new Transaction.Handler() {
+                @Override
+                public Transaction.Result doTransaction(MutableData currentData) {
+                    Object owner = currentData.getValue();
+                    if (owner == null || userId.equals(owner)) {
+                        currentData.setValue(userId);
+                        return Transaction.success(currentData);
+                    }
+                    return Transaction.abort();
+                }
+
+                @Override
+                public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                    synchronized (abandoned) {
+                        if (abandoned[0]) {
+                            if (error == null && committed && releaseIfAbandoned) {
+                                releaseIfOwner(path, userId);
+                            }
+                            return;
+                        }
+                        if (error != null) {
+                            System.err.println("Index claim failed for " + path + ": " + error.getMessage());
+                        } else {
+                            result[0] = committed;
+                        }
+                        latch.countDown();
+                    }
+                }
+            });
+
+            if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                synchronized (abandoned) {
+                    if (latch.getCount() > 0) {
+                        // The caller gives up; a late commit is undone in onComplete
+                        abandoned[0] = true;
+                        System.err.println("Index claim timed out for " + path);
+                    }
+                }
+            }
+            return result[0];
+        } catch (Exception e) {
+            System.err.println("Error claiming index " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Removes an index entry if it still belongs to the user
+     */
+    private void releaseIfOwner(String path, String userId) {
+        firebaseService.getDatabase().getReference(path).runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData currentData) {
+                Object owner = currentData.getValue();
+                if (owner == null || userId.equals(owner)) {
+                    // An empty first run (nothing cached) commits nothing; the server re-runs it if needed
+                    currentData.setValue(null);
+                    return Transaction.success(currentData);
+                }
+                return Transaction.abort();
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                if (error != null) {
+                    System.err.println("Error releasing index " + path + ": " + error.getMessage());
+                }
+            }
+        });
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
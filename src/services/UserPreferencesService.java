@@ -4,10 +4,22 @@ import models.UserPreferences;
 import com.google.firebase.database.*;
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.SwingUtilities;
 
 /**
@@ -171,10 +183,64 @@ public class UserPreferencesService {
     private static final String PROFILE_IMAGES_PATH = "profileImages";
     private static final String STORAGE_PROFILE_IMAGES = "profile-images";
 
-    // Cache for quick access
-    private Map<String, UserPreferences> preferencesCache = new HashMap<>();
-    private long cacheExpiry = 5 * 60 * 1000; // 5 minutes
-    private Map<String, Long> cacheTimestamps = new HashMap<>();
+    // Cache for quick access (stale-while-revalidate: entries older than cacheExpiry are
+    // still returned at once, and refreshed in the background)
+    private final Map<String, CachedPreferences> preferencesCache = new ConcurrentHashMap<>();
+    private final long cacheExpiry = 5 * 60 * 1000; // 5 minutes
+
+    // Callbacks waiting on a Firebase read, by user (one read per user at a time)
+    private final Map<String, List<PreferencesCallback>> pendingLoads = new HashMap<>();
+
+    // Changes waiting for the end of their save window, by user
+    private static final long SAVE_COALESCE_MS = 1500;
+    private static ScheduledExecutorService saveScheduler;
+    private final Map<String, PendingSave> pendingSaves = new HashMap<>();
+
+    // Services holding queued changes, sent by one shutdown hook before the JVM exits;
+    // a service leaves the set once its queue is empty, so nothing else is kept alive
+    private static final long EXIT_FLUSH_SECONDS = 3;
+    private static final Set<UserPreferencesService> servicesWithPendingSaves = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(UserPreferencesService::flushAllOnExit, "preferences-exit-flush"));
+    }
+
+    /**
+     * Changes queued for one coalesced save
+     */
+    private static class PendingSave {
+        UserPreferences preferences;
+        final Map<String, Object> changes = new HashMap<>();
+        final List<PreferencesCallback> callbacks = new ArrayList<>();
+        ScheduledFuture<?> flush;
+
+        PendingSave(UserPreferences preferences) {
+            this.preferences = preferences;
+        }
+    }
+
+    // Cache statistics
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+
+    /**
+     * Cached preferences and when they were read
+     */
+    private static class CachedPreferences {
+        final UserPreferences preferences;
+        final long loadedAt;
+
+        CachedPreferences(UserPreferences preferences, long loadedAt) {
+            this.preferences = preferences;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isStale(long expiry) {
+            return System.currentTimeMillis() - loadedAt > expiry;
+        }
+    }
 
     /**
      * Callback interface for async operations
@@ -223,6 +289,35 @@ public class UserPreferencesService {
         }
 
         // Load from Firebase
+        fetchPreferences(userId, onEdt(callback));
+    }
+
+    /**
+     * Reads preferences from Firebase and caches them
+     * Concurrent requests for the same user share one read. The callback is called on the
+     * Firebase thread; wrap it with onEdt() for UI callers.
+     * @param userId The user ID
+     * @param callback The callback for the result (null for a background refresh)
+     */
+    private void fetchPreferences(String userId, PreferencesCallback callback) {
+        synchronized (pendingLoads) {
+            List<PreferencesCallback> waiting = pendingLoads.get(userId);
+            if (waiting != null) {
+                if (callback != null) {
+                    waiting.add(callback);
+                }
+                return;
+            }
+            waiting = new ArrayList<>();
+            if (callback != null) {
+                waiting.add(callback);
+            } else {
+                backgroundRefreshes.incrementAndGet();
+            }
+            pendingLoads.put(userId, waiting);
+        }
+
+        long requestedAt = System.currentTimeMillis();
         DatabaseReference prefsRef = database.child(PREFERENCES_PATH).child(userId);
 
         prefsRef.addListenerForSingleValueEvent(new ValueEventListener() {
@@ -254,28 +349,53 @@ public class UserPreferencesService {
                         });
                     }
 
-                    // Cache the preferences
-                    cachePreferences(userId, preferences);
+                    // Cache the preferences, unless a newer value arrived meanwhile
+                    cachePreferences(userId, preferences, requestedAt);
 
-                    // Return on UI thread
-                    SwingUtilities.invokeLater(() -> callback.onSuccess(preferences));
+                    for (PreferencesCallback waitingCallback : takePendingLoads(userId)) {
+                        waitingCallback.onSuccess(preferences);
+                    }
 
                 } catch (Exception e) {
-                    SwingUtilities.invokeLater(() ->
-                            callback.onError("Erreur lors du chargement des préférences: " + e.getMessage())
-                    );
+                    for (PreferencesCallback waitingCallback : takePendingLoads(userId)) {
+                        waitingCallback.onError("Erreur lors du chargement des préférences: " + e.getMessage());
+                    }
                 }
             }
 
             @Override
             public void onCancelled(DatabaseError databaseError) {
-                SwingUtilities.invokeLater(() ->
-                        callback.onError("Erreur Firebase: " + databaseError.getMessage())
-                );
+                for (PreferencesCallback waitingCallback : takePendingLoads(userId)) {
+                    waitingCallback.onError("Erreur Firebase: " + databaseError.getMessage());
+                }
             }
         });
     }
 
+    /**
+     * Wraps a callback so it is called on the UI thread
+     */
+    private static PreferencesCallback onEdt(PreferencesCallback callback) {
+        return new PreferencesCallback() {
+            @Override
+            public void onSuccess(UserPreferences preferences) {
+                SwingUtilities.invokeLater(() -> callback.onSuccess(preferences));
+            }
+
+            @Override
+            public void onError(String error) {
+                SwingUtilities.invokeLater(() -> callback.onError(error));
+            }
+        };
+    }
+
+    private List<PreferencesCallback> takePendingLoads(String userId) {
+        synchronized (pendingLoads) {
+            List<PreferencesCallback> waiting = pendingLoads.remove(userId);
+            return waiting != null ? waiting : new ArrayList<>();
+        }
+    }
+
     /**
      * Loads user preferences synchronously (blocking)
      * @param userId The user ID
@@ -303,7 +423,7 @@ public class UserPreferencesService {
         final UserPreferences[] result = new UserPreferences[1];
         final CountDownLatch latch = new CountDownLatch(1);
 
-        loadUserPreferences(userId, new PreferencesCallback() {
+        fetchPreferences(userId, new PreferencesCallback() {
             @Override
             public void onSuccess(UserPreferences preferences) {
                 result[0] = preferences;
@@ -347,13 +467,15 @@ public class UserPreferencesService {
         }
 
         // Load asynchronously
-        loadUserPreferences(userId, callback);
+        fetchPreferences(userId, callback != null ? onEdt(callback) : null);
     }
 
     // ===== SAVE OPERATIONS =====
 
     /**
      * Saves user preferences to Firebase
+     * Preferences that already exist in Firebase only send their changed fields; new ones
+     * are written in full.
      * @param preferences The preferences to save
      * @param callback The callback for the result
      */
@@ -366,17 +488,32 @@ public class UserPreferencesService {
         String userId = preferences.getUserId();
         DatabaseReference prefsRef = database.child(PREFERENCES_PATH).child(userId);
 
-        // Convert to Firebase format
-        Map<String, Object> data = preferences.toMap();
+        // Convert to Firebase format (only the changed keys when the document exists)
+        Map<String, Object> data;
+        if (preferences.isStored()) {
+            data = preferences.toDeltaMap();
+            if (data.isEmpty()) {
+                SwingUtilities.invokeLater(() -> callback.onSuccess(preferences));
+                return;
+            }
+            data.put("lastUpdated", preferences.getLastUpdated());
+        } else {
+            data = preferences.toMap();
+        }
+        Set<String> savedFields = preferences.getDirtyFields();
+        preferences.clearDirty();
 
         prefsRef.updateChildren(data, new DatabaseReference.CompletionListener() {
             @Override
             public void onComplete(DatabaseError error, DatabaseReference ref) {
                 if (error != null) {
-                    SwingUtilities.invokeLater(() ->
-                            callback.onError("Erreur lors de la sauvegarde: " + error.getMessage())
-                    );
+                    SwingUtilities.invokeLater(() -> {
+                        preferences.markDirty(savedFields);
+                        callback.onError("Erreur lors de la sauvegarde: " + error.getMessage());
+                    });
                 } else {
+                    preferences.setStored(true);
+
                     // Update cache
                     cachePreferences(userId, preferences);
 
@@ -386,6 +523,171 @@ public class UserPreferencesService {
         });
     }
 
+    /**
+     * Queues the changed fields of the preferences for saving
+     * Changes queued within SAVE_COALESCE_MS of the first one are sent together as one
+     * partial update, so a burst of edits costs a single small write. Call from the UI
+     * thread (where preferences are edited).
+     * @param preferences The edited preferences
+     * @param callback Called on the UI thread once the batch containing these changes is saved (may be null)
+     */
+    public void scheduleSave(UserPreferences preferences, PreferencesCallback callback) {
+        if (preferences == null || !preferences.isValid()) {
+            if (callback != null) {
+                callback.onError("Préférences invalides");
+            }
+            return;
+        }
+
+        String userId = preferences.getUserId();
+        Map<String, Object> delta = preferences.toDeltaMap();
+        preferences.clearDirty();
+
+        synchronized (pendingSaves) {
+            PendingSave pending = pendingSaves.get(userId);
+            if (pending == null) {
+                if (delta.isEmpty()) {
+                    if (callback != null) {
+                        SwingUtilities.invokeLater(() -> callback.onSuccess(preferences));
+                    }
+                    return;
+                }
+                pending = new PendingSave(preferences);
+                pendingSaves.put(userId, pending);
+                servicesWithPendingSaves.add(this);
+                pending.flush = getSaveScheduler().schedule(() -> flushPendingSave(userId),
+                        SAVE_COALESCE_MS, TimeUnit.MILLISECONDS);
+            }
+            pending.preferences = preferences;
+            pending.changes.putAll(delta);
+            if (callback != null) {
+                pending.callbacks.add(onEdt(callback));
+            }
+        }
+    }
+
+    /**
+     * Sends the queued changes of a user now instead of at the end of the window
+     * @param userId The user ID
+     */
+    public void flushPendingSaves(String userId) {
+        synchronized (pendingSaves) {
+            PendingSave pending = pendingSaves.get(userId);
+            if (pending == null) {
+                return;
+            }
+            if (pending.flush != null) {
+                pending.flush.cancel(false);
+            }
+        }
+        flushPendingSave(userId);
+    }
+
+    /**
+     * Drops the queued changes and cached preferences of a user without sending them
+     * (the account was deleted, so a later save must not recreate its preferences)
+     * @param userId The user ID
+     */
+    public void discardPendingSaves(String userId) {
+        synchronized (pendingSaves) {
+            PendingSave pending = pendingSaves.remove(userId);
+            if (pending != null && pending.flush != null) {
+                pending.flush.cancel(false);
+            }
+            if (pendingSaves.isEmpty()) {
+                servicesWithPendingSaves.remove(this);
+            }
+        }
+        preferencesCache.remove(userId);
+    }
+
+    /**
+     * Sends the queued changes of every service and waits (briefly) for Firebase to confirm,
+     * since the JVM stops as soon as the shutdown hooks return
+     */
+    private static void flushAllOnExit() {
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (UserPreferencesService service : servicesWithPendingSaves) {
+            List<String> userIds;
+            synchronized (service.pendingSaves) {
+                userIds = new ArrayList<>(service.pendingSaves.keySet());
+                for (PendingSave pending : service.pendingSaves.values()) {
+                    if (pending.flush != null) {
+                        pending.flush.cancel(false);
+                    }
+                }
+            }
+            for (String userId : userIds) {
+                writes.add(service.flushPendingSave(userId));
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).get(EXIT_FLUSH_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.err.println("Preferences not confirmed before exit: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Completes once Firebase has answered (at once if nothing was queued)
+     */
+    private CompletableFuture<Void> flushPendingSave(String userId) {
+        PendingSave pending;
+        synchronized (pendingSaves) {
+            pending = pendingSaves.remove(userId);
+            if (pendingSaves.isEmpty()) {
+                servicesWithPendingSaves.remove(this);
+            }
+        }
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        if (pending == null || pending.changes.isEmpty()) {
+            written.complete(null);
+            return written;
+        }
+
+        Map<String, Object> updates = new HashMap<>(pending.changes);
+        updates.put("lastUpdated", ServerValue.TIMESTAMP);
+
+        database.child(PREFERENCES_PATH).child(userId).updateChildren(updates, (error, ref) -> {
+            written.complete(null);
+            if (error != null) {
+                System.err.println("Error saving preferences for " + userId + ": " + error.getMessage());
+                // Put the fields back so the next save retries them
+                SwingUtilities.invokeLater(() -> pending.preferences.markDirty(pending.changes.keySet()));
+                for (PreferencesCallback waiting : pending.callbacks) {
+                    waiting.onError("Erreur lors de la sauvegarde: " + error.getMessage());
+                }
+                return;
+            }
+
+            // Apply the delta to the cached copy
+            CachedPreferences cached = preferencesCache.get(userId);
+            Map<String, Object> merged = cached != null ? cached.preferences.toMap() : pending.preferences.toMap();
+            merged.putAll(pending.changes);
+            merged.put("lastUpdated", System.currentTimeMillis());
+            cachePreferences(userId, UserPreferences.fromMap(merged));
+
+            for (PreferencesCallback waiting : pending.callbacks) {
+                waiting.onSuccess(pending.preferences);
+            }
+        });
+        return written;
+    }
+
+    private static synchronized ScheduledExecutorService getSaveScheduler() {
+        if (saveScheduler == null) {
+            saveScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "preferences-autosave");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return saveScheduler;
+    }
+
     /**
      * Updates specific preference fields
      * @param userId The user ID
@@ -530,46 +832,74 @@ public class UserPreferencesService {
     // ===== BULK OPERATIONS =====
 
     /**
-     * Loads preferences for multiple users
-     * @param userIds List of user IDs
-     * @param callback Callback with Map of userId -> UserPreferences
+     * Loads preferences for several users at once
+     * Cached users are served without any I/O; the others are read concurrently (one shared
+     * read per user) and the future completes once every read has answered or the deadline
+     * has passed, whichever comes first. Users whose read failed or timed out are left out.
+     * Never wait on the returned future from the UI thread.
+     * @param userIds The user IDs
+     * @param timeout Deadline for the whole batch
+     * @param unit Unit of the deadline
+     * @return Future with a map of userId -> UserPreferences
      */
-    public void loadMultipleUserPreferences(String[] userIds, MultiplePreferencesCallback callback) {
-        if (userIds == null || userIds.length == 0) {
-            callback.onError("Liste d'utilisateurs vide");
-            return;
-        }
+    public CompletableFuture<Map<String, UserPreferences>> loadUserPreferencesBatch(
+            Collection<String> userIds, long timeout, TimeUnit unit) {
+        Map<String, UserPreferences> results = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> reads = new ArrayList<>();
+
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null || userId.trim().isEmpty()) {
+                continue;
+            }
 
-        Map<String, UserPreferences> results = new HashMap<>();
-        CountDownLatch latch = new CountDownLatch(userIds.length);
+            UserPreferences cachedPrefs = getCachedPreferences(userId);
+            if (cachedPrefs != null) {
+                results.put(userId, cachedPrefs);
+                continue;
+            }
 
-        for (String userId : userIds) {
-            loadUserPreferences(userId, new PreferencesCallback() {
+            CompletableFuture<Void> read = new CompletableFuture<>();
+            fetchPreferences(userId, new PreferencesCallback() {
                 @Override
                 public void onSuccess(UserPreferences preferences) {
-                    synchronized (results) {
-                        results.put(userId, preferences);
-                    }
-                    latch.countDown();
+                    results.put(userId, preferences);
+                    read.complete(null);
                 }
 
                 @Override
                 public void onError(String error) {
                     System.err.println("Error loading preferences for user " + userId + ": " + error);
-                    latch.countDown();
+                    read.complete(null);
                 }
             });
+            reads.add(read);
         }
 
-        // Wait for all loads to complete
-        new Thread(() -> {
-            try {
-                latch.await(30, TimeUnit.SECONDS); // 30 second timeout
-                SwingUtilities.invokeLater(() -> callback.onSuccess(results));
-            } catch (InterruptedException e) {
-                SwingUtilities.invokeLater(() -> callback.onError("Timeout lors du chargement multiple"));
-            }
-        }).start();
+        if (reads.isEmpty()) {
+            return CompletableFuture.completedFuture(results);
+        }
+
+        // One deadline for the batch on the service's scheduler (no thread per call); users whose
+        // read has not answered by then are left out
+        CompletableFuture<Void> batch = CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]));
+        ScheduledFuture<?> deadline = getSaveScheduler().schedule(() -> batch.complete(null), timeout, unit);
+        return batch.whenComplete((ignored, error) -> deadline.cancel(false))
+                .thenApply(ignored -> new HashMap<>(results));
+    }
+
+    /**
+     * Loads preferences for multiple users
+     * @param userIds List of user IDs
+     * @param callback Callback with Map of userId -> UserPreferences
+     */
+    public void loadMultipleUserPreferences(String[] userIds, MultiplePreferencesCallback callback) {
+        if (userIds == null || userIds.length == 0) {
+            callback.onError("Liste d'utilisateurs vide");
+            return;
+        }
+
+        loadUserPreferencesBatch(Arrays.asList(userIds), 30, TimeUnit.SECONDS) // 30 second timeout
+                .thenAccept(results -> SwingUtilities.invokeLater(() -> callback.onSuccess(results)));
     }
 
     /**
@@ -611,30 +941,69 @@ public class UserPreferencesService {
     // ===== CACHE MANAGEMENT =====
 
     /**
-     * Gets cached preferences if available and not expired
+     * Returns the cached preferences of a user without ever blocking
+     * Meant for the rendering path (theme, font size, avatars): stale preferences are
+     * returned as they are and refreshed in the background.
+     * @param userId The user ID
+     * @return The cached preferences, or null if none are cached yet (a load is then started)
      */
-    private UserPreferences getCachedPreferences(String userId) {
-        if (!preferencesCache.containsKey(userId)) {
+    public UserPreferences peekPreferences(String userId) {
+        if (userId == null || userId.trim().isEmpty()) {
             return null;
         }
+        UserPreferences cachedPrefs = getCachedPreferences(userId);
+        if (cachedPrefs == null) {
+            fetchPreferences(userId, null);
+        }
+        return cachedPrefs;
+    }
 
-        Long timestamp = cacheTimestamps.get(userId);
-        if (timestamp == null || (System.currentTimeMillis() - timestamp) > cacheExpiry) {
-            // Cache expired
-            preferencesCache.remove(userId);
-            cacheTimestamps.remove(userId);
-            return null;
+    /**
+     * Gets cached preferences if available; stale ones trigger a background refresh
+     */
+    private UserPreferences getCachedPreferences(String userId) {
+        CachedPreferences cached = preferencesCache.get(userId);
+        if (cached == null) {
+            // The local snapshot of the signed-in user serves as a stale entry until Firebase answers
+            UserPreferences snapshot = LocalSnapshotStore.getInstance().getPreferences(userId);
+            if (snapshot == null) {
+                cacheMisses.incrementAndGet();
+                return null;
+            }
+            cached = new CachedPreferences(snapshot, 0);
+            preferencesCache.putIfAbsent(userId, cached);
         }
 
-        return preferencesCache.get(userId);
+        if (cached.isStale(cacheExpiry)) {
+            // Serve the stale value now, refresh it for the next read
+            staleHits.incrementAndGet();
+            fetchPreferences(userId, null);
+        } else {
+            cacheHits.incrementAndGet();
+        }
+        return cached.preferences;
     }
 
     /**
      * Caches preferences for quick access
      */
     private void cachePreferences(String userId, UserPreferences preferences) {
-        preferencesCache.put(userId, preferences.copy());
-        cacheTimestamps.put(userId, System.currentTimeMillis());
+        cachePreferences(userId, preferences, System.currentTimeMillis());
+    }
+
+    /**
+     * Caches preferences read at a given time, unless the cache already holds a newer value
+     * (a slow read must not overwrite a change pushed by the listener meanwhile)
+     */
+    private void cachePreferences(String userId, UserPreferences preferences, long readAt) {
+        CachedPreferences fresh = new CachedPreferences(preferences.copy(), readAt);
+        CachedPreferences kept = preferencesCache.merge(userId, fresh,
+                (current, candidate) -> current.loadedAt > candidate.loadedAt ? current : candidate);
+
+        // Keep the local snapshot of the signed-in user in sync (written in the background)
+        if (kept == fresh) {
+            LocalSnapshotStore.getInstance().savePreferences(fresh.preferences);
+        }
     }
 
     /**
@@ -642,7 +1011,6 @@ public class UserPreferencesService {
      */
     private void invalidateCache(String userId) {
         preferencesCache.remove(userId);
-        cacheTimestamps.remove(userId);
     }
 
     /**
@@ -650,7 +1018,6 @@ public class UserPreferencesService {
      */
     public void clearCache() {
         preferencesCache.clear();
-        cacheTimestamps.clear();
     }
 
     // ===== LISTENERS FOR REAL-TIME UPDATES =====
@@ -689,6 +1056,9 @@ public class UserPreferencesService {
                         cachePreferences(userId, preferences);
 
                         SwingUtilities.invokeLater(() -> listener.onPreferencesUpdated(preferences));
+                    } else {
+                        // Preferences deleted: the next read goes to Firebase
+                        invalidateCache(userId);
                     }
                 } catch (Exception e) {
                     SwingUtilities.invokeLater(() ->
@@ -740,16 +1110,25 @@ public class UserPreferencesService {
         stats.put("cachedUsers", preferencesCache.size());
         stats.put("cacheExpiryMinutes", cacheExpiry / (60 * 1000));
 
-        // Count expired entries
-        long currentTime = System.currentTimeMillis();
+        // Count expired (stale) entries
         int expiredCount = 0;
-        for (Long timestamp : cacheTimestamps.values()) {
-            if ((currentTime - timestamp) > cacheExpiry) {
+        for (CachedPreferences cached : preferencesCache.values()) {
+            if (cached.isStale(cacheExpiry)) {
                 expiredCount++;
             }
         }
         stats.put("expiredEntries", expiredCount);
 
+        long hits = cacheHits.get();
+        long stale = staleHits.get();
+        long misses = cacheMisses.get();
+        long lookups = hits + stale + misses;
+        stats.put("hits", hits);
+        stats.put("staleHits", stale);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) (hits + stale) / lookups);
+        stats.put("backgroundRefreshes", backgroundRefreshes.get());
+
         return stats;
     }
 
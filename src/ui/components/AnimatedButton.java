@@ -21,7 +21,7 @@ public class AnimatedButton extends JButton {
     private boolean isHovered = false;
     private boolean isPressed = false;
     private float animationProgress = 0f;
-    private Timer animationTimer;
+    private final Animator.Animation hoverAnimation = this::stepHoverAnimation;
 
     // Appearance settings
     private int cornerRadius = 10;
@@ -74,20 +74,23 @@ public class AnimatedButton extends JButton {
     }
 
     private void setupAnimations() {
-        // Timer for smooth animations
-        animationTimer = new Timer(16, e -> {
-            if (isHovered && animationProgress < 1f) {
-                animationProgress += 0.1f;
-                if (animationProgress > 1f) animationProgress = 1f;
-                repaint();
-            } else if (!isHovered && animationProgress > 0f) {
-                animationProgress -= 0.1f;
-                if (animationProgress < 0f) animationProgress = 0f;
-                repaint();
-            } else {
-                ((Timer) e.getSource()).stop();
-            }
-        });
+        // Hover animation is driven by the shared Animator pulse
+        animationProgress = 0f;
+    }
+
+    private boolean stepHoverAnimation() {
+        if (isHovered && animationProgress < 1f) {
+            animationProgress += 0.1f;
+            if (animationProgress > 1f) animationProgress = 1f;
+            repaint();
+            return true;
+        } else if (!isHovered && animationProgress > 0f) {
+            animationProgress -= 0.1f;
+            if (animationProgress < 0f) animationProgress = 0f;
+            repaint();
+            return true;
+        }
+        return false;
     }
 
     private void setupMouseListeners() {
@@ -95,13 +98,13 @@ public class AnimatedButton extends JButton {
             @Override
             public void mouseEntered(MouseEvent e) {
                 isHovered = true;
-                animationTimer.start();
+                Animator.getInstance().start(AnimatedButton.this, hoverAnimation);
             }
 
             @Override
             public void mouseExited(MouseEvent e) {
                 isHovered = false;
-                animationTimer.start();
+                Animator.getInstance().start(AnimatedButton.this, hoverAnimation);
             }
 
             @Override
@@ -37,7 +37,7 @@ public class AnimatedTextField extends JPanel {
     private boolean isFocused = false;
     private boolean hasContent = false;
     private float labelAnimationProgress = 0f;
-    private Timer animationTimer;
+    private final Animator.Animation labelAnimation = this::stepLabelAnimation;
 
     // Appearance settings
     private int cornerRadius = 8;
@@ -124,22 +124,26 @@ public class AnimatedTextField extends JPanel {
     }
 
     private void setupAnimations() {
-        animationTimer = new Timer(16, e -> {
-            boolean shouldAnimate = (isFocused || hasContent) && labelAnimationProgress < 1f;
-            boolean shouldDeAnimate = !(isFocused || hasContent) && labelAnimationProgress > 0f;
-
-            if (shouldAnimate) {
-                labelAnimationProgress += 0.15f;
-                if (labelAnimationProgress > 1f) labelAnimationProgress = 1f;
-                updateFloatingLabel();
-            } else if (shouldDeAnimate) {
-                labelAnimationProgress -= 0.15f;
-                if (labelAnimationProgress < 0f) labelAnimationProgress = 0f;
-                updateFloatingLabel();
-            } else {
-                ((Timer) e.getSource()).stop();
-            }
-        });
+        // Label animation is driven by the shared Animator pulse
+        labelAnimationProgress = 0f;
+    }
+
+    private boolean stepLabelAnimation() {
+        boolean shouldAnimate = (isFocused || hasContent) && labelAnimationProgress < 1f;
+        boolean shouldDeAnimate = !(isFocused || hasContent) && labelAnimationProgress > 0f;
+
+        if (shouldAnimate) {
+            labelAnimationProgress += 0.15f;
+            if (labelAnimationProgress > 1f) labelAnimationProgress = 1f;
+            updateFloatingLabel();
+            return true;
+        } else if (shouldDeAnimate) {
+            labelAnimationProgress -= 0.15f;
+            if (labelAnimationProgress < 0f) labelAnimationProgress = 0f;
+            updateFloatingLabel();
+            return true;
+        }
+        return false;
     }
 
     private void setupEventListeners() {
@@ -147,7 +151,7 @@ public class AnimatedTextField extends JPanel {
             @Override
             public void focusGained(FocusEvent e) {
                 isFocused = true;
-                animationTimer.start();
+                startLabelAnimation();
                 repaint();
             }
 
@@ -155,7 +159,7 @@ public class AnimatedTextField extends JPanel {
             public void focusLost(FocusEvent e) {
                 isFocused = false;
                 hasContent = !textField.getText().trim().isEmpty();
-                animationTimer.start();
+                startLabelAnimation();
                 repaint();
             }
         });
@@ -179,12 +183,16 @@ public class AnimatedTextField extends JPanel {
         });
     }
 
+    private void startLabelAnimation() {
+        Animator.getInstance().start(this, labelAnimation);
+    }
+
     private void updateContentState() {
         boolean newHasContent = !textField.getText().trim().isEmpty();
         if (newHasContent != hasContent) {
             hasContent = newHasContent;
             if (!isFocused) {
-                animationTimer.start();
+                startLabelAnimation();
             }
         }
     }
@@ -269,7 +277,7 @@ public class AnimatedTextField extends JPanel {
         textField.setText(text);
         updateContentState();
         if (hasFloatingLabel) {
-            animationTimer.start();
+            startLabelAnimation();
         }
     }
 
@@ -305,7 +313,7 @@ public class AnimatedTextField extends JPanel {
             @Override
             public void focusGained(FocusEvent e) {
                 isFocused = true;
-                animationTimer.start();
+                startLabelAnimation();
                 repaint();
             }
 
@@ -313,7 +321,7 @@ public class AnimatedTextField extends JPanel {
             public void focusLost(FocusEvent e) {
                 isFocused = false;
                 hasContent = !field.getText().trim().isEmpty();
-                animationTimer.start();
+                startLabelAnimation();
                 repaint();
             }
         });
@@ -0,0 +1,238 @@
+package ui.components;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Animator - Shared animation pulse for all animated components
+ * A single Swing timer drives every registered animation once per frame. The timer
+ * only runs while at least one animation belongs to a showing component; animations
+ * of hidden components are skipped and resume when their component is shown again.
+ * Animations of a component removed from its window (no longer displayable) are detached:
+ * only the component itself keeps them, so a component that is never added back is
+ * collected with its animations, and one that is added back resumes them.
+ * start/stop may be called from any thread; frames always run on the EDT.
+ */
+public class Animator {
+
+    public static final int FRAME_DELAY = 16; // ~60 FPS
+
+    private static final String HIERARCHY_HOOK = "Animator.hierarchyHook";
+    private static final String DETACHED = "Animator.detached";
+
+    private static Animator instance;
+
+    private final Timer pulse;
+
+    // Registered animations and the component they repaint, in registration order
+    private final Map<Animation, Component> animations = new LinkedHashMap<>();
+
+    // Detached animations, to find their owner on stop; both are held weakly
+    private final Map<Animation, WeakReference<JComponent>> detached = new WeakHashMap<>();
+
+    /**
+     * One frame step of an animation
+     */
+    public interface Animation {
+        /**
+         * Advances the animation by one frame
+         * @return true while more frames are needed, false once the animation is finished
+         */
+        boolean tick();
+    }
+
+    // Private constructor for singleton pattern
+    private Animator() {
+        pulse = new Timer(FRAME_DELAY, e -> onFrame());
+        pulse.setCoalesce(true);
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized Animator getInstance() {
+        if (instance == null) {
+            instance = new Animator();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers an animation; does nothing if it is already running
+     * @param owner Component the animation draws on (frames are skipped while it is not showing)
+     * @param animation The animation step
+     */
+    public void start(Component owner, Animation animation) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> start(owner, animation));
+            return;
+        }
+        if (animations.containsKey(animation) || detached.containsKey(animation)) {
+            wake();
+            return;
+        }
+        installHierarchyHook(owner);
+        if (owner instanceof JComponent && !owner.isDisplayable()) {
+            // Not in a window yet: starts once the component is added to one
+            detach((JComponent) owner, animation);
+            return;
+        }
+        animations.put(animation, owner);
+        wake();
+    }
+
+    /**
+     * Unregisters an animation
+     * @param animation The animation step
+     */
+    public void stop(Animation animation) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> stop(animation));
+            return;
+        }
+        animations.remove(animation);
+        WeakReference<JComponent> owner = detached.remove(animation);
+        if (owner != null && owner.get() != null) {
+            detachedList(owner.get()).remove(animation);
+        }
+        if (animations.isEmpty()) {
+            pulse.stop();
+        }
+    }
+
+    /**
+     * @param animation The animation step
+     * @return true if the animation is registered (running, hidden or detached)
+     */
+    public boolean isRunning(Animation animation) {
+        return animations.containsKey(animation) || detached.containsKey(animation);
+    }
+
+    /**
+     * @return Number of registered animations
+     */
+    public int getActiveCount() {
+        return animations.size();
+    }
+
+    private void wake() {
+        if (!pulse.isRunning() && hasShowingAnimation()) {
+            pulse.start();
+        }
+    }
+
+    private boolean hasShowingAnimation() {
+        for (Component owner : animations.values()) {
+            if (owner == null || owner.isShowing()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onFrame() {
+        List<Map.Entry<Animation, Component>> frame = new ArrayList<>(animations.entrySet());
+        boolean anyShowing = false;
+
+        for (Map.Entry<Animation, Component> entry : frame) {
+            Component owner = entry.getValue();
+            if (owner != null && !owner.isShowing()) {
+                continue; // skipped until shown again
+            }
+
+            anyShowing = true;
+            boolean keepRunning;
+            try {
+                keepRunning = entry.getKey().tick();
+            } catch (Exception e) {
+                System.err.println("Animation failed: " + e.getMessage());
+                e.printStackTrace();
+                keepRunning = false;
+            }
+
+            if (!keepRunning) {
+                animations.remove(entry.getKey());
+            }
+        }
+
+        // Nothing visible left to animate
+        if (!anyShowing || animations.isEmpty()) {
+            pulse.stop();
+        }
+    }
+
+    private void installHierarchyHook(Component owner) {
+        if (!(owner instanceof JComponent)) {
+            return;
+        }
+        JComponent component = (JComponent) owner;
+        if (component.getClientProperty(HIERARCHY_HOOK) != null) {
+            return;
+        }
+        component.putClientProperty(HIERARCHY_HOOK, Boolean.TRUE);
+        component.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0) {
+                if (component.isDisplayable()) {
+                    reattach(component);
+                } else {
+                    detachAll(component);
+                }
+            }
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && component.isShowing()) {
+                wake();
+            }
+        });
+    }
+
+    private void detachAll(JComponent owner) {
+        List<Animation> owned = new ArrayList<>();
+        for (Map.Entry<Animation, Component> entry : animations.entrySet()) {
+            if (entry.getValue() == owner) {
+                owned.add(entry.getKey());
+            }
+        }
+        for (Animation animation : owned) {
+            animations.remove(animation);
+            detach(owner, animation);
+        }
+        if (animations.isEmpty()) {
+            pulse.stop();
+        }
+    }
+
+    private void detach(JComponent owner, Animation animation) {
+        detachedList(owner).add(animation);
+        detached.put(animation, new WeakReference<>(owner));
+    }
+
+    private void reattach(JComponent owner) {
+        List<Animation> owned = detachedList(owner);
+        if (owned.isEmpty()) {
+            return;
+        }
+        for (Animation animation : owned) {
+            detached.remove(animation);
+            animations.put(animation, owner);
+        }
+        owned.clear();
+        wake();
+    }
+
+    /**
+     * @return The animations detached from a component, stored on the component itself
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Animation> detachedList(JComponent owner) {
+        List<Animation> owned = (List<Animation>) owner.getClientProperty(DETACHED);
+        if (owned == null) {
+            owned = new ArrayList<>();
+            owner.putClientProperty(DETACHED, owned);
+        }
+        return owned;
+    }
+}
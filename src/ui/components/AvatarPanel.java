@@ -2,7 +2,6 @@ package ui.components;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -29,7 +28,7 @@ public class AvatarPanel extends JPanel {
     
     // Loading state
     private boolean isLoading = false;
-    private Timer loadingTimer;
+    private final Animator.Animation loadingAnimation = this::stepLoadingAnimation;
     private int loadingAngle = 0;
 
     // UI Colors
@@ -49,6 +48,10 @@ public class AvatarPanel extends JPanel {
     // Group icon settings
     private boolean showGroupIcon = false;
 
+    // Pre-rendered avatar (image or initials, border, status) for the normal and hovered sizes
+    private BufferedImage renderCache = null;
+    private BufferedImage hoverRenderCache = null;
+
     // Change listener interface
     public interface AvatarChangeListener {
         void onImageChanged(String imagePath, BufferedImage image);
@@ -134,55 +137,105 @@ public class AvatarPanel extends JPanel {
         super.paintComponent(g);
 
         Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
         // Calculate size with hover effect
         int actualSize = size;
         int offsetX = 0, offsetY = 0;
+        boolean hovered = hasHoverEffect && isHovered;
 
-        if (hasHoverEffect && isHovered) {
+        if (hovered) {
             actualSize = (int) (size * hoverScale);
             offsetX = (size - actualSize) / 2;
             offsetY = (size - actualSize) / 2;
         }
 
-        // Create circular clip
-        Ellipse2D circle = new Ellipse2D.Float(offsetX, offsetY, actualSize, actualSize);
-        g2d.setClip(circle);
-
-        // Draw avatar background or image
-        if (avatarImage != null) {
-            drawAvatarImage(g2d, offsetX, offsetY, actualSize);
-        } else {
-            drawAvatarBackground(g2d, offsetX, offsetY, actualSize);
-            drawInitials(g2d, offsetX, offsetY, actualSize);
+        // Blit the cached rendering, rebuilding it only when the state or device scale changed
+        double scale = g2d.getTransform().getScaleX();
+        int pixelSize = (int) Math.ceil(actualSize * scale);
+        BufferedImage cached = hovered ? hoverRenderCache : renderCache;
+        if (cached == null || cached.getWidth() != pixelSize) {
+            cached = renderAvatar(actualSize, pixelSize);
+            if (hovered) {
+                hoverRenderCache = cached;
+            } else {
+                renderCache = cached;
+            }
+        }
+        if (cached != null) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(cached, offsetX, offsetY, actualSize, actualSize, null);
         }
 
-        // Reset clip
-        g2d.setClip(null);
-        
-        // Draw loading indicator if loading
+        // Loading overlay changes every frame, so it is drawn live on top
         if (isLoading) {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             drawLoadingIndicator(g2d, offsetX, offsetY, actualSize);
         }
 
+        g2d.dispose();
+    }
+
+    /**
+     * Renders the static avatar state into a translucent compatible image
+     * @param actualSize Avatar size in user space
+     * @param pixelSize Image size in device pixels
+     */
+    private BufferedImage renderAvatar(int actualSize, int pixelSize) {
+        if (actualSize <= 0 || pixelSize <= 0) {
+            return null;
+        }
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        BufferedImage image = gc != null
+                ? gc.createCompatibleImage(pixelSize, pixelSize, Transparency.TRANSLUCENT)
+                : new BufferedImage(pixelSize, pixelSize, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.scale((double) pixelSize / actualSize, (double) pixelSize / actualSize);
+
+        // Draw avatar background or image
+        if (avatarImage != null) {
+            drawAvatarImage(g2d, 0, 0, actualSize);
+        } else {
+            drawAvatarBackground(g2d, 0, 0, actualSize);
+            drawInitials(g2d, 0, 0, actualSize);
+        }
+
         // Draw border
         if (borderColor != null && borderWidth > 0) {
-            drawBorder(g2d, offsetX, offsetY, actualSize);
+            drawBorder(g2d, 0, 0, actualSize);
         }
 
         // Draw status indicator
         if (showStatus) {
-            drawStatusIndicator(g2d, offsetX, offsetY, actualSize);
+            drawStatusIndicator(g2d, 0, 0, actualSize);
         }
 
         g2d.dispose();
+        return image;
+    }
+
+    /**
+     * Drops the cached rendering after a visual state change and schedules a repaint
+     */
+    private void invalidateRender() {
+        renderCache = null;
+        hoverRenderCache = null;
+        repaint();
     }
 
     private void drawAvatarImage(Graphics2D g2d, int x, int y, int size) {
-        // Scale and draw the image to fit the circle
+        // Antialiased circular mask, then the image scaled into it
+        g2d.setColor(Color.WHITE);
+        g2d.fillOval(x, y, size, size);
+        Composite previous = g2d.getComposite();
+        g2d.setComposite(AlphaComposite.SrcIn);
         g2d.drawImage(avatarImage, x, y, size, size, null);
+        g2d.setComposite(previous);
     }
 
     private void drawAvatarBackground(Graphics2D g2d, int x, int y, int size) {
@@ -369,7 +422,7 @@ public class AvatarPanel extends JPanel {
         this.avatarImage = image;
         this.currentImage = image;
         stopLoading(); // Stop loading when image is set
-        repaint();
+        invalidateRender();
     }
     
     /**
@@ -377,13 +430,14 @@ public class AvatarPanel extends JPanel {
      */
     public void startLoading() {
         isLoading = true;
-        if (loadingTimer == null) {
-            loadingTimer = new Timer(50, e -> {
-                loadingAngle = (loadingAngle + 10) % 360;
-                repaint();
-            });
-        }
-        loadingTimer.start();
+        Animator.getInstance().start(this, loadingAnimation);
+    }
+
+    private boolean stepLoadingAnimation() {
+        // Same angular speed as the former 50ms / 10 degree timer, at the shared frame rate
+        loadingAngle = (loadingAngle + 3) % 360;
+        repaint();
+        return isLoading;
     }
     
     /**
@@ -391,9 +445,7 @@ public class AvatarPanel extends JPanel {
      */
     public void stopLoading() {
         isLoading = false;
-        if (loadingTimer != null) {
-            loadingTimer.stop();
-        }
+        Animator.getInstance().stop(loadingAnimation);
         repaint();
     }
     
@@ -436,7 +488,7 @@ public class AvatarPanel extends JPanel {
         this.avatarImage = null;
         this.currentImage = null;
         this.currentImagePath = null;
-        repaint();
+        invalidateRender();
     }
 
     public boolean hasImage() {
@@ -451,7 +503,7 @@ public class AvatarPanel extends JPanel {
     public void setAvatarSize(int size) {
         this.size = size;
         setPreferredSize(new Dimension(size, size));
-        repaint();
+        invalidateRender();
     }
 
     public String getInitials() {
@@ -460,7 +512,7 @@ public class AvatarPanel extends JPanel {
 
     public void setInitials(String initials) {
         this.initials = initials != null ? initials.toUpperCase() : "?";
-        repaint();
+        invalidateRender();
     }
 
     public String getFullName() {
@@ -470,13 +522,13 @@ public class AvatarPanel extends JPanel {
     public void setFullName(String fullName) {
         this.fullName = fullName;
         this.initials = generateInitials(fullName);
-        repaint();
+        invalidateRender();
     }
 
     @Override
     public void setBackground(Color backgroundColor) {
         this.backgroundColor = backgroundColor;
-        repaint();
+        invalidateRender();
     }
 
     @Override
@@ -490,7 +542,7 @@ public class AvatarPanel extends JPanel {
 
     public void setTextColor(Color textColor) {
         this.textColor = textColor;
-        repaint();
+        invalidateRender();
     }
 
     public Color getBorderColor() {
@@ -499,7 +551,7 @@ public class AvatarPanel extends JPanel {
 
     public void setBorderColor(Color borderColor) {
         this.borderColor = borderColor;
-        repaint();
+        invalidateRender();
     }
 
     public int getBorderWidth() {
@@ -508,7 +560,7 @@ public class AvatarPanel extends JPanel {
 
     public void setBorderWidth(int borderWidth) {
         this.borderWidth = borderWidth;
-        repaint();
+        invalidateRender();
     }
 
     public boolean isShowStatus() {
@@ -517,7 +569,7 @@ public class AvatarPanel extends JPanel {
 
     public void setShowStatus(boolean showStatus) {
         this.showStatus = showStatus;
-        repaint();
+        invalidateRender();
     }
 
     public StatusType getStatus() {
@@ -526,7 +578,7 @@ public class AvatarPanel extends JPanel {
 
     public void setStatus(StatusType status) {
         this.status = status;
-        repaint();
+        invalidateRender();
     }
 
     public int getStatusSize() {
@@ -535,7 +587,7 @@ public class AvatarPanel extends JPanel {
 
     public void setStatusSize(int statusSize) {
         this.statusSize = statusSize;
-        repaint();
+        invalidateRender();
     }
 
     public boolean hasHoverEffect() {
@@ -555,6 +607,7 @@ public class AvatarPanel extends JPanel {
 
     public void setHoverScale(float hoverScale) {
         this.hoverScale = hoverScale;
+        hoverRenderCache = null;
     }
     
     public boolean isShowGroupIcon() {
@@ -563,7 +616,7 @@ public class AvatarPanel extends JPanel {
     
     public void setShowGroupIcon(boolean showGroupIcon) {
         this.showGroupIcon = showGroupIcon;
-        repaint();
+        invalidateRender();
     }
 
     public void setChangeListener(AvatarChangeListener listener) {
@@ -629,7 +682,7 @@ public class AvatarPanel extends JPanel {
     public void setInitial(String initial) {
         if (initial != null && !initial.isEmpty()) {
             this.initials = initial.substring(0, 1).toUpperCase();
-            repaint();
+            invalidateRender();
         }
     }
     
@@ -2,8 +2,6 @@ package ui.components;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.geom.Arc2D;
 
 /**
@@ -12,7 +10,7 @@ import java.awt.geom.Arc2D;
  */
 public class LoadingIndicator extends JPanel {
     
-    private Timer animationTimer;
+    private final Animator.Animation animation = this::stepAnimation;
     private int rotationAngle = 0;
     private boolean isLoading = false;
     private String loadingText = "Chargement...";
@@ -41,14 +39,13 @@ public class LoadingIndicator extends JPanel {
         setPreferredSize(new Dimension(100, 100));
         setOpaque(false);
         
-        // Timer pour l'animation (60 FPS)
-        animationTimer = new Timer(16, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                updateAnimation();
-                repaint();
-            }
-        });
+        // L'animation est cadencée par le pulse partagé de l'Animator (60 FPS)
+    }
+    
+    private boolean stepAnimation() {
+        updateAnimation();
+        repaint();
+        return isLoading;
     }
     
     private void updateAnimation() {
@@ -202,13 +199,13 @@ public class LoadingIndicator extends JPanel {
         if (text != null) {
             loadingText = text;
         }
-        animationTimer.start();
         setVisible(true);
+        Animator.getInstance().start(this, animation);
     }
     
     public void stopLoading() {
         isLoading = false;
-        animationTimer.stop();
+        Animator.getInstance().stop(animation);
         setVisible(false);
     }
     
@@ -291,12 +288,4 @@ public class LoadingIndicator extends JPanel {
         }
         return null;
     }
-    
-    @Override
-    public void finalize() throws Throwable {
-        if (animationTimer != null && animationTimer.isRunning()) {
-            animationTimer.stop();
-        }
-        super.finalize();
-    }
 }
\ No newline at end of file
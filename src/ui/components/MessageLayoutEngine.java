@@ -0,0 +1,233 @@
+package ui.components;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MessageLayoutEngine - Computes wrapped line breaks and bubble sizes for chat messages
+ * Measurement runs on a worker thread with TextLayout/LineBreakMeasurer so the EDT only
+ * has to build components. Results are cached by (text hash, width, font size).
+ */
+public class MessageLayoutEngine {
+
+    // Shared fonts for message bubbles (avoid creating new Font instances per bubble)
+    public static final Font MESSAGE_FONT = new Font("Segoe UI", Font.PLAIN, 14);
+    public static final Font SENDER_FONT = new Font("Segoe UI", Font.BOLD, 12);
+    public static final Font TIME_FONT = new Font("Segoe UI", Font.PLAIN, 10);
+
+    // Bubble padding, kept identical to the previous inline sizing in MainChat
+    private static final int HORIZONTAL_PADDING = 20;
+    private static final int VERTICAL_PADDING = 10;
+    private static final int MIN_WIDTH = 10;
+
+    private static final int MAX_CACHE_SIZE = 2000;
+
+    private static MessageLayoutEngine instance;
+
+    // Antialiased, fractional metrics - same context for every measurement so cached results stay valid
+    private final FontRenderContext renderContext = new FontRenderContext(null, true, true);
+
+    private final ExecutorService executor;
+
+    private final Map<LayoutKey, BubbleLayout> cache = new LinkedHashMap<LayoutKey, BubbleLayout>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LayoutKey, BubbleLayout> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    // Private constructor for singleton pattern
+    private MessageLayoutEngine() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "message-layout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized MessageLayoutEngine getInstance() {
+        if (instance == null) {
+            instance = new MessageLayoutEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Computed layout for one message bubble
+     */
+    public static class BubbleLayout {
+        private final String text;
+        private final List<String> lines;
+        private final int width;
+        private final int height;
+        private final int lineHeight;
+
+        BubbleLayout(String text, List<String> lines, int width, int height, int lineHeight) {
+            this.text = text;
+            this.lines = Collections.unmodifiableList(lines);
+            this.width = width;
+            this.height = height;
+            this.lineHeight = lineHeight;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+
+        public int getLineCount() {
+            return lines.size();
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getLineHeight() {
+            return lineHeight;
+        }
+
+        public Dimension getPreferredSize() {
+            return new Dimension(width, height);
+        }
+    }
+
+    /**
+     * Cache key - the text itself is checked on lookup to guard against hash collisions
+     */
+    private static class LayoutKey {
+        private final int textHash;
+        private final int width;
+        private final int fontSize;
+
+        LayoutKey(String text, int width, Font font) {
+            this.textHash = text.hashCode();
+            this.width = width;
+            this.fontSize = font.getSize();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof LayoutKey)) return false;
+            LayoutKey other = (LayoutKey) obj;
+            return textHash == other.textHash && width == other.width && fontSize == other.fontSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * textHash + width) + fontSize;
+        }
+    }
+
+    /**
+     * Lays out a message synchronously, using the cache when possible
+     * Safe to call from any thread
+     * @param text Message text
+     * @param maxWidth Maximum bubble width including padding
+     * @param font Font used to render the text
+     * @return The bubble layout
+     */
+    public BubbleLayout layout(String text, int maxWidth, Font font) {
+        String safeText = text != null ? text : "";
+        LayoutKey key = new LayoutKey(safeText, maxWidth, font);
+
+        synchronized (cache) {
+            BubbleLayout cached = cache.get(key);
+            if (cached != null && cached.text.equals(safeText)) {
+                return cached;
+            }
+        }
+
+        BubbleLayout computed = measure(safeText, maxWidth, font);
+
+        synchronized (cache) {
+            cache.put(key, computed);
+        }
+        return computed;
+    }
+
+    /**
+     * Lays out a batch of messages on the worker thread
+     * @param texts Message texts, in display order
+     * @param maxWidth Maximum bubble width including padding
+     * @param font Font used to render the text
+     * @return Future completed with one layout per text, in the same order
+     */
+    public CompletableFuture<List<BubbleLayout>> layoutAsync(List<String> texts, int maxWidth, Font font) {
+        List<String> snapshot = new ArrayList<>(texts);
+        return CompletableFuture.supplyAsync(() -> {
+            List<BubbleLayout> layouts = new ArrayList<>(snapshot.size());
+            for (String text : snapshot) {
+                layouts.add(layout(text, maxWidth, font));
+            }
+            return layouts;
+        }, executor);
+    }
+
+    /**
+     * Clears all cached layouts
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private BubbleLayout measure(String text, int maxWidth, Font font) {
+        LineMetrics metrics = font.getLineMetrics("Xg", renderContext);
+        int lineHeight = (int) Math.ceil(metrics.getAscent() + metrics.getDescent() + metrics.getLeading());
+        float wrapWidth = Math.max(1, maxWidth - HORIZONTAL_PADDING);
+
+        List<String> lines = new ArrayList<>();
+        float longestLine = 0;
+
+        int paragraphStart = 0;
+        while (paragraphStart <= text.length()) {
+            int paragraphEnd = text.indexOf('\n', paragraphStart);
+            if (paragraphEnd < 0) {
+                paragraphEnd = text.length();
+            }
+
+            String paragraph = text.substring(paragraphStart, paragraphEnd);
+            if (paragraph.isEmpty()) {
+                lines.add("");
+            } else {
+                AttributedString attributed = new AttributedString(paragraph);
+                attributed.addAttribute(TextAttribute.FONT, font);
+                LineBreakMeasurer measurer = new LineBreakMeasurer(attributed.getIterator(), renderContext);
+
+                while (measurer.getPosition() < paragraph.length()) {
+                    int lineStart = measurer.getPosition();
+                    TextLayout line = measurer.nextLayout(wrapWidth);
+                    lines.add(paragraph.substring(lineStart, measurer.getPosition()));
+                    longestLine = Math.max(longestLine, line.getVisibleAdvance());
+                }
+            }
+
+            paragraphStart = paragraphEnd + 1;
+        }
+
+        int width = Math.max(MIN_WIDTH, Math.min((int) Math.ceil(longestLine) + HORIZONTAL_PADDING, maxWidth));
+        int height = lineHeight * Math.max(lines.size(), 1) + VERTICAL_PADDING;
+
+        return new BubbleLayout(text, lines, width, height, lineHeight);
+    }
+}
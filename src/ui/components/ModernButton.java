@@ -208,9 +208,26 @@ public class ModernButton extends JButton {
         
         // Get current color based on state
         Color currentColor = getCurrentColor();
+        boolean shadowVisible = showShadow && isEnabled() && !isPressed && buttonType != ButtonType.GHOST;
+
+        // Background comes from the shared slice cache (the solid gradient only stretches horizontally)
+        if (buttonType != ButtonType.GHOST || isHovered || isPressed) {
+            boolean hasGradient = buttonType != ButtonType.OUTLINE && buttonType != ButtonType.GHOST;
+            int corner = (cornerRadius + 1) / 2 + SHADOW_SIZE + 2;
+            NineSlice.paint(g2d, width, height, corner, !hasGradient,
+                    (sliceG2d, w, h) -> paintBackground(sliceG2d, w, h, currentColor, shadowVisible),
+                    "ModernButton", buttonType, cornerRadius, currentColor, shadowVisible);
+        }
+        
+        // Draw content (icon and/or text)
+        drawContent(g2d, width - SHADOW_SIZE, height - SHADOW_SIZE);
         
+        g2d.dispose();
+    }
+    
+    private void paintBackground(Graphics2D g2d, int width, int height, Color currentColor, boolean shadowVisible) {
         // Draw shadow if enabled
-        if (showShadow && isEnabled() && !isPressed && buttonType != ButtonType.GHOST) {
+        if (shadowVisible) {
             g2d.setColor(new Color(0, 0, 0, 20));
             g2d.fill(new RoundRectangle2D.Float(SHADOW_SIZE, SHADOW_SIZE, 
                 width - SHADOW_SIZE, height - SHADOW_SIZE, cornerRadius, cornerRadius));
@@ -229,10 +246,8 @@ public class ModernButton extends JButton {
                 cornerRadius, cornerRadius));
         } else if (buttonType == ButtonType.GHOST) {
             // Ghost button - only background on hover
-            if (isHovered || isPressed) {
-                g2d.setColor(currentColor);
-                g2d.fill(new RoundRectangle2D.Float(0, 0, width, height, cornerRadius, cornerRadius));
-            }
+            g2d.setColor(currentColor);
+            g2d.fill(new RoundRectangle2D.Float(0, 0, width, height, cornerRadius, cornerRadius));
         } else {
             // Solid button with gradient
             GradientPaint gradient = new GradientPaint(
@@ -243,11 +258,6 @@ public class ModernButton extends JButton {
             g2d.fill(new RoundRectangle2D.Float(0, 0, width - SHADOW_SIZE, height - SHADOW_SIZE, 
                 cornerRadius, cornerRadius));
         }
-        
-        // Draw content (icon and/or text)
-        drawContent(g2d, width - SHADOW_SIZE, height - SHADOW_SIZE);
-        
-        g2d.dispose();
     }
     
     private void drawContent(Graphics2D g2d, int width, int height) {
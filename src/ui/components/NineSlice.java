@@ -0,0 +1,152 @@
+package ui.components;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * NineSlice - Shared cache of pre-rendered rounded backgrounds
+ * A background is rendered once at its smallest stretchable size; painting then copies
+ * the corners as-is and stretches the edges and center to the requested size, instead of
+ * filling antialiased shapes, shadows and gradients on every paint.
+ * Backgrounds whose paint varies vertically (vertical gradients) are rendered at their
+ * full height and only stretched horizontally.
+ */
+public final class NineSlice {
+
+    private static final int MAX_CACHE_SIZE = 256;
+
+    private static final Map<Key, BufferedImage> cache = new LinkedHashMap<Key, BufferedImage>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, BufferedImage> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Paints a background at an arbitrary size; called once per cache entry
+     */
+    public interface Renderer {
+        void render(Graphics2D g2d, int width, int height);
+    }
+
+    private NineSlice() {
+    }
+
+    /**
+     * Paints a cached background stretched to the given size
+     * @param g Target graphics
+     * @param width Target width
+     * @param height Target height
+     * @param corner Size of the fixed corner band (must cover rounded corners, borders and shadow offset)
+     * @param stretchVertical false if the background varies along the y axis
+     * @param renderer Draws the background at a given size
+     * @param key Every value the renderer depends on (radius, colors, shadow, state...)
+     */
+    public static void paint(Graphics2D g, int width, int height, int corner, boolean stretchVertical,
+                             Renderer renderer, Object... key) {
+        int sourceWidth = corner * 2 + 1;
+        int sourceHeight = stretchVertical ? corner * 2 + 1 : height;
+
+        // Too small to benefit from slicing
+        if (width <= sourceWidth || height < sourceHeight || (stretchVertical && height == sourceHeight)) {
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            renderer.render(g2d, width, height);
+            g2d.dispose();
+            return;
+        }
+
+        int scale = Math.max(1, (int) Math.round(g.getTransform().getScaleX()));
+        BufferedImage source = getSource(new Key(key, corner, stretchVertical ? 0 : height, scale),
+                sourceWidth, sourceHeight, scale, renderer);
+
+        int s = scale;
+        int c = corner;
+        int right = width - c;
+        if (stretchVertical) {
+            int bottom = height - c;
+            int sb = sourceHeight - c;
+            // Corners
+            g.drawImage(source, 0, 0, c, c, 0, 0, c * s, c * s, null);
+            g.drawImage(source, right, 0, width, c, (c + 1) * s, 0, sourceWidth * s, c * s, null);
+            g.drawImage(source, 0, bottom, c, height, 0, sb * s, c * s, sourceHeight * s, null);
+            g.drawImage(source, right, bottom, width, height, (c + 1) * s, sb * s, sourceWidth * s, sourceHeight * s, null);
+            // Edges
+            g.drawImage(source, c, 0, right, c, c * s, 0, (c + 1) * s, c * s, null);
+            g.drawImage(source, c, bottom, right, height, c * s, sb * s, (c + 1) * s, sourceHeight * s, null);
+            g.drawImage(source, 0, c, c, bottom, 0, c * s, c * s, (c + 1) * s, null);
+            g.drawImage(source, right, c, width, bottom, (c + 1) * s, c * s, sourceWidth * s, (c + 1) * s, null);
+            // Center
+            g.drawImage(source, c, c, right, bottom, c * s, c * s, (c + 1) * s, (c + 1) * s, null);
+        } else {
+            // Full-height columns: left, stretched middle, right
+            g.drawImage(source, 0, 0, c, height, 0, 0, c * s, height * s, null);
+            g.drawImage(source, c, 0, right, height, c * s, 0, (c + 1) * s, height * s, null);
+            g.drawImage(source, right, 0, width, height, (c + 1) * s, 0, sourceWidth * s, height * s, null);
+        }
+    }
+
+    /**
+     * Clears all cached backgrounds
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static BufferedImage getSource(Key key, int width, int height, int scale, Renderer renderer) {
+        synchronized (cache) {
+            BufferedImage cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        BufferedImage image = new BufferedImage(width * scale, height * scale, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.scale(scale, scale);
+        renderer.render(g2d, width, height);
+        g2d.dispose();
+
+        synchronized (cache) {
+            cache.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Cache key: caller-supplied style values plus the slice geometry
+     */
+    private static class Key {
+        private final Object[] style;
+        private final int corner;
+        private final int fixedHeight;
+        private final int scale;
+
+        Key(Object[] style, int corner, int fixedHeight, int scale) {
+            this.style = style;
+            this.corner = corner;
+            this.fixedHeight = fixedHeight;
+            this.scale = scale;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return corner == other.corner && fixedHeight == other.fixedHeight && scale == other.scale
+                    && Arrays.equals(style, other.style);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * Arrays.hashCode(style) + corner) + fixedHeight) + scale;
+        }
+    }
+}
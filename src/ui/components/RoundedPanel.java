@@ -65,11 +65,24 @@ public class RoundedPanel extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        boolean gradient = hasGradient && gradientColor != null;
 
-        int width = getWidth();
-        int height = getHeight();
+        if (gradient && gradientDirection != GradientDirection.VERTICAL) {
+            // Gradient varies along both axes: no slice can be stretched
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            paintBackground(g2d, getWidth(), getHeight());
+        } else {
+            // Corners, border and shadow are pre-rendered once per style and stretched
+            int corner = (cornerRadius + 1) / 2 + Math.max(hasShadow ? shadowOffset : 0, borderWidth) + 2;
+            NineSlice.paint(g2d, getWidth(), getHeight(), corner, !gradient, this::paintBackground,
+                    "RoundedPanel", cornerRadius, backgroundColor, gradient ? gradientColor : null,
+                    borderColor, borderWidth, hasShadow ? shadowColor : null, shadowOffset);
+        }
 
+        g2d.dispose();
+    }
+
+    private void paintBackground(Graphics2D g2d, int width, int height) {
         // Adjust dimensions for shadow
         int paintWidth = hasShadow ? width - shadowOffset : width;
         int paintHeight = hasShadow ? height - shadowOffset : height;
@@ -95,8 +108,6 @@ public class RoundedPanel extends JPanel {
         if (borderColor != null && borderWidth > 0) {
             drawBorder(g2d, roundRect);
         }
-
-        g2d.dispose();
     }
 
     private void drawShadow(Graphics2D g2d, int width, int height) {
@@ -0,0 +1,154 @@
+package ui.components;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.RoundRectangle2D;
+
+/**
+ * SkeletonPanel - Placeholder rows shown while content is loading
+ * Paints grey bars (and optional avatar circles) shaped like the content they stand in
+ * for, with a light shimmer sweeping across them. The shimmer runs on the shared
+ * Animator only while the panel is displayed.
+ */
+public class SkeletonPanel extends JPanel {
+
+    private static final Color BASE_COLOR = new Color(235, 235, 235);
+    private static final Color HIGHLIGHT_COLOR = new Color(248, 248, 248);
+    private static final float SHIMMER_STEP = 0.015f; // ~1.1s per sweep
+
+    private final int rows;
+    private final int rowHeight;
+    private final int avatarSize;
+    private final boolean alternate;
+    private int padding = 20;
+
+    private final Animator.Animation shimmer = this::stepShimmer;
+    private float phase = 0f;
+
+    /**
+     * @param rows Number of placeholder rows
+     * @param rowHeight Height of a row
+     * @param avatarSize Diameter of the avatar circle at the start of each row (0 for none)
+     * @param alternate true to align every other row to the right, like received/sent messages
+     */
+    public SkeletonPanel(int rows, int rowHeight, int avatarSize, boolean alternate) {
+        this.rows = rows;
+        this.rowHeight = rowHeight;
+        this.avatarSize = avatarSize;
+        this.alternate = alternate;
+        setOpaque(false);
+        setPreferredSize(new Dimension(0, rows * rowHeight));
+        setMaximumSize(new Dimension(Integer.MAX_VALUE, rows * rowHeight));
+        setAlignmentX(Component.LEFT_ALIGNMENT);
+    }
+
+    /**
+     * @param padding Space left empty on both sides of the rows
+     */
+    public void setHorizontalPadding(int padding) {
+        this.padding = padding;
+        repaint();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        Animator.getInstance().start(this, shimmer);
+    }
+
+    @Override
+    public void removeNotify() {
+        Animator.getInstance().stop(shimmer);
+        super.removeNotify();
+    }
+
+    private boolean stepShimmer() {
+        phase += SHIMMER_STEP;
+        if (phase > 1f) {
+            phase = 0f;
+        }
+        repaint();
+        return true;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+
+        int width = getWidth();
+        if (width <= 0) {
+            return;
+        }
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        Area shapes = buildShapes(width);
+        g2d.setColor(BASE_COLOR);
+        g2d.fill(shapes);
+
+        // Highlight band moving left to right, clipped to the placeholder shapes
+        int band = Math.max(80, width / 3);
+        float x = -band + phase * (width + band * 2);
+        g2d.setClip(shapes);
+        g2d.setPaint(new LinearGradientPaint(x, 0, x + band, 0, new float[]{0f, 0.5f, 1f},
+                new Color[]{BASE_COLOR, HIGHLIGHT_COLOR, BASE_COLOR}));
+        g2d.fillRect(0, 0, width, getHeight());
+
+        g2d.dispose();
+    }
+
+    private Area buildShapes(int width) {
+        Area area = new Area();
+        int lineHeight = 10;
+
+        for (int row = 0; row < rows; row++) {
+            int top = row * rowHeight;
+            boolean right = alternate && row % 2 == 1;
+
+            // Vary bar lengths a little so the rows do not look identical
+            float ratio = 0.55f + ((row * 37) % 30) / 100f;
+
+            if (right) {
+                int bubbleWidth = (int) ((width - padding * 2) * ratio * 0.7f);
+                int bubbleHeight = rowHeight - 20;
+                area.add(new Area(new RoundRectangle2D.Float(width - padding - bubbleWidth, top + 10,
+                        bubbleWidth, bubbleHeight, 18, 18)));
+                continue;
+            }
+
+            int textLeft = padding;
+            if (avatarSize > 0) {
+                area.add(new Area(new Ellipse2D.Float(padding, top + (rowHeight - avatarSize) / 2f,
+                        avatarSize, avatarSize)));
+                textLeft += avatarSize + 12;
+            }
+
+            int textWidth = width - textLeft - padding;
+            if (textWidth <= 0) {
+                continue;
+            }
+
+            if (alternate) {
+                // Received message bubble
+                int bubbleWidth = (int) (textWidth * ratio * 0.7f);
+                area.add(new Area(new RoundRectangle2D.Float(textLeft, top + 10,
+                        bubbleWidth, rowHeight - 20, 18, 18)));
+            } else if (rowHeight < lineHeight * 3) {
+                // Single line (a name or a label)
+                area.add(new Area(new RoundRectangle2D.Float(textLeft, top + (rowHeight - lineHeight) / 2f,
+                        textWidth * ratio, lineHeight, lineHeight, lineHeight)));
+            } else {
+                // Title and subtitle lines
+                int middle = top + rowHeight / 2;
+                area.add(new Area(new RoundRectangle2D.Float(textLeft, middle - lineHeight - 3,
+                        textWidth * ratio * 0.7f, lineHeight, lineHeight, lineHeight)));
+                area.add(new Area(new RoundRectangle2D.Float(textLeft, middle + 3,
+                        textWidth * ratio, lineHeight, lineHeight, lineHeight)));
+            }
+        }
+        return area;
+    }
+}
@@ -4,12 +4,13 @@ import com.google.firebase.auth.ActionCodeSettings;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.vibeapp.VibeApp;
+import services.AuthPipeline;
 import services.EmailService;
 import services.FirebaseService;
+import utils.AssetManager;
 import utils.ValidationUtils;
 import ui.components.ModernButton;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
@@ -17,10 +18,9 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.util.regex.Pattern;
 
-public class ForgotPasswordPage extends JPanel {
+public class ForgotPasswordPage extends JPanel implements PageLifecycle {
     // Couleurs EMSI avec des variations
     private final Color EMSI_GREEN = new Color(0, 150, 70);
     private final Color EMSI_GREEN_LIGHT = new Color(0, 180, 85);
@@ -37,6 +37,9 @@ public class ForgotPasswordPage extends JPanel {
     private java.util.List<Bubble> bubbles = new java.util.ArrayList<>();
     private Timer bubbleTimer;
 
+    // Reset email being sent on the auth pipeline
+    private AuthPipeline.Handle sendTask;
+
     public ForgotPasswordPage() {
         /*
         setTitle("VibeApp - Mot de passe oublié");
@@ -150,6 +153,103 @@ public class ForgotPasswordPage extends JPanel {
         bubbleTimer.start();
     }
 
+    /**
+     * Sends the reset email on the auth worker (the SMTP exchange can take several seconds)
+     * @param sendLinkButton The button that was clicked (disabled while the email is sent)
+     */
+    private void sendResetEmail(JButton sendLinkButton) {
+        String email = emailField.getText().trim();
+        EmailSender emailSender = new EmailSender(email);
+
+        sendLinkButton.setEnabled(false);
+        sendLinkButton.setText("Envoi en cours...");
+
+        sendTask = AuthPipeline.getInstance().submit("reset:" + email.toLowerCase(),
+                progress -> emailSender.sendResetEmail(),
+                new AuthPipeline.Callback<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean sent) {
+                        sendLinkButton.setEnabled(true);
+                        sendLinkButton.setText("Envoyer le lien");
+
+                        if (!sent) {
+                            JOptionPane.showMessageDialog(
+                                    ForgotPasswordPage.this,
+                                    "Erreur lors de l'envoi de l'email. Veuillez réessayer.",
+                                    "Erreur",
+                                    JOptionPane.ERROR_MESSAGE
+                            );
+                            return;
+                        }
+
+                        // Showing the verification code in the console for testing
+                        System.out.println("VERIFICATION CODE: " + emailSender.getVerificationCode());
+
+                        // Show email sent confirmation
+                        removeAll(); // Remove all components from this panel
+                        add(new EmailSentPanel(email), BorderLayout.CENTER); // Add the new panel
+                        revalidate();
+                        repaint();
+
+                        // Open verification code page after a brief delay
+                        Timer openVerificationTimer = new Timer(1500, ev -> {
+                            // Open the verification code page
+                            VerificationCodePage verificationPage = new VerificationCodePage(
+                                    email,
+                                    emailSender.getVerificationCode()
+                            );
+                            verificationPage.setVisible(true);
+
+                            // If using VibeApp navigation framework:
+                            // VibeApp.getInstance().showPage("VerificationCode");
+                        });
+                        openVerificationTimer.setRepeats(false);
+                        openVerificationTimer.start();
+                    }
+
+                    @Override
+                    public void onFailure(Exception error) {
+                        sendLinkButton.setEnabled(true);
+                        sendLinkButton.setText("Envoyer le lien");
+                        JOptionPane.showMessageDialog(
+                                ForgotPasswordPage.this,
+                                error instanceof AuthPipeline.RateLimitedException
+                                        ? error.getMessage()
+                                        : "Erreur lors de l'envoi de l'email. Veuillez réessayer.",
+                                "Erreur",
+                                JOptionPane.ERROR_MESSAGE
+                        );
+                    }
+                });
+    }
+
+    @Override
+    public void onHide() {
+        cancelSend();
+    }
+
+    /**
+     * Cancels an email being sent (the user navigated away)
+     */
+    private void cancelSend() {
+        if (sendTask != null) {
+            sendTask.cancel();
+            sendTask = null;
+        }
+    }
+
+    /**
+     * Called by VibeApp when the page is released: stops the background animation
+     */
+    @Override
+    public void dispose() {
+        cancelSend();
+        if (bubbleTimer != null) {
+            bubbleTimer.stop();
+            bubbleTimer = null;
+        }
+    }
+
     private Image createLogo() {
         // Créer une image dynamiquement au lieu de charger depuis un fichier
         BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
@@ -238,30 +338,11 @@ public class ForgotPasswordPage extends JPanel {
 
         try {
             // Utiliser le même chemin que dans ajouterImage()
-            File logoFile = new File("pictures/logoVibeApp.png");
-            if (logoFile.exists()) {
-                // Charger le logo original avec haute qualité
-                BufferedImage originalImage = ImageIO.read(logoFile);
-
-                // Redimensionnement de haute qualité avec préservation de la netteté
-                int targetWidth = 200; // Augmenter la taille pour plus de détails
-                double aspectRatio = (double) originalImage.getHeight() / originalImage.getWidth();
-                int targetHeight = (int) (targetWidth * aspectRatio);
-
-                // Créer une image redimensionnée de très haute qualité
-                BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D g2dResized = resizedImage.createGraphics();
-
-                // Configuration de rendu de TRÈS haute qualité
-                g2dResized.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g2dResized.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                g2dResized.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2dResized.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-                g2dResized.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
-
-                // Dessiner l'image redimensionnée avec un algorithme de haute qualité
-                g2dResized.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-                g2dResized.dispose();
+            // Logo décodé et redimensionné une seule fois (cache partagé)
+            BufferedImage resizedImage = AssetManager.getInstance().getImageForWidth(AssetManager.LOGO_PATH, 200);
+            if (resizedImage != null) {
+                int targetWidth = resizedImage.getWidth();
+                int targetHeight = resizedImage.getHeight();
 
                 // Créer un panneau personnalisé pour le logo avec transition
                 JPanel logoContentPanel = new JPanel() {
@@ -346,7 +427,7 @@ public class ForgotPasswordPage extends JPanel {
 
                 System.out.println("Logo chargé avec succès pour le panneau gauche");
             } else {
-                System.out.println("Logo introuvable pour le panneau gauche: " + logoFile.getAbsolutePath());
+                System.out.println("Logo introuvable pour le panneau gauche: " + AssetManager.LOGO_PATH);
                 // Fallback au logo dessiné manuellement
                 JLabel fallbackLabel = new JLabel("com.vibeapp.VibeApp");
                 fallbackLabel.setFont(new Font("Arial", Font.BOLD, 28));
@@ -567,40 +648,7 @@ public class ForgotPasswordPage extends JPanel {
         sendLinkButton.setMaximumSize(new Dimension(Integer.MAX_VALUE, 45));
         sendLinkButton.addActionListener(e -> {
             if (validateEmail()) {
-                // Create and send the email with verification code
-                EmailSender emailSender = new EmailSender(emailField.getText().trim());
-                if (emailSender.sendResetEmail()) {
-                    // Showing the verification code in the console for testing
-                    System.out.println("VERIFICATION CODE: " + emailSender.getVerificationCode());
-
-                    // Show email sent confirmation
-                    removeAll(); // Remove all components from this panel
-                    add(new EmailSentPanel(emailField.getText().trim()), BorderLayout.CENTER); // Add the new panel
-                    revalidate();
-                    repaint();
-
-                    // Open verification code page after a brief delay
-                    Timer openVerificationTimer = new Timer(1500, ev -> {
-                        // Open the verification code page
-                        VerificationCodePage verificationPage = new VerificationCodePage(
-                                emailField.getText().trim(),
-                                emailSender.getVerificationCode()
-                        );
-                        verificationPage.setVisible(true);
-
-                        // If using VibeApp navigation framework:
-                        // VibeApp.getInstance().showPage("VerificationCode");
-                    });
-                    openVerificationTimer.setRepeats(false);
-                    openVerificationTimer.start();
-                } else {
-                    JOptionPane.showMessageDialog(
-                            this,
-                            "Erreur lors de l'envoi de l'email. Veuillez réessayer.",
-                            "Erreur",
-                            JOptionPane.ERROR_MESSAGE
-                    );
-                }
+                sendResetEmail(sendLinkButton);
             }
         });
 
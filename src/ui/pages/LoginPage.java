@@ -1,10 +1,15 @@
 package ui.pages;
 
 import com.vibeapp.VibeApp;
+import services.AuthPipeline;
+import services.AuthService;
 import services.FirebaseService;
+import services.SessionService;
+import services.UserIndexService;
 import ui.components.ModernButton;
+import utils.AssetManager;
+import utils.PasswordUtils;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
@@ -12,14 +17,12 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.security.MessageDigest;
-import java.nio.charset.StandardCharsets;
 import com.google.firebase.database.*;
 
-public class LoginPage extends JPanel {
+public class LoginPage extends JPanel implements PageLifecycle {
     // EMSI Colors
     private final Color EMSI_GREEN = new Color(0, 150, 70);
     private final Color EMSI_GREEN_LIGHT = new Color(0, 180, 85);
@@ -33,6 +36,11 @@ public class LoginPage extends JPanel {
     // UI Components
     private JTextField emailField;
     private JPasswordField passwordField;
+    private JCheckBox rememberMeCheckBox;
+    private ModernButton loginButton;
+
+    // Login running on the auth pipeline
+    private AuthPipeline.Handle loginTask;
     private JPanel mainPanel;
     private boolean passwordVisible = false;
 
@@ -155,6 +163,23 @@ public class LoginPage extends JPanel {
         bubbleTimer.start();
     }
 
+    @Override
+    public void onHide() {
+        cancelLogin();
+    }
+
+    /**
+     * Called by VibeApp when the page is released: stops the background animation
+     */
+    @Override
+    public void dispose() {
+        cancelLogin();
+        if (bubbleTimer != null) {
+            bubbleTimer.stop();
+            bubbleTimer = null;
+        }
+    }
+
     private void createMainPanel() {
         mainPanel = new JPanel() {
             @Override
@@ -270,7 +295,7 @@ public class LoginPage extends JPanel {
         
         // Responsive form panel size
         int formWidth = Math.min(400, Math.max(300, width - 100));
-        int formHeight = Math.min(500, Math.max(400, height - 150));
+        int formHeight = Math.min(530, Math.max(430, height - 150));
         formPanel.setMaximumSize(new Dimension(formWidth, formHeight));
         formPanel.setPreferredSize(new Dimension(formWidth, formHeight));
 
@@ -307,8 +332,16 @@ public class LoginPage extends JPanel {
         passwordField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         passwordField.setEchoChar('\u2022');
 
+        // Remember me
+        rememberMeCheckBox = new JCheckBox("Se souvenir de moi", false);
+        rememberMeCheckBox.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        rememberMeCheckBox.setForeground(EMSI_GRAY);
+        rememberMeCheckBox.setOpaque(false);
+        rememberMeCheckBox.setFocusPainted(false);
+        rememberMeCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
         // Login button
-        ModernButton loginButton = ModernButton.createPrimary("Se connecter");
+        loginButton = ModernButton.createPrimary("Se connecter");
         loginButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         loginButton.setMaximumSize(new Dimension(Integer.MAX_VALUE, 45));
 
@@ -348,7 +381,9 @@ public class LoginPage extends JPanel {
         formPanel.add(passwordLabel);
         formPanel.add(Box.createVerticalStrut(8));
         formPanel.add(passwordContainer);
-        formPanel.add(Box.createVerticalStrut(20));
+        formPanel.add(Box.createVerticalStrut(10));
+        formPanel.add(rememberMeCheckBox);
+        formPanel.add(Box.createVerticalStrut(10));
         formPanel.add(loginButton);
         formPanel.add(Box.createVerticalStrut(10));
         formPanel.add(forgotPasswordButton);
@@ -368,20 +403,11 @@ public class LoginPage extends JPanel {
         logoPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 200));
 
         try {
-            File logoFile = new File("pictures/logoVibeApp.png");
-            if (logoFile.exists()) {
-                BufferedImage originalImage = ImageIO.read(logoFile);
-                int targetWidth = 200;
-                double aspectRatio = (double) originalImage.getHeight() / originalImage.getWidth();
-                int targetHeight = (int) (targetWidth * aspectRatio);
-
-                BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D g2dResized = resizedImage.createGraphics();
-                g2dResized.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g2dResized.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                g2dResized.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2dResized.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-                g2dResized.dispose();
+            // Decoded and scaled once, shared with the other pages
+            BufferedImage resizedImage = AssetManager.getInstance().getImageForWidth(AssetManager.LOGO_PATH, 200);
+            if (resizedImage != null) {
+                int targetWidth = resizedImage.getWidth();
+                int targetHeight = resizedImage.getHeight();
 
                 JPanel logoContentPanel = new AnimatedLogoPanel(resizedImage, targetWidth, targetHeight);
                 logoPanel.add(logoContentPanel);
@@ -486,82 +512,184 @@ public class LoginPage extends JPanel {
     }
 
     private void authenticateUser(String email, String password) {
-        try {
-            FirebaseService firebaseService = FirebaseService.getInstance();
-            String hashedPassword = hashPassword(password);
+        boolean remember = rememberMeCheckBox.isSelected();
+        setLoginInProgress(true);
+
+        // Firebase reads and hashing run on the auth worker; the result comes back on the EDT
+        loginTask = AuthPipeline.getInstance().submit(loginKey(email),
+                progress -> verifyCredentials(email, password, remember, progress),
+                new AuthPipeline.Callback<String>() {
+                    @Override
+                    public void onSuccess(String userId) {
+                        setLoginInProgress(false);
+                        if (userId != null) {
+                            AuthPipeline.getInstance().resetAttempts(loginKey(email));
+                            passwordField.setText("");
+                            VibeApp.getInstance().showMainChat(userId);
+                        } else {
+                            JOptionPane.showMessageDialog(
+                                    LoginPage.this,
+                                    "Identifiants incorrects. Veuillez vérifier votre email et mot de passe.",
+                                    "Erreur de connexion",
+                                    JOptionPane.ERROR_MESSAGE
+                            );
+                        }
+                    }
 
-            DatabaseReference usersRef = firebaseService.getDatabase().getReference("users");
-            Query query = usersRef.orderByChild("email").equalTo(email);
+                    @Override
+                    public void onFailure(Exception error) {
+                        setLoginInProgress(false);
+                        if (error instanceof AccountBeingDeletedException) {
+                            JOptionPane.showMessageDialog(
+                                    LoginPage.this,
+                                    "Ce compte est en cours de suppression et ne peut plus être utilisé.\n" +
+                                    "La suppression se termine en arrière-plan.",
+                                    "Compte en cours de suppression",
+                                    JOptionPane.INFORMATION_MESSAGE
+                            );
+                            return;
+                        }
+                        if (error instanceof AuthPipeline.RateLimitedException) {
+                            JOptionPane.showMessageDialog(
+                                    LoginPage.this,
+                                    error.getMessage(),
+                                    "Erreur de connexion",
+                                    JOptionPane.WARNING_MESSAGE
+                            );
+                            return;
+                        }
+                        error.printStackTrace();
+                        JOptionPane.showMessageDialog(
+                                LoginPage.this,
+                                "Erreur de connexion à Firebase: " + error.getMessage(),
+                                "Erreur",
+                                JOptionPane.ERROR_MESSAGE
+                        );
+                    }
 
-            final CountDownLatch latch = new CountDownLatch(1);
-            final boolean[] authSuccess = {false};
-            final String[] userId = {null};
+                    @Override
+                    public void onProgress(String message) {
+                        loginButton.setText(message);
+                    }
+                });
+    }
 
-            query.addListenerForSingleValueEvent(new ValueEventListener() {
+    /**
+     * Checks the credentials (runs on the auth worker)
+     * @return The user ID, or null if the email or password is wrong
+     * @throws IOException if Firebase could not be read (reported as a connection problem, not as wrong credentials)
+     * @throws AccountBeingDeletedException if the account's deletion was started and is now being finished
+     */
+    private String verifyCredentials(String email, String password, boolean remember,
+                                     AuthPipeline.Progress progress) throws Exception {
+        FirebaseService firebaseService = FirebaseService.getInstance();
+
+        // Single key read in the email index, then the user's own node
+        String indexedUserId = UserIndexService.getInstance().findUserIdByEmail(email);
+        if (indexedUserId == null || progress.isCancelled()) {
+            return null;
+        }
+        progress.report("Vérification...");
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final DataSnapshot[] snapshot = {null};
+        final String[] readError = {null};
+
+        DatabaseReference userRef = firebaseService.getDatabase().getReference("users/" + indexedUserId);
+        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot userSnapshot) {
+                snapshot[0] = userSnapshot;
+                latch.countDown();
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                System.err.println("Error authenticating user: " + databaseError.getMessage());
+                readError[0] = databaseError.getMessage();
+                latch.countDown();
+            }
+        });
+
+        if (!latch.await(5, TimeUnit.SECONDS)) {
+            throw new IOException("Délai d'attente dépassé");
+        }
+        if (readError[0] != null) {
+            throw new IOException(readError[0]);
+        }
+        DataSnapshot userSnapshot = snapshot[0];
+        if (userSnapshot == null || !userSnapshot.exists()) {
+            return null;
+        }
+
+        // One check, with the scheme named by the stored hash
+        String storedHash = AuthService.readPasswordHash(userSnapshot);
+        if (!PasswordUtils.verifyPassword(password, storedHash) || progress.isCancelled()) {
+            return null;
+        }
+
+        // An account whose deletion was interrupted only gets its deletion finished
+        if (userSnapshot.hasChild(FirebaseService.DELETION_MARKER)) {
+            firebaseService.deleteUser(indexedUserId, new FirebaseService.FirebaseEmailCallback() {
                 @Override
-                public void onDataChange(DataSnapshot dataSnapshot) {
-                    if (dataSnapshot.exists()) {
-                        for (DataSnapshot userSnapshot : dataSnapshot.getChildren()) {
-                            String storedPasswordHash = userSnapshot.child("password").getValue(String.class);
-                            if (storedPasswordHash != null && storedPasswordHash.equals(hashedPassword)) {
-                                authSuccess[0] = true;
-                                userId[0] = userSnapshot.getKey();
-                                break;
-                            }
-                        }
-                    }
-                    latch.countDown();
+                public void onSuccess() {
+                    System.out.println("Interrupted account deletion completed");
                 }
 
                 @Override
-                public void onCancelled(DatabaseError databaseError) {
-                    System.err.println("Error authenticating user: " + databaseError.getMessage());
-                    latch.countDown();
+                public void onFailure(String errorMessage) {
+                    System.err.println(errorMessage);
                 }
             });
+            throw new AccountBeingDeletedException();
+        }
 
-            try {
-                latch.await(5, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        String username = userSnapshot.child("username").getValue(String.class);
+        if (username == null || username.isEmpty()) {
+            username = userSnapshot.child("prenom").getValue(String.class)
+                    + " " + userSnapshot.child("nom").getValue(String.class);
+        }
 
-            if (authSuccess[0]) {
-                VibeApp.getInstance().showMainChat(userId[0]);
-            } else {
-                JOptionPane.showMessageDialog(
-                        this,
-                        "Identifiants incorrects. Veuillez vérifier votre email et mot de passe.",
-                        "Erreur de connexion",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
+        // Migrate legacy hashes, or ones not at the shared cost, while the password is at hand
+        AuthService.upgradePasswordHash(userSnapshot, password, storedHash);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(
-                    this,
-                    "Erreur de connexion à Firebase: " + e.getMessage(),
-                    "Erreur",
-                    JOptionPane.ERROR_MESSAGE
-            );
+        // Remember the session so the next launch skips this screen
+        if (remember) {
+            SessionService.getInstance().saveSession(indexedUserId, email, username,
+                    AuthService.readCredentialVersion(userSnapshot));
+        } else {
+            SessionService.getInstance().clearSession();
         }
+        return indexedUserId;
     }
 
-    private String hashPassword(String password) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = md.digest(password.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashedBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Integer.toString(password.hashCode());
+    /**
+     * Thrown (through onFailure) when the credentials belong to an account being deleted
+     */
+    private static class AccountBeingDeletedException extends Exception {
+        AccountBeingDeletedException() {
+            super("Account deletion in progress");
+        }
+    }
+
+    private static String loginKey(String email) {
+        return "login:" + email.trim().toLowerCase();
+    }
+
+    private void setLoginInProgress(boolean inProgress) {
+        loginButton.setEnabled(!inProgress);
+        loginButton.setText(inProgress ? "Connexion..." : "Se connecter");
+        setCursor(inProgress ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    /**
+     * Cancels a login in progress (the user navigated away)
+     */
+    private void cancelLogin() {
+        if (loginTask != null) {
+            loginTask.cancel();
+            loginTask = null;
+            setLoginInProgress(false);
         }
     }
 
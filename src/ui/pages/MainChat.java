@@ -7,12 +7,16 @@ import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.Query;
 
+import services.ChatService;
 import services.FirebaseService;
 import ui.components.*;
 import ui.components.ModernButton;
 import models.Group;
 import models.User;
 import services.GroupService;
+import services.LocalSnapshotStore;
+import services.SessionService;
+import utils.AssetManager;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -35,11 +39,16 @@ import java.util.concurrent.TimeUnit;
 import java.awt.geom.RoundRectangle2D;
 import javax.swing.plaf.basic.BasicScrollBarUI;
 
-public class MainChat extends JPanel {
+public class MainChat extends JPanel implements PageLifecycle {
     // Constants
     private static final int EXPANDED_SIDEBAR_WIDTH = 280;
     private static final int COLLAPSED_SIDEBAR_WIDTH = 80;
     private static final int TYPING_TIMEOUT = 2000; // milliseconds
+    private static final long SIDEBAR_ANIMATION_MS = 200;
+    private static final int MAX_BUBBLE_WIDTH = 300;
+    private static final int MIN_BUBBLE_WIDTH = 160;
+    private static final int BUBBLE_CHROME_WIDTH = 150; // avatar, spacer and paddings around a bubble
+    private static final long MESSAGE_GROUP_WINDOW = 60 * 1000; // consecutive messages within a minute share a header
 
 
     // Colors
@@ -113,9 +122,37 @@ public class MainChat extends JPanel {
     private javax.swing.Timer typingTimer;
     private javax.swing.Timer timer;
     private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
+    private SidebarPlaceholder sidebarPlaceholder; // stands in for the sidebar while it animates
+    private Animator.Animation sidebarAnimation;
     private GroupService groupService;
 
     private ValueEventListener currentMessagesListener = null;
+    private Query currentMessagesQuery = null;
+
+    // Long-lived Firebase listeners, detached in cleanup()
+    private DatabaseReference userChatsRef;
+    private ValueEventListener userChatsListener;
+    private DatabaseReference currentTypingRef;
+    private ValueEventListener currentTypingListener;
+
+    // Message layout (measured off the EDT, reused on resize)
+    private final MessageLayoutEngine layoutEngine = MessageLayoutEngine.getInstance();
+    private volatile int bubbleMaxWidth = MAX_BUBBLE_WIDTH;
+    private final Map<JTextArea, String> renderedBubbles = new LinkedHashMap<>();
+
+    // Run grouping state for the message currently being appended
+    private String lastRenderedSenderId = null;
+    private long lastRenderedTimestamp = 0;
+
+    // Profile widgets hydrated in place once the user info arrives
+    private AvatarPanel profileAvatar;
+    private JLabel profileNameLabel;
+    private JPanel profileInfoPanel;
+    private SkeletonPanel profileNameSkeleton;
+
+    // Loading placeholders, removed when their first data arrives
+    private SkeletonPanel chatListSkeleton;
+    private SkeletonPanel messageSkeleton;
 
     /**
      * Creates a new MainChat panel for the specified user
@@ -128,8 +165,17 @@ public class MainChat extends JPanel {
 
         initializeFirebase();
         initializeGroupService();
-        loadCurrentUserInfoSync();
+
+        // Show the remembered profile name until the fresh one is loaded
+        SessionService.Session session = SessionService.getInstance().loadSession();
+        if (session != null && userId.equals(session.getUserId()) && session.getUsername() != null
+                && !session.getUsername().isEmpty()) {
+            currentUsername = session.getUsername();
+        }
+
+        // Build the shell right away; profile and chats hydrate their skeletons as data arrives
         initUI();
+        loadCurrentUserInfo();
         loadChats();
         setupTypingTimer();
         
@@ -162,54 +208,8 @@ public class MainChat extends JPanel {
     }
 
     /**
-     * Loads current user information from Firebase
+     * Loads current user information from Firebase and hydrates the profile panel
      */
-    private void loadCurrentUserInfoSync() {
-        try {
-            DatabaseReference userRef = firebaseService.getDatabase()
-                    .getReference("users/" + currentUserId);
-
-            CountDownLatch latch = new CountDownLatch(1);
-
-            userRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot dataSnapshot) {
-                    if (dataSnapshot.exists()) {
-                        currentUsername = dataSnapshot.child("username").getValue(String.class);
-                        if (currentUsername == null || currentUsername.isEmpty()) {
-                            // If username is not set, use the combination of nom and prenom
-                            String nom = dataSnapshot.child("nom").getValue(String.class);
-                            String prenom = dataSnapshot.child("prenom").getValue(String.class);
-                            currentUsername = prenom + " " + nom;
-                        }
-
-                        // Store user info in cache
-                        userInfoCache.put(currentUserId, new UserInfo(
-                                currentUserId,
-                                currentUsername,
-                                dataSnapshot.child("email").getValue(String.class)
-                        ));
-
-                        // Update online status
-                        updateOnlineStatus(true);
-                    }
-                    latch.countDown();
-                }
-
-                @Override
-                public void onCancelled(DatabaseError databaseError) {
-                    System.err.println("Error loading user info: " + databaseError.getMessage());
-                    latch.countDown();
-                }
-            });
-
-            latch.await(5, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("Error loading user info: " + e.getMessage());
-        }
-    }
-
     private void loadCurrentUserInfo() {
         try {
             DatabaseReference userRef = firebaseService.getDatabase()
@@ -358,30 +358,33 @@ public class MainChat extends JPanel {
         panel.setBorder(new EmptyBorder(20, 20, 20, 20));
         panel.setBackground(Color.WHITE);
 
-        // User avatar
+        // User avatar (initials and image are set by updateProfileDisplay once the user info is loaded)
         AvatarPanel avatarPanel = new AvatarPanel(45, generateAvatarColor(currentUserId));
-
-        // Set initials from username
-        if (currentUsername != null && !currentUsername.isEmpty()) {
-            avatarPanel.setInitials(getInitials(currentUsername));
-        }
-
-        // Check if user has a profile image and load it
-        loadUserProfileImage(avatarPanel, currentUserId);
+        profileAvatar = avatarPanel;
 
         // User info panel
         JPanel userInfoPanel = new JPanel(new BorderLayout(4, 0));
         userInfoPanel.setOpaque(false);
+        profileInfoPanel = userInfoPanel;
 
         JLabel nameLabel = new JLabel(currentUsername);
         nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
         nameLabel.setForeground(new Color(50, 50, 50));
+        profileNameLabel = nameLabel;
 
         JLabel statusLabel = new JLabel("● En ligne");
         statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         statusLabel.setForeground(EMSI_GREEN);
 
-        userInfoPanel.add(nameLabel, BorderLayout.NORTH);
+        if (currentUsername != null && !currentUsername.isEmpty()) {
+            avatarPanel.setInitials(getInitials(currentUsername));
+            userInfoPanel.add(nameLabel, BorderLayout.NORTH);
+        } else {
+            // Name not loaded yet
+            profileNameSkeleton = new SkeletonPanel(1, 20, 0, false);
+            profileNameSkeleton.setHorizontalPadding(0);
+            userInfoPanel.add(profileNameSkeleton, BorderLayout.NORTH);
+        }
         userInfoPanel.add(statusLabel, BorderLayout.CENTER);
 
         // Create button panel for toggle and settings
@@ -680,12 +683,27 @@ public class MainChat extends JPanel {
         loadCurrentUserInfo();
     }
     
+    /**
+     * Shows the loaded user name and avatar in the profile panel, replacing its skeleton
+     */
     private void updateProfileDisplay() {
-        // Rebuild the sidebar to reflect any profile changes
-        sidebarPanel.removeAll();
-        createSidebar();
-        sidebarPanel.revalidate();
-        sidebarPanel.repaint();
+        if (profileNameLabel == null) {
+            return;
+        }
+
+        profileNameLabel.setText(currentUsername);
+        if (profileNameSkeleton != null) {
+            profileInfoPanel.remove(profileNameSkeleton);
+            profileInfoPanel.add(profileNameLabel, BorderLayout.NORTH);
+            profileNameSkeleton = null;
+        }
+        profileAvatar.setInitials(getInitials(currentUsername));
+
+        // Reload the image as it may have changed in the settings
+        loadUserProfileImage(profileAvatar, currentUserId);
+
+        profileInfoPanel.revalidate();
+        profileInfoPanel.repaint();
     }
 
     /**
@@ -865,6 +883,23 @@ public class MainChat extends JPanel {
         // Add custom repaint manager to reduce unnecessary repaints
         RepaintManager repaintManager = RepaintManager.currentManager(chatListPanel);
         repaintManager.setDoubleBufferingEnabled(true);
+
+        // Placeholder rows until the first chats are loaded
+        chatListSkeleton = new SkeletonPanel(6, 80, 50, false);
+        chatListPanel.add(chatListSkeleton);
+    }
+
+    /**
+     * Removes the chat list placeholder rows (must be called on the EDT)
+     */
+    private void removeChatListSkeleton() {
+        if (chatListSkeleton == null) {
+            return;
+        }
+        chatListPanel.remove(chatListSkeleton);
+        chatListSkeleton = null;
+        chatListPanel.revalidate();
+        chatListPanel.repaint();
     }
 
 
@@ -957,17 +992,9 @@ public class MainChat extends JPanel {
 
         // Create icon
         JLabel iconLabel;
-        File logoFile = new File("pictures/logoVibeApp.png");
-        if (logoFile.exists()) {
-            try {
-                BufferedImage logoImage = ImageIO.read(logoFile);
-                Image scaledLogo = logoImage.getScaledInstance(160, 160, Image.SCALE_SMOOTH);
-                iconLabel = new JLabel(new ImageIcon(scaledLogo));
-            } catch (Exception e) {
-                iconLabel = new JLabel("VibeApp");
-                iconLabel.setFont(new Font("Segoe UI", Font.BOLD, 64));
-                iconLabel.setForeground(EMSI_GREEN);
-            }
+        ImageIcon logoIcon = AssetManager.getInstance().getIcon(AssetManager.LOGO_PATH, 160, 160);
+        if (logoIcon != null) {
+            iconLabel = new JLabel(logoIcon);
         } else {
             iconLabel = new JLabel("VibeApp");
             iconLabel.setFont(new Font("Segoe UI", Font.BOLD, 64));
@@ -1012,9 +1039,12 @@ public class MainChat extends JPanel {
         // Create message input panel
         JPanel inputPanel = createMessageInputPanel();
 
+        // Placeholder bubbles until the first messages are rendered
+        messageSkeleton = new SkeletonPanel(6, 64, 30, true);
+
         // Add components to chat panel
         chatPanel.add(chatInfoPanel, BorderLayout.NORTH);
-        chatPanel.add(messageScrollPane, BorderLayout.CENTER);
+        chatPanel.add(messageSkeleton, BorderLayout.CENTER);
         chatPanel.add(inputPanel, BorderLayout.SOUTH);
 
         chatPanel.revalidate();
@@ -1925,10 +1955,13 @@ public class MainChat extends JPanel {
     private void loadChats() {
         try {
             // Reference to users/<userId>/chats to get the list of chat IDs
-            DatabaseReference userChatsRef = firebaseService.getDatabase()
+            if (userChatsRef != null && userChatsListener != null) {
+                userChatsRef.removeEventListener(userChatsListener);
+            }
+            userChatsRef = firebaseService.getDatabase()
                     .getReference("users/" + currentUserId + "/chats");
 
-            userChatsRef.addValueEventListener(new ValueEventListener() {
+            userChatsListener = userChatsRef.addValueEventListener(new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot dataSnapshot) {
                     // Store current chats to avoid clearing if no changes
@@ -1948,22 +1981,30 @@ public class MainChat extends JPanel {
                         }
                     }
                     
+                    if (newChatIds.isEmpty()) {
+                        // Nothing to hydrate, drop the placeholders
+                        SwingUtilities.invokeLater(() -> removeChatListSkeleton());
+                    }
+
                     if (!newChatIds.equals(currentChatIds)) {
                         SwingUtilities.invokeLater(() -> {
+                            // Keep the placeholder rows until the first chat item replaces them
                             chatListPanel.removeAll();
+                            if (chatListSkeleton != null) {
+                                chatListPanel.add(chatListSkeleton);
+                            }
                             chatListPanel.revalidate();
                             chatListPanel.repaint();
                         });
-                        
-                        for (String chatId : newChatIds) {
-                            loadChatInfo(chatId);
-                        }
+
+                        loadChatInfosByActivity(newChatIds);
                     }
                 }
 
                 @Override
                 public void onCancelled(DatabaseError databaseError) {
                     System.err.println("Error loading chats: " + databaseError.getMessage());
+                    SwingUtilities.invokeLater(() -> removeChatListSkeleton());
                 }
             });
 
@@ -1974,10 +2015,39 @@ public class MainChat extends JPanel {
     }
 
     /**
-     * Loads information about a specific chat from Firebase
+     * Loads the chats' full information, most recently active first when the activity is known
+     * Chats loaded before are requested first, in order of their last known activity (this
+     * page's cache, else the activity recorded locally by a previous session); the others
+     * follow immediately, without a preliminary read, so no chat waits on another one.
+     * The list itself is kept sorted as the items come in.
      *
-     * @param chatId The ID of the chat
+     * @param chatIds The IDs of the chats to load
      */
+    private void loadChatInfosByActivity(Set<String> chatIds) {
+        Map<String, Long> recorded = LocalSnapshotStore.getInstance().getChatActivity(currentUserId);
+        Map<String, Long> knownActivity = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+
+        for (String chatId : chatIds) {
+            ChatInfo cached = chatInfoCache.get(chatId);
+            Long lastMessageTime = cached != null ? Long.valueOf(cached.lastMessageTime) : recorded.get(chatId);
+            if (lastMessageTime != null) {
+                knownActivity.put(chatId, lastMessageTime);
+            } else {
+                unknown.add(chatId);
+            }
+        }
+
+        List<String> known = new ArrayList<>(knownActivity.keySet());
+        known.sort((a, b) -> Long.compare(knownActivity.get(b), knownActivity.get(a)));
+        for (String chatId : known) {
+            loadChatInfo(chatId);
+        }
+        for (String chatId : unknown) {
+            loadChatInfo(chatId);
+        }
+    }
+
     /**
      * Loads information about a specific chat from Firebase with improved caching
      *
@@ -1993,22 +2063,10 @@ public class MainChat extends JPanel {
                 @Override
                 public void onDataChange(DataSnapshot dataSnapshot) {
                     if (dataSnapshot.exists()) {
-                        // Get users list
-                        ArrayList<String> users = new ArrayList<>();
+                        // Get users list (a list for private chats, keyed by user ID for group chats)
+                        ArrayList<String> users = new ArrayList<>(ChatService.readParticipants(dataSnapshot.child("users")));
                         String chatName = null;
 
-                        // Handle different data structures based on how users are stored
-                        Object usersObj = dataSnapshot.child("users").getValue();
-                        if (usersObj instanceof ArrayList) {
-                            // If users is an ArrayList
-                            ArrayList<String> usersList = (ArrayList<String>) usersObj;
-                            users.addAll(usersList);
-                        } else if (usersObj instanceof HashMap) {
-                            // If users is a HashMap
-                            HashMap<String, String> usersMap = (HashMap<String, String>) usersObj;
-                            users.addAll(usersMap.values());
-                        }
-
                         // Get other info
                         long createdAt = dataSnapshot.child("createdAt").getValue(Long.class) != null ?
                                 dataSnapshot.child("createdAt").getValue(Long.class) : 0;
@@ -2042,6 +2100,7 @@ public class MainChat extends JPanel {
                         final ChatInfo chatInfo = new ChatInfo(chatId, users, createdAt, lastMessageText, lastMessageTime);
                         chatInfo.chatName = chatName;
                         chatInfoCache.put(chatId, chatInfo);
+                        LocalSnapshotStore.getInstance().recordChatActivity(currentUserId, chatId, lastMessageTime);
 
                         // Get other user info for display (for private chats)
                         if (users.size() == 2) {
@@ -2225,6 +2284,8 @@ public class MainChat extends JPanel {
     private void createOrUpdateChatItem(String chatId, String chatName, String lastMessage, long timestamp, String userId) {
         // Synchronize to prevent race conditions with UI updates
         SwingUtilities.invokeLater(() -> {
+            removeChatListSkeleton();
+
             // Remove existing chat item if it exists
             Component[] components = chatListPanel.getComponents();
             for (int i = components.length - 1; i >= 0; i--) {
@@ -2309,11 +2370,9 @@ public class MainChat extends JPanel {
      */
     private void loadMessages(String chatId) {
         try {
-            // Remove previous listener if exists
-            if (currentMessagesListener != null && currentChatId != null) {
-                DatabaseReference oldRef = firebaseService.getDatabase()
-                    .getReference("chats/" + currentChatId + "/messages");
-                oldRef.removeEventListener(currentMessagesListener);
+            // Remove previous listener if exists (from the ordered query it was registered on)
+            if (currentMessagesListener != null && currentMessagesQuery != null) {
+                currentMessagesQuery.removeEventListener(currentMessagesListener);
             }
 
             // Reference to the chat messages           
@@ -2325,11 +2384,7 @@ public class MainChat extends JPanel {
             currentMessagesListener = new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot dataSnapshot) {
-                    SwingUtilities.invokeLater(() -> {
-                        // Clear message area
-                        messageArea.setText("");
-
-                    // Process all messages
+                    // Process all messages (off the EDT)
                     List<MessageInfo> messages = new ArrayList<>();
 
                     for (DataSnapshot messageSnapshot : dataSnapshot.getChildren()) {
@@ -2355,38 +2410,69 @@ public class MainChat extends JPanel {
                     // Sort messages by timestamp
                     messages.sort(Comparator.comparing(MessageInfo::getTimestamp));
 
-                    // Display messages immediately with cached or placeholder user info
+                    // Measure all bubbles on the layout worker, then build components on the EDT
+                    List<String> texts = new ArrayList<>(messages.size());
                     for (MessageInfo message : messages) {
-                        UserInfo userInfo = userInfoCache.get(message.senderId);
-                        if (userInfo != null) {
-                            addMessageToDisplay(messageArea.getStyledDocument(), message, userInfo);
-                        } else {
-                            // Use a placeholder UserInfo (e.g., "Loading..." as username)
-                            UserInfo placeholder = new UserInfo(message.senderId, "Loading...", "");
-                            addMessageToDisplay(messageArea.getStyledDocument(), message, placeholder);
-
-                            // Asynchronously load user info, but do NOT refresh all messages
-                            loadUserInfo(message.senderId, loadedUserInfo -> {
-                                // Optionally, you could update just this message bubble if you keep references
-                                // For now, do nothing to avoid disorder
-                            });
-                        }
+                        texts.add(message.text);
                     }
 
-                        SwingUtilities.invokeLater(() -> {
-                            JScrollBar vertical = messageScrollPane.getVerticalScrollBar();
-                            vertical.setValue(vertical.getMaximum());
-                        });
-                    });
+                    layoutEngine.layoutAsync(texts, bubbleMaxWidth, MessageLayoutEngine.MESSAGE_FONT)
+                            .thenAccept(layouts -> SwingUtilities.invokeLater(() -> {
+                                // Ignore results for a chat that is no longer displayed
+                                if (!chatId.equals(currentChatId)) {
+                                    return;
+                                }
+
+                                showMessageArea();
+
+                                // Clear message area
+                                messageArea.setText("");
+                                renderedBubbles.clear();
+                                resetMessageGrouping();
+
+                                // Display messages immediately with cached or placeholder user info
+                                for (int i = 0; i < messages.size(); i++) {
+                                    MessageInfo message = messages.get(i);
+                                    UserInfo userInfo = userInfoCache.get(message.senderId);
+                                    if (userInfo != null) {
+                                        addMessageToDisplay(messageArea.getStyledDocument(), message, userInfo, layouts.get(i));
+                                    } else {
+                                        // Use a placeholder UserInfo (e.g., "Loading..." as username)
+                                        UserInfo placeholder = new UserInfo(message.senderId, "Loading...", "");
+                                        addMessageToDisplay(messageArea.getStyledDocument(), message, placeholder, layouts.get(i));
+
+                                        // Asynchronously load user info, but do NOT refresh all messages
+                                        loadUserInfo(message.senderId, loadedUserInfo -> {
+                                            // Optionally, you could update just this message bubble if you keep references
+                                            // For now, do nothing to avoid disorder
+                                        });
+                                    }
+                                }
+
+                                SwingUtilities.invokeLater(() -> {
+                                    JScrollBar vertical = messageScrollPane.getVerticalScrollBar();
+                                    vertical.setValue(vertical.getMaximum());
+                                });
+                            }))
+                            .exceptionally(ex -> {
+                                System.err.println("Error laying out messages: " + ex.getMessage());
+                                return null;
+                            });
                 }
 
                 @Override
                 public void onCancelled(DatabaseError databaseError) {
                     System.err.println("Error loading messages: " + databaseError.getMessage());
+                    SwingUtilities.invokeLater(() -> {
+                        if (chatId.equals(currentChatId)) {
+                            showMessageArea();
+                        }
+                    });
                 }
             };
 
             orderedMessagesQuery.addValueEventListener(currentMessagesListener);
+            currentMessagesQuery = orderedMessagesQuery;
             currentChatId = chatId; // update the current chat id
 
         } catch (Exception e) {
@@ -2395,17 +2481,48 @@ public class MainChat extends JPanel {
         }
     }
 
+    /**
+     * Replaces the message placeholder with the message area (must be called on the EDT)
+     */
+    private void showMessageArea() {
+        if (messageSkeleton == null) {
+            return;
+        }
+        // The chat panel may have been rebuilt since the placeholder was added
+        if (messageSkeleton.getParent() == chatPanel) {
+            chatPanel.remove(messageSkeleton);
+            chatPanel.add(messageScrollPane, BorderLayout.CENTER);
+        }
+        messageSkeleton = null;
+        chatPanel.revalidate();
+        chatPanel.repaint();
+    }
+
     /**
      * Adds a message to the message display
      *
      * @param doc The styled document to add the message to
      * @param message The message to add
      * @param sender The sender of the message
+     * @param layout The precomputed bubble layout, or null to measure now
      */
-    private void addMessageToDisplay(StyledDocument doc, MessageInfo message, UserInfo sender) {
+    private void addMessageToDisplay(StyledDocument doc, MessageInfo message, UserInfo sender,
+                                     MessageLayoutEngine.BubbleLayout layout) {
         try {
             boolean isMyMessage = message.senderId.equals(currentUserId);
 
+            // Date separator once per day boundary
+            boolean newDay = lastRenderedTimestamp == 0 ||
+                    !isSameDay(new Date(lastRenderedTimestamp), new Date(message.timestamp));
+            JPanel dateSeparator = newDay ? createDateSeparator(message.timestamp) : null;
+
+            // Consecutive messages from the same sender within the window share avatar and header
+            boolean continuesRun = !newDay &&
+                    message.senderId.equals(lastRenderedSenderId) &&
+                    message.timestamp - lastRenderedTimestamp <= MESSAGE_GROUP_WINDOW;
+            lastRenderedSenderId = message.senderId;
+            lastRenderedTimestamp = message.timestamp;
+
             // Create custom message bubble panel with rounded corners
             JPanel bubblePanel = new JPanel(new BorderLayout(5, 2));
             bubblePanel.setOpaque(false);
@@ -2415,81 +2532,67 @@ public class MainChat extends JPanel {
             messagePanel.setLayout(new BorderLayout(5, 0));
             messagePanel.setBorder(new EmptyBorder(8, 12, 8, 12));
 
-            // Sender name at top if not the current user
-            if (!isMyMessage) {
+            // Sender name at top if not the current user (only for the first message of a run)
+            if (!isMyMessage && !continuesRun) {
                 JLabel nameLabel = new JLabel(sender.username);
-                nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
+                nameLabel.setFont(MessageLayoutEngine.SENDER_FONT);
                 nameLabel.setForeground(EMSI_GRAY);
                 messagePanel.add(nameLabel, BorderLayout.NORTH);
             }
 
             // Message content
             JTextArea textArea = new JTextArea(message.text);
-            textArea.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            textArea.setFont(MessageLayoutEngine.MESSAGE_FONT);
             textArea.setLineWrap(true);
             textArea.setWrapStyleWord(true);
             textArea.setEditable(false);
             textArea.setBackground(new Color(0, 0, 0, 0)); // Transparent
             textArea.setBorder(null);
 
-            // Optimize sizing calculation
-            FontMetrics fm = textArea.getFontMetrics(textArea.getFont());
-            int maxWidth = 300; // Reasonable max width for messages
-
-            // Split by line breaks for proper height calculation
-            String[] lines = message.text.split("\n");
-            int width = 10; // Minimum padding
-
-            // Calculate required width based on longest line
-            for (String line : lines) {
-                int lineWidth = fm.stringWidth(line) + 20; // Add padding
-                width = Math.max(width, Math.min(lineWidth, maxWidth));
-            }
-
-            // Calculate height - consider word wrapping
-            int lineCount = 0;
-            for (String line : lines) {
-                int lineWidth = fm.stringWidth(line);
-                if (lineWidth <= width - 20) {
-                    lineCount++;
-                } else {
-                    // Estimate wrapped lines
-                    lineCount += Math.ceil((double)lineWidth / (width - 20));
-                }
+            // Size from the precomputed layout (cached, so this is cheap even when measured here)
+            if (layout == null) {
+                layout = layoutEngine.layout(message.text, bubbleMaxWidth, MessageLayoutEngine.MESSAGE_FONT);
             }
-
-            int height = fm.getHeight() * Math.max(lineCount, 1) + 10;
-
-            textArea.setPreferredSize(new Dimension(width, height));
+            textArea.setPreferredSize(layout.getPreferredSize());
+            renderedBubbles.put(textArea, message.text);
             messagePanel.add(textArea, BorderLayout.CENTER);
 
-            // Time at bottom
-            JLabel timeLabel = new JLabel(timeFormat.format(new Date(message.timestamp)));
-            timeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
-            timeLabel.setForeground(EMSI_GRAY_LIGHT);
-            timeLabel.setHorizontalAlignment(isMyMessage ? SwingConstants.RIGHT : SwingConstants.LEFT);
-            messagePanel.add(timeLabel, BorderLayout.SOUTH);
-
-            // Avatar with profile image
-            AvatarPanel avatarPanel = new AvatarPanel(30, generateAvatarColor(message.senderId));
-            avatarPanel.setInitials(getInitials(sender.username));
-            
-            // Load user profile image
-            loadUserProfileImage(avatarPanel, message.senderId);
+            String time = timeFormat.format(new Date(message.timestamp));
+            Component avatarSlot;
+            if (continuesRun) {
+                // Grouped message: time as tooltip, empty slot keeps the bubble aligned with the run
+                textArea.setToolTipText(time);
+                avatarSlot = Box.createHorizontalStrut(30);
+            } else {
+                // Time at bottom
+                JLabel timeLabel = new JLabel(time);
+                timeLabel.setFont(MessageLayoutEngine.TIME_FONT);
+                timeLabel.setForeground(EMSI_GRAY_LIGHT);
+                timeLabel.setHorizontalAlignment(isMyMessage ? SwingConstants.RIGHT : SwingConstants.LEFT);
+                messagePanel.add(timeLabel, BorderLayout.SOUTH);
+
+                // Avatar with profile image
+                AvatarPanel avatarPanel = new AvatarPanel(30, generateAvatarColor(message.senderId));
+                avatarPanel.setInitials(getInitials(sender.username));
+
+                // Load user profile image
+                loadUserProfileImage(avatarPanel, message.senderId);
+                avatarSlot = avatarPanel;
+            }
 
             // Layout different for my messages vs others
             if (isMyMessage) {
                 bubblePanel.add(Box.createHorizontalStrut(50), BorderLayout.WEST);
                 bubblePanel.add(messagePanel, BorderLayout.CENTER);
-                bubblePanel.add(avatarPanel, BorderLayout.EAST);
+                bubblePanel.add(avatarSlot, BorderLayout.EAST);
             } else {
-                bubblePanel.add(avatarPanel, BorderLayout.WEST);
+                bubblePanel.add(avatarSlot, BorderLayout.WEST);
                 bubblePanel.add(messagePanel, BorderLayout.CENTER);
                 bubblePanel.add(Box.createHorizontalStrut(50), BorderLayout.EAST);
             }
 
-            // Add spacing between messages
-            bubblePanel.setBorder(new EmptyBorder(5, 10, 5, 10));
+            // Add spacing between messages (tighter inside a run)
+            bubblePanel.setBorder(new EmptyBorder(continuesRun ? 1 : 5, 10, 5, 10));
 
             // Insert the component into document
             JPanel wrapperPanel = new JPanel(new BorderLayout());
@@ -2500,6 +2603,11 @@ public class MainChat extends JPanel {
             SwingUtilities.invokeLater(() -> {
                 try {
                     // Insert into document
+                    if (dateSeparator != null) {
+                        messageArea.setCaretPosition(doc.getLength());
+                        messageArea.insertComponent(dateSeparator);
+                        doc.insertString(doc.getLength(), "\n", null);
+                    }
                     messageArea.setCaretPosition(doc.getLength());
                     messageArea.insertComponent(wrapperPanel);
                     doc.insertString(doc.getLength(), "\n", null);
@@ -2516,6 +2624,45 @@ public class MainChat extends JPanel {
         }
     }
 
+    /**
+     * Resets run grouping so the next message starts a new run with a date separator
+     */
+    private void resetMessageGrouping() {
+        lastRenderedSenderId = null;
+        lastRenderedTimestamp = 0;
+    }
+
+    /**
+     * Creates a centered date separator for a day boundary in the message list
+     *
+     * @param timestamp Timestamp of the first message of the day
+     * @return The separator panel
+     */
+    private JPanel createDateSeparator(long timestamp) {
+        Date date = new Date(timestamp);
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_YEAR, -1);
+
+        String text;
+        if (isSameDay(date, new Date())) {
+            text = "Aujourd'hui";
+        } else if (isSameDay(date, calendar.getTime())) {
+            text = "Hier";
+        } else {
+            text = new SimpleDateFormat("dd/MM/yyyy").format(date);
+        }
+
+        JLabel dateLabel = new JLabel(text, SwingConstants.CENTER);
+        dateLabel.setFont(MessageLayoutEngine.SENDER_FONT);
+        dateLabel.setForeground(EMSI_GRAY_LIGHT);
+
+        JPanel separator = new JPanel(new BorderLayout());
+        separator.setOpaque(false);
+        separator.setBorder(new EmptyBorder(10, 0, 5, 0));
+        separator.add(dateLabel, BorderLayout.CENTER);
+        return separator;
+    }
+
     // Debouncing for send messages
     private long lastSendTime = 0;
     private static final long SEND_DEBOUNCE_MS = 500;
@@ -2553,10 +2700,16 @@ public class MainChat extends JPanel {
         updateTypingStatus(false);
         
         // Perform Firebase operations asynchronously
-        SwingWorker<Void, Void> sendWorker = new SwingWorker<Void, Void>() {
+        String chatId = currentChatId;
+        SwingWorker<Boolean, Void> sendWorker = new SwingWorker<Boolean, Void>() {
             @Override
-            protected Void doInBackground() throws Exception {
+            protected Boolean doInBackground() throws Exception {
                 try {
+                    // Group chats: role and group settings are checked in memory
+                    if (groupService != null && !groupService.canUserSendInChat(chatId, currentUserId)) {
+                        return false;
+                    }
+
                     // Create message object
                     Map<String, Object> messageData = new HashMap<>();
                     messageData.put("userId", currentUserId);
@@ -2567,7 +2720,7 @@ public class MainChat extends JPanel {
 
                     // Send to Firebase
                     DatabaseReference messagesRef = firebaseService.getDatabase()
-                            .getReference("chats/" + currentChatId + "/messages");
+                            .getReference("chats/" + chatId + "/messages");
                     
                     String messageId = messagesRef.push().getKey();
                     if (messageId != null) {
@@ -2584,7 +2737,7 @@ public class MainChat extends JPanel {
                         lastMessageUpdate.put("lastMessageUserId", currentUserId);
 
                         firebaseService.getDatabase()
-                                .getReference("chats/" + currentChatId)
+                                .getReference("chats/" + chatId)
                                 .updateChildren(lastMessageUpdate, (error, ref) -> {
                                     if (error != null) {
                                         System.err.println("Error updating last message info: " + error.getMessage());
@@ -2595,7 +2748,7 @@ public class MainChat extends JPanel {
                     e.printStackTrace();
                     throw e;
                 }
-                return null;
+                return true;
             }
             
             @Override
@@ -2606,7 +2759,12 @@ public class MainChat extends JPanel {
                     messageField.requestFocus();
                     
                     try {
-                        get(); // Check for exceptions
+                        if (!get()) {
+                            messageField.setText(messageToSend);
+                            JOptionPane.showMessageDialog(MainChat.this,
+                                    "Vous ne pouvez pas envoyer de messages dans ce groupe.",
+                                    "Envoi impossible", JOptionPane.WARNING_MESSAGE);
+                        }
                     } catch (Exception e) {
                         // Restore message on error
                         messageField.setText(messageToSend);
@@ -2643,24 +2801,51 @@ public class MainChat extends JPanel {
             timer.stop();
             timer = null;
         }
+        finishSidebarAnimation();
         
         // Clear caches
         userInfoCache.clear();
         chatInfoCache.clear();
         userCache.clear();
         imageCache.clear();
+        renderedBubbles.clear();
         
         // Remove Firebase listeners
-        if (currentMessagesListener != null && firebaseService != null) {
+        if (currentMessagesListener != null && currentMessagesQuery != null) {
             try {
-                firebaseService.getDatabase()
-                    .getReference("chats/" + currentChatId + "/messages")
-                    .removeEventListener(currentMessagesListener);
+                currentMessagesQuery.removeEventListener(currentMessagesListener);
             } catch (Exception e) {
                 System.err.println("Error removing message listener: " + e.getMessage());
             }
             currentMessagesListener = null;
+            currentMessagesQuery = null;
+        }
+        if (currentTypingListener != null && currentTypingRef != null) {
+            try {
+                currentTypingRef.removeEventListener(currentTypingListener);
+            } catch (Exception e) {
+                System.err.println("Error removing typing listener: " + e.getMessage());
+            }
+            currentTypingListener = null;
+            currentTypingRef = null;
         }
+        if (userChatsListener != null && userChatsRef != null) {
+            try {
+                userChatsRef.removeEventListener(userChatsListener);
+            } catch (Exception e) {
+                System.err.println("Error removing chats listener: " + e.getMessage());
+            }
+            userChatsListener = null;
+            userChatsRef = null;
+        }
+    }
+
+    /**
+     * Called by VibeApp when this page is replaced (e.g. on the next login)
+     */
+    @Override
+    public void dispose() {
+        cleanup();
     }
 
     /**
@@ -2689,6 +2874,9 @@ public class MainChat extends JPanel {
                 
                 // Adjust padding and margins for small screens
                 adjustSpacing(width, height);
+
+                // Re-wrap message bubbles for the new viewport width
+                updateBubbleWidth();
                 
                 revalidate();
                 repaint();
@@ -2696,6 +2884,50 @@ public class MainChat extends JPanel {
         });
     }
 
+    /**
+     * Recomputes the maximum bubble width from the message viewport and re-wraps
+     * the displayed bubbles when it changes. Widths are quantized to 10px so a drag
+     * resize hits the layout cache instead of re-measuring every pixel step.
+     */
+    private void updateBubbleWidth() {
+        if (messageScrollPane == null) {
+            return;
+        }
+
+        int viewportWidth = messageScrollPane.getViewport().getWidth();
+        if (viewportWidth <= 0) {
+            return;
+        }
+
+        int newWidth = Math.max(MIN_BUBBLE_WIDTH, Math.min(MAX_BUBBLE_WIDTH, viewportWidth - BUBBLE_CHROME_WIDTH));
+        newWidth -= newWidth % 10;
+        if (newWidth == bubbleMaxWidth) {
+            return;
+        }
+        bubbleMaxWidth = newWidth;
+
+        if (renderedBubbles.isEmpty()) {
+            return;
+        }
+
+        List<JTextArea> areas = new ArrayList<>(renderedBubbles.keySet());
+        List<String> texts = new ArrayList<>(renderedBubbles.values());
+        int targetWidth = newWidth;
+
+        layoutEngine.layoutAsync(texts, targetWidth, MessageLayoutEngine.MESSAGE_FONT)
+                .thenAccept(layouts -> SwingUtilities.invokeLater(() -> {
+                    // A newer resize has already been scheduled
+                    if (targetWidth != bubbleMaxWidth) {
+                        return;
+                    }
+                    for (int i = 0; i < areas.size(); i++) {
+                        areas.get(i).setPreferredSize(layouts.get(i).getPreferredSize());
+                    }
+                    messageArea.revalidate();
+                    messageArea.repaint();
+                }));
+    }
+
     /**
      * Adjusts component sizes based on screen dimensions
      */
@@ -2802,10 +3034,16 @@ public class MainChat extends JPanel {
      */
     private void listenForTyping(String chatId) {
         try {
+            // Only one chat's typing status is watched at a time
+            if (currentTypingRef != null && currentTypingListener != null) {
+                currentTypingRef.removeEventListener(currentTypingListener);
+            }
+
             DatabaseReference typingRef = firebaseService.getDatabase()
                     .getReference("chats/" + chatId + "/typing");
+            currentTypingRef = typingRef;
 
-            typingRef.addValueEventListener(new ValueEventListener() {
+            currentTypingListener = typingRef.addValueEventListener(new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot dataSnapshot) {
                     boolean someoneTyping = false;
@@ -2876,41 +3114,85 @@ public class MainChat extends JPanel {
     }
 
     /**
-     * Toggles the sidebar between expanded and collapsed states
+     * Toggles the sidebar between expanded and collapsed states.
+     * The transition is played on a placeholder painting a snapshot of the expanded
+     * sidebar, clocked by the shared Animator; the real sidebar is laid out only once,
+     * when the animation ends.
      */
     private void toggleSidebar() {
+        // Settle any running transition before starting a new one
+        finishSidebarAnimation();
+
         isSidebarCollapsed = !isSidebarCollapsed;
 
         int targetWidth = isSidebarCollapsed ? COLLAPSED_SIDEBAR_WIDTH : EXPANDED_SIDEBAR_WIDTH;
+        int startWidth = sidebarPanel.getWidth() > 0 ? sidebarPanel.getWidth() : sidebarPanel.getPreferredSize().width;
+        int height = sidebarPanel.getHeight();
+
+        // Not on screen yet: just apply the final state
+        if (!isShowing() || sidebarPanel.getParent() != this || height <= 0 || startWidth == targetWidth) {
+            setSidebarComponentsVisibility(!isSidebarCollapsed);
+            sidebarPanel.setPreferredSize(new Dimension(targetWidth, 0));
+            sidebarPanel.revalidate();
+            return;
+        }
 
-        // Show or hide components based on sidebar state
-        setSidebarComponentsVisibility(!isSidebarCollapsed);
-
-        // Animate width change
-        new Thread(() -> {
-            int currentWidth = sidebarPanel.getPreferredSize().width;
-            int step = (targetWidth - currentWidth) / 10;
+        // Snapshot the expanded sidebar: it is revealed when expanding and wiped away when collapsing
+        if (!isSidebarCollapsed) {
+            setSidebarComponentsVisibility(true);
+        }
+        sidebarPanel.setSize(EXPANDED_SIDEBAR_WIDTH, height);
+        sidebarPanel.validate();
+        BufferedImage snapshot = new BufferedImage(EXPANDED_SIDEBAR_WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = snapshot.createGraphics();
+        sidebarPanel.paint(g2d);
+        g2d.dispose();
 
-            for (int i = 1; i <= 10; i++) {
-                final int width = currentWidth + (step * i);
-                SwingUtilities.invokeLater(() -> {
-                    sidebarPanel.setPreferredSize(new Dimension(width, 0));
-                    sidebarPanel.revalidate();
-                });
+        if (isSidebarCollapsed) {
+            setSidebarComponentsVisibility(false);
+        }
 
-                try {
-                    Thread.sleep(20);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+        // Swap in the placeholder at the wider of the two widths; frames only repaint it
+        sidebarPlaceholder = new SidebarPlaceholder(snapshot, startWidth);
+        sidebarPlaceholder.setPreferredSize(new Dimension(Math.max(startWidth, targetWidth), 0));
+        remove(sidebarPanel);
+        add(sidebarPlaceholder, BorderLayout.WEST);
+        revalidate();
+        repaint();
+
+        long startTime = System.nanoTime();
+        sidebarAnimation = () -> {
+            float t = Math.min(1f, (System.nanoTime() - startTime) / (SIDEBAR_ANIMATION_MS * 1_000_000f));
+            float eased = 1f - (1f - t) * (1f - t) * (1f - t); // ease-out cubic
+            sidebarPlaceholder.setVisibleWidth(Math.round(startWidth + (targetWidth - startWidth) * eased));
+            if (t >= 1f) {
+                finishSidebarAnimation();
+                return false;
             }
+            return true;
+        };
+        Animator.getInstance().start(sidebarPlaceholder, sidebarAnimation);
+    }
 
-            // Ensure final size is exact
-            SwingUtilities.invokeLater(() -> {
-                sidebarPanel.setPreferredSize(new Dimension(targetWidth, 0));
-                sidebarPanel.revalidate();
-            });
-        }).start();
+    /**
+     * Ends the sidebar transition (if any) and commits the real sidebar layout
+     */
+    private void finishSidebarAnimation() {
+        if (sidebarPlaceholder == null) {
+            return;
+        }
+
+        Animator.getInstance().stop(sidebarAnimation);
+        sidebarAnimation = null;
+
+        remove(sidebarPlaceholder);
+        sidebarPlaceholder = null;
+
+        int width = isSidebarCollapsed ? COLLAPSED_SIDEBAR_WIDTH : EXPANDED_SIDEBAR_WIDTH;
+        sidebarPanel.setPreferredSize(new Dimension(width, 0));
+        add(sidebarPanel, BorderLayout.WEST);
+        revalidate();
+        repaint();
     }
 
     /**
@@ -3767,33 +4049,15 @@ public class MainChat extends JPanel {
      * @return The loaded and resized image icon
      */
     private ImageIcon loadImageIcon(String path, int width, int height) {
-        try {
-            // Check if file exists first
-            java.io.File iconFile = new java.io.File(path);
-            if (!iconFile.exists()) {
-                System.out.println("Icon file does not exist: " + iconFile.getAbsolutePath());
-                return createFallbackIcon(path, width, height);
-            }
-            
-            System.out.println("Loading icon: " + path + " (exists: " + iconFile.exists() + ", size: " + iconFile.length() + " bytes)");
-            
-            ImageIcon icon = new ImageIcon(path);
-            if (icon.getIconWidth() <= 0) {
-                // File found but icon failed to load - create appropriate fallback icon based on path
-                System.out.println("Icon failed to load properly: " + path + ", creating fallback icon");
-                return createFallbackIcon(path, width, height);
-            }
-
-            // Resize the icon to the specified dimensions
-            Image img = icon.getImage();
-            Image resizedImg = img.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-            System.out.println("Icon loaded successfully: " + path + " (" + icon.getIconWidth() + "x" + icon.getIconHeight() + ")");
-            return new ImageIcon(resizedImg);
-        } catch (Exception e) {
-            System.err.println("Error loading icon: " + path + " - " + e.getMessage());
-            e.printStackTrace();
-            return createFallbackIcon(path, width, height);
+        // Decoded and scaled once per size by the shared asset cache
+        ImageIcon icon = AssetManager.getInstance().getIcon(path, width, height);
+        if (icon != null) {
+            return icon;
         }
+
+        // File missing or unreadable - use a memoized drawn fallback
+        return AssetManager.getInstance().getGeneratedIcon("fallback:" + path, width, height,
+                (w, h) -> createFallbackIcon(path, w, h));
     }
     
     /**
@@ -4049,10 +4313,10 @@ public class MainChat extends JPanel {
         String tooltip;
         
         if (isSidebarCollapsed) {
-            newIcon = createExpandIcon(18, 18);
+            newIcon = AssetManager.getInstance().getGeneratedIcon("expand", 18, 18, this::createExpandIcon);
             tooltip = "Développer le menu";
         } else {
-            newIcon = createCollapseIcon(18, 18);
+            newIcon = AssetManager.getInstance().getGeneratedIcon("collapse", 18, 18, this::createCollapseIcon);
             tooltip = "Réduire le menu";
         }
         
@@ -4176,6 +4440,45 @@ public class MainChat extends JPanel {
 
     // ----- Inner Classes -----
 
+    /**
+     * Lightweight stand-in for the sidebar during collapse/expand: paints a snapshot
+     * clipped to the animated width, so frames never trigger a layout pass
+     */
+    private static class SidebarPlaceholder extends JComponent {
+        private final BufferedImage snapshot;
+        private int visibleWidth;
+
+        SidebarPlaceholder(BufferedImage snapshot, int visibleWidth) {
+            this.snapshot = snapshot;
+            this.visibleWidth = visibleWidth;
+            setOpaque(true);
+        }
+
+        void setVisibleWidth(int width) {
+            if (width != visibleWidth) {
+                int dirty = Math.max(width, visibleWidth);
+                visibleWidth = width;
+                repaint(0, 0, dirty + 1, getHeight());
+            }
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            // Area beyond the animated edge belongs to the chat panel once the layout is committed
+            g.setColor(new Color(250, 250, 250));
+            g.fillRect(0, 0, getWidth(), getHeight());
+
+            int width = Math.min(visibleWidth, getWidth());
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, getHeight());
+            g.drawImage(snapshot, 0, 0, width - 1, getHeight(), 0, 0, width - 1, snapshot.getHeight(), null);
+
+            // Right border, as on the real sidebar
+            g.setColor(new Color(220, 220, 220));
+            g.drawLine(width - 1, 0, width - 1, getHeight());
+        }
+    }
+
     /**
      * Chat info data class
      */
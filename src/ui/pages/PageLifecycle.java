@@ -0,0 +1,26 @@
+package ui.pages;
+
+/**
+ * PageLifecycle - Hooks called by VibeApp's page registry
+ * Pages are constructed on first navigation; dispose() is called when a page is
+ * replaced or removed so it can detach its Firebase listeners and stop its timers.
+ */
+public interface PageLifecycle {
+
+    /**
+     * Called each time the page becomes the visible card
+     */
+    default void onShow() {
+    }
+
+    /**
+     * Called when another page replaces this one as the visible card (cancel pending work here)
+     */
+    default void onHide() {
+    }
+
+    /**
+     * Releases listeners, timers and caches held by the page. The page is not reused afterwards.
+     */
+    void dispose();
+}
@@ -5,9 +5,13 @@ import ui.components.ModernButton;
 
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.ServerValue;
+import services.AuthPipeline;
+import services.AuthService;
 import services.FirebaseService;
+import services.UserIndexService;
+import utils.AssetManager;
+import utils.PasswordUtils;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
@@ -15,17 +19,15 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.regex.Pattern;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 
-public class RegisterPage extends JPanel {
+public class RegisterPage extends JPanel implements PageLifecycle {
     // Couleurs EMSI avec des variations
     private final Color EMSI_GREEN = new Color(0, 150, 70);
     private final Color EMSI_GREEN_LIGHT = new Color(0, 180, 85);
@@ -49,6 +51,9 @@ public class RegisterPage extends JPanel {
     private java.util.List<Bubble> bubbles = new java.util.ArrayList<>();
     private Timer bubbleTimer;
 
+    // Registration running on the auth pipeline
+    private AuthPipeline.Handle registerTask;
+
     public RegisterPage() {
         /*
         setTitle("VibeApp - Inscription");
@@ -74,8 +79,20 @@ public class RegisterPage extends JPanel {
         // Ajouter un copyright dans le pied de page
         addFooter();
 
-        // Test Firebase connection
-        initializeFirebase();
+        // Test Firebase connection (blocks on a write, so it runs on the auth worker)
+        AuthPipeline.getInstance().submit("register:connection-test", progress -> {
+            initializeFirebase();
+            return null;
+        }, new AuthPipeline.Callback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                System.err.println("Firebase connection test failed: " + error.getMessage());
+            }
+        });
 
         setSize(1000, 750);
 
@@ -220,15 +237,37 @@ public class RegisterPage extends JPanel {
         bubbleTimer.start();
     }
 
+    @Override
+    public void onHide() {
+        cancelRegistration();
+    }
+
+    /**
+     * Cancels a registration in progress (the user navigated away)
+     */
+    private void cancelRegistration() {
+        if (registerTask != null) {
+            registerTask.cancel();
+            registerTask = null;
+        }
+    }
+
+    /**
+     * Called by VibeApp when the page is released: stops the background animation
+     */
+    @Override
+    public void dispose() {
+        cancelRegistration();
+        if (bubbleTimer != null) {
+            bubbleTimer.stop();
+            bubbleTimer = null;
+        }
+    }
+
     private Image ajouterImage() {
         try {
-            File file = new File("pictures/logoVibeApp.png");
-            if (file.exists()) {
-                return new ImageIcon(file.getAbsolutePath()).getImage();
-            } else {
-                System.out.println("Logo file not found at: " + file.getAbsolutePath());
-                return createFallbackImage();
-            }
+            Image logo = AssetManager.getInstance().getImage(AssetManager.LOGO_PATH);
+            return logo != null ? logo : createFallbackImage();
         } catch (Exception e) {
             e.printStackTrace();
             return createFallbackImage();
@@ -346,30 +385,11 @@ public class RegisterPage extends JPanel {
 
         try {
             // Utiliser le même chemin que dans ajouterImage()
-            File logoFile = new File("pictures/logoVibeApp.png");
-            if (logoFile.exists()) {
-                // Charger le logo original avec haute qualité
-                BufferedImage originalImage = ImageIO.read(logoFile);
-
-                // Redimensionnement de haute qualité avec préservation de la netteté - taille réduite
-                int targetWidth = 160; // Taille réduite pour faire place au bouton de retour
-                double aspectRatio = (double) originalImage.getHeight() / originalImage.getWidth();
-                int targetHeight = (int) (targetWidth * aspectRatio);
-
-                // Créer une image redimensionnée de très haute qualité
-                BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D g2dResized = resizedImage.createGraphics();
-
-                // Configuration de rendu de TRÈS haute qualité
-                g2dResized.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g2dResized.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                g2dResized.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2dResized.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-                g2dResized.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
-
-                // Dessiner l'image redimensionnée avec un algorithme de haute qualité
-                g2dResized.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-                g2dResized.dispose();
+            // Logo décodé et redimensionné une seule fois (cache partagé)
+            BufferedImage resizedImage = AssetManager.getInstance().getImageForWidth(AssetManager.LOGO_PATH, 160);
+            if (resizedImage != null) {
+                int targetWidth = resizedImage.getWidth();
+                int targetHeight = resizedImage.getHeight();
 
                 // Créer un panneau personnalisé pour le logo avec transition
                 JPanel logoContentPanel = new JPanel() {
@@ -454,7 +474,7 @@ public class RegisterPage extends JPanel {
 
                 System.out.println("Logo chargé avec succès pour le panneau gauche");
             } else {
-                System.out.println("Logo introuvable pour le panneau gauche: " + logoFile.getAbsolutePath());
+                System.out.println("Logo introuvable pour le panneau gauche: " + AssetManager.LOGO_PATH);
                 // Fallback au logo dessiné manuellement
                 JLabel fallbackLabel = new JLabel("VibeApp");
                 fallbackLabel.setFont(new Font("Arial", Font.BOLD, 24));
@@ -822,18 +842,7 @@ public class RegisterPage extends JPanel {
         ModernButton registerButton = ModernButton.createPrimary("S'inscrire");
         registerButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         registerButton.setMaximumSize(new Dimension(Integer.MAX_VALUE, 45));
-        registerButton.addActionListener(e -> {
-            if (validateForm()) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        "Inscription réussie ! Bienvenue dans VibeApp.",
-                        "Succès",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-                // Ici vous pourriez ajouter le code pour ouvrir la page principale de chat
-                VibeApp.getInstance().showPage("login"); // Fermer la page d'inscription
-            }
-        });
+        registerButton.addActionListener(e -> handleRegister(registerButton));
 
         // Séparateur visuel
         JPanel separatorPanel = new JPanel();
@@ -1047,17 +1056,7 @@ public class RegisterPage extends JPanel {
         AnimatedButton registerButton = new AnimatedButton("S'inscrire", EMSI_GREEN, EMSI_GREEN_LIGHT, EMSI_GREEN_DARK);
         registerButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         registerButton.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
-        registerButton.addActionListener(e -> {
-            if (validateForm()) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        "Inscription réussie ! Bienvenue dans VibeApp.",
-                        "Succès",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-                VibeApp.getInstance().showPage("login");
-            }
-        });
+        registerButton.addActionListener(e -> handleRegister(registerButton));
 
         // Séparateur compact
         JPanel separatorPanel = new JPanel();
@@ -1204,61 +1203,137 @@ public class RegisterPage extends JPanel {
             return false;
         }
 
-        // Si toutes les validations sont passées, enregistrer l'utilisateur dans Firebase
-        try {
-            // Get the singleton instance instead of creating a new one
-            FirebaseService firebaseService = FirebaseService.getInstance();
+        return true;
+    }
 
-            // Generate a unique ID for the user
-            String userId = "user_" + System.currentTimeMillis();
+    /**
+     * Validates the form, then creates the account on the auth worker
+     * @param registerButton The button that was clicked (disabled while the request runs)
+     */
+    private void handleRegister(JButton registerButton) {
+        if (!validateForm()) {
+            return;
+        }
 
-            // Create user data
-            Map<String, Object> userData = new HashMap<>();
-            userData.put("nom", nom);
-            userData.put("prenom", prenom);
-            userData.put("email", email);
-            userData.put("username", username);
-            userData.put("password", hashPassword(password));
-            userData.put("createdAt", ServerValue.TIMESTAMP);
+        String nom = nomField.getText().trim();
+        String prenom = prenomField.getText().trim();
+        String email = emailField.getText().trim();
+        String username = usernameField.getText().trim();
+        String password = new String(passwordField.getPassword());
 
-            // Save to Firebase
-            DatabaseReference usersRef = firebaseService.getDatabase().getReference("users");
-            usersRef.child(userId).setValueAsync(userData);
+        String buttonText = registerButton.getText();
+        registerButton.setEnabled(false);
+        registerButton.setText("Inscription...");
 
-            System.out.println("User registered successfully: " + userId);
+        registerTask = AuthPipeline.getInstance().submit("register:" + email.toLowerCase(),
+                progress -> createAccount(nom, prenom, email, username, password),
+                new AuthPipeline.Callback<UserIndexService.Reservation>() {
+                    @Override
+                    public void onSuccess(UserIndexService.Reservation reservation) {
+                        registerButton.setEnabled(true);
+                        registerButton.setText(buttonText);
+
+                        if (reservation == UserIndexService.Reservation.RESERVED) {
+                            JOptionPane.showMessageDialog(
+                                    RegisterPage.this,
+                                    "Inscription réussie ! Bienvenue dans VibeApp.",
+                                    "Succès",
+                                    JOptionPane.INFORMATION_MESSAGE
+                            );
+                            VibeApp.getInstance().showPage("login"); // Fermer la page d'inscription
+                            return;
+                        }
 
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(
-                    this,
-                    "Error registering user: " + e.getMessage(),
-                    "Firebase Error",
-                    JOptionPane.ERROR_MESSAGE
-            );
-            return false;
-        }
+                        String message;
+                        switch (reservation) {
+                            case EMAIL_TAKEN:
+                                message = "Un compte existe déjà avec cette adresse email";
+                                break;
+                            case USERNAME_TAKEN:
+                                message = "Ce nom d'utilisateur est déjà pris";
+                                break;
+                            default:
+                                message = "Impossible de vérifier vos informations, veuillez réessayer";
+                                break;
+                        }
+                        JOptionPane.showMessageDialog(
+                                RegisterPage.this,
+                                message,
+                                "Erreur d'inscription",
+                                JOptionPane.WARNING_MESSAGE
+                        );
+                    }
 
+                    @Override
+                    public void onFailure(Exception error) {
+                        registerButton.setEnabled(true);
+                        registerButton.setText(buttonText);
+                        if (!(error instanceof AuthPipeline.RateLimitedException)) {
+                            error.printStackTrace();
+                        }
+                        JOptionPane.showMessageDialog(
+                                RegisterPage.this,
+                                error instanceof AuthPipeline.RateLimitedException
+                                        ? error.getMessage()
+                                        : "Error registering user: " + error.getMessage(),
+                                "Erreur d'inscription",
+                                JOptionPane.ERROR_MESSAGE
+                        );
+                    }
+                });
     }
 
-    private String hashPassword(String password) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = md.digest(password.getBytes(StandardCharsets.UTF_8));
-
-            // Convert bytes to hex string
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashedBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
+    /**
+     * Claims the email and username and writes the new user (runs on the auth worker)
+     * @return RESERVED once the account is created, otherwise why it was refused
+     */
+    private UserIndexService.Reservation createAccount(String nom, String prenom, String email,
+                                                       String username, String password) throws Exception {
+        // Get the singleton instance instead of creating a new one
+        FirebaseService firebaseService = FirebaseService.getInstance();
+
+        // Generate a unique ID for the user
+        String userId = "user_" + System.currentTimeMillis();
+
+        // Claim the email and username in their indexes (single key reads, atomic)
+        UserIndexService.Reservation reservation = UserIndexService.getInstance().reserve(userId, email, username);
+        if (reservation != UserIndexService.Reservation.RESERVED) {
+            return reservation;
+        }
+
+        // Create user data
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("nom", nom);
+        userData.put("prenom", prenom);
+        userData.put("email", email);
+        userData.put("username", username);
+        userData.put("password", PasswordUtils.hashPassword(password));
+        userData.put(AuthService.PASSWORD_CHANGED_AT, ServerValue.TIMESTAMP);
+        userData.put("createdAt", ServerValue.TIMESTAMP);
+
+        // Save to Firebase
+        CountDownLatch latch = new CountDownLatch(1);
+        final String[] error = {null};
+        DatabaseReference usersRef = firebaseService.getDatabase().getReference("users");
+        usersRef.child(userId).setValue(userData, (databaseError, ref) -> {
+            if (databaseError != null) {
+                error[0] = databaseError.getMessage();
             }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            // Fallback to a simple hash if SHA-256 is not available
-            return Integer.toString(password.hashCode());
+            latch.countDown();
+        });
+
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+            // The write stays queued and may still create the account: keep its email and username
+            throw new IOException("Délai d'attente dépassé, le compte a peut-être été créé");
+        }
+        if (error[0] != null) {
+            // Rejected by the server: free the email and username so the user can try again
+            UserIndexService.getInstance().release(email, username);
+            throw new IOException(error[0]);
         }
+
+        System.out.println("User registered successfully: " + userId);
+        return UserIndexService.Reservation.RESERVED;
     }
 
     private void addFooter() {
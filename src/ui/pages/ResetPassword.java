@@ -1,10 +1,13 @@
 package ui.pages;
 
+import services.AuthPipeline;
 import services.FirebaseService;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class ResetPassword extends JFrame {
     private final Color EMSI_GREEN = new Color(0, 150, 70);
@@ -20,6 +23,7 @@ public class ResetPassword extends JFrame {
     private boolean newPasswordVisible = false;
     private boolean confirmPasswordVisible = false;
     private boolean isDevelopmentMode = true; // Set to true for testing without Firebase
+    private AuthPipeline.Handle resetTask; // Password update running on the auth pipeline
 
     /**
      * Constructor for direct reset (no action code)
@@ -51,6 +55,17 @@ public class ResetPassword extends JFrame {
         setLocationRelativeTo(null);
         setResizable(false);
 
+        // Drop the pending update if the window is closed
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                if (resetTask != null) {
+                    resetTask.cancel();
+                    resetTask = null;
+                }
+            }
+        });
+
         createResetForm();
     }
 
@@ -218,62 +233,43 @@ public class ResetPassword extends JFrame {
                 null, new Object[]{}, null);
         JDialog dialog = optionPane.createDialog(this, "Please wait");
 
-        // Create a SwingWorker to perform the password reset in a background thread
-        SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
-            private String errorMessage = "";
+        // Update the password on the auth worker; the dialog is closed by the callback
+        resetTask = AuthPipeline.getInstance().submit("reset:" + email.toLowerCase(), progress -> {
+            // For educational purposes, directly simulate success
+            System.out.println("\n==== PASSWORD UPDATE SIMULATION ====");
+            System.out.println("Email: " + email);
+            System.out.println("New Password: " + newPassword);
+            System.out.println("Password updated successfully (simulated)");
+            System.out.println("====================================\n");
+
+            // In a real application, you would actually update the password in Firebase
+            // But for educational purposes, we'll just simulate it
 
+            return true;
+        }, new AuthPipeline.Callback<Boolean>() {
             @Override
-            protected Boolean doInBackground() {
-                try {
-                    // Simulate processing delay
-                    Thread.sleep(1500);
-
-                    // For educational purposes, directly simulate success
-                    System.out.println("\n==== PASSWORD UPDATE SIMULATION ====");
-                    System.out.println("Email: " + email);
-                    System.out.println("New Password: " + newPassword);
-                    System.out.println("Password updated successfully (simulated)");
-                    System.out.println("====================================\n");
-
-                    // In a real application, you would actually update the password in Firebase
-                    // But for educational purposes, we'll just simulate it
-
-                    return true;
-                } catch (Exception ex) {
-                    errorMessage = ex.getMessage();
-                    ex.printStackTrace();
-                    return false;
-                }
+            public void onSuccess(Boolean success) {
+                dialog.dispose();
+                JOptionPane.showMessageDialog(ResetPassword.this,
+                        "Password updated successfully!",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                dispose(); // Close the reset password window
             }
 
             @Override
-            protected void done() {
+            public void onFailure(Exception error) {
                 dialog.dispose();
-                try {
-                    boolean success = get();
-                    if (success) {
-                        JOptionPane.showMessageDialog(ResetPassword.this,
-                                "Password updated successfully!",
-                                "Success",
-                                JOptionPane.INFORMATION_MESSAGE);
-                        dispose(); // Close the reset password window
-                    } else {
-                        JOptionPane.showMessageDialog(ResetPassword.this,
-                                "Error updating password: " + errorMessage,
-                                "Error",
-                                JOptionPane.ERROR_MESSAGE);
-                    }
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(ResetPassword.this,
-                            "Error: " + ex.getMessage(),
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
+                if (!(error instanceof AuthPipeline.RateLimitedException)) {
+                    error.printStackTrace();
                 }
+                JOptionPane.showMessageDialog(ResetPassword.this,
+                        "Error updating password: " + error.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
             }
-        };
+        });
 
-        // Start the background task
-        worker.execute();
         dialog.setVisible(true);
     }
 }
\ No newline at end of file
@@ -14,6 +14,9 @@ import javax.swing.*;
 
 import models.UserPreferences;
 import services.FirebaseService;
+import services.LocalSnapshotStore;
+import services.SessionService;
+import services.UserPreferencesService;
 import ui.components.AnimatedButton;
 import ui.components.RoundedPanel;
 
@@ -37,6 +40,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
 import javax.swing.plaf.basic.BasicScrollBarUI;
 
 /**
@@ -85,9 +89,8 @@ public class UserSettingsPage extends JPanel {
     // Data
     private String currentUserId;
     
-    // Auto-save management
-    private javax.swing.Timer autoSaveTimer;
-    private final int AUTO_SAVE_DELAY = 2000; // 2 seconds delay
+    // Auto-save management (changes are coalesced by UserPreferencesService)
+    private UserPreferencesService preferencesService;
     private boolean isUpdatingSettings = false;
     private volatile boolean hasProfileImageChanged = false;
 
@@ -167,8 +170,7 @@ public class UserSettingsPage extends JPanel {
         initializeUI();
         loadUserPreferences();
         
-        // Initialize auto-save timer
-        initializeAutoSave();
+        // Queued changes are sent on exit by UserPreferencesService's shutdown hook
 
         // Removed problematic responsive listener that causes display bugs
     }
@@ -401,25 +403,12 @@ public class UserSettingsPage extends JPanel {
         }
         logoutButton.setToolTipText("Déconnexion");
         logoutButton.addActionListener(e -> {
-            // Log out logic: close both settings dialog and MainChat, then show LoginPage
+            // Log out logic: close the settings dialog, forget the session and show LoginPage
             Window window = SwingUtilities.getWindowAncestor(this);
-            if (window != null) {
-                // If the settings are in a dialog, close its owner (MainChat JFrame)
-                if (window instanceof JDialog) {
-                    Window owner = ((JDialog) window).getOwner();
-                    if (owner != null) {
-                        owner.dispose(); // Close MainChat JFrame
-                    }
-                }
-                window.dispose(); // Close the settings dialog itself
-            }
-            // Show login page in a new frame
-            JFrame loginFrame = new JFrame("VibeApp - Connexion");
-            loginFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-            loginFrame.setSize(950, 650);
-            loginFrame.setLocationRelativeTo(null);
-            loginFrame.setContentPane(new LoginPage());
-            loginFrame.setVisible(true);
+            if (window instanceof JDialog) {
+                window.dispose();
+            }
+            VibeApp.getInstance().signOut(null);
         });
 
         JPanel rightHeaderPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
@@ -1449,20 +1438,42 @@ public class UserSettingsPage extends JPanel {
             );
 
             if (result == JOptionPane.YES_OPTION) {
-                // Show processing dialog
-                JOptionPane.showMessageDialog(
-                    parentWindow,
-                    "Suppression du compte en cours...",
-                    "Suppression",
-                    JOptionPane.INFORMATION_MESSAGE
-                );
+                // Show processing dialog (updated as the chats are left)
+                JProgressBar deletionProgress = new JProgressBar();
+                deletionProgress.setIndeterminate(true);
+                deletionProgress.setStringPainted(true);
+                deletionProgress.setString("Préparation...");
+                JDialog processingDialog = new JOptionPane(
+                        new Object[]{"Suppression du compte en cours...", deletionProgress},
+                        JOptionPane.INFORMATION_MESSAGE,
+                        JOptionPane.DEFAULT_OPTION,
+                        null,
+                        new Object[0]
+                ).createDialog(parentWindow, "Suppression");
+                processingDialog.setModal(false);
+                processingDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+                processingDialog.setVisible(true);
+
+                // Queued preference changes would recreate the deleted user's preferences
+                if (preferencesService != null) {
+                    preferencesService.discardPendingSaves(currentUserId);
+                }
 
                 // Delete user account from Firebase
                 try {
-                    firebaseService.deleteUser(currentUserId, new FirebaseService.FirebaseEmailCallback() {
+                    FirebaseService.DeletionProgressListener progressListener = (completedChats, totalChats) ->
+                            SwingUtilities.invokeLater(() -> {
+                                deletionProgress.setIndeterminate(false);
+                                deletionProgress.setMaximum(Math.max(totalChats, 1));
+                                deletionProgress.setValue(completedChats);
+                                deletionProgress.setString("Discussions quittées : " + completedChats + " / " + totalChats);
+                            });
+
+                    firebaseService.deleteUser(currentUserId, progressListener, new FirebaseService.FirebaseEmailCallback() {
                         @Override
                         public void onSuccess() {
                             SwingUtilities.invokeLater(() -> {
+                                processingDialog.dispose();
                                 JOptionPane.showMessageDialog(
                                         parentWindow,
                                         "Votre compte a été supprimé avec succès.",
@@ -1478,8 +1489,11 @@ public class UserSettingsPage extends JPanel {
                                     parentWindow.dispose();
                                 }
 
-                                // Show login page
+                                // Show login page (the deleted user's chat page is released)
                                 try {
+                                    SessionService.getInstance().clearSession();
+                                    LocalSnapshotStore.getInstance().clearPreferences();
+                                    VibeApp.getInstance().releasePage("mainChat");
                                     VibeApp.getInstance().showPage("login");
                                     VibeApp.getInstance().setVisible(true);
                                 } catch (Exception ex) {
@@ -1491,6 +1505,7 @@ public class UserSettingsPage extends JPanel {
                         @Override
                         public void onFailure(String errorMessage) {
                             SwingUtilities.invokeLater(() -> {
+                                processingDialog.dispose();
                                 JOptionPane.showMessageDialog(
                                         parentWindow,
                                         "Erreur lors de la suppression du compte:\n" + errorMessage,
@@ -1501,6 +1516,7 @@ public class UserSettingsPage extends JPanel {
                         }
                     });
                 } catch (Exception ex) {
+                    processingDialog.dispose();
                     JOptionPane.showMessageDialog(
                         parentWindow,
                         "Erreur lors de la suppression du compte:\n" + ex.getMessage(),
@@ -1550,23 +1566,12 @@ public class UserSettingsPage extends JPanel {
 
     /**
      * Gets the profile image path for a user from the properties file
+     * (read once by LocalSnapshotStore, then served from memory)
      * @param userId The user ID
      * @return The profile image path or null if not found
      */
     private String getProfileImagePath(String userId) {
-        try {
-            File mappingFile = new File("resources/user_profiles.properties");
-            if (mappingFile.exists()) {
-                java.util.Properties props = new java.util.Properties();
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(mappingFile)) {
-                    props.load(fis);
-                    return props.getProperty(userId);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error loading user profile mapping: " + e.getMessage());
-        }
-        return null;
+        return LocalSnapshotStore.getInstance().getProfileImagePath(userId);
     }
 
     /**
@@ -1577,42 +1582,9 @@ public class UserSettingsPage extends JPanel {
      * @param imagePath The relative path to the image
      */
     private void saveUserProfileMapping(String userId, String imagePath) {
-        try {
-            // Create a properties file to store user-to-image mappings
-            File mappingFile = new File("resources/user_profiles.properties");
-
-            // Create parent directory if needed
-            if (!mappingFile.getParentFile().exists()) {
-                mappingFile.getParentFile().mkdirs();
-            }
-
-            // Create file if it doesn't exist
-            if (!mappingFile.exists()) {
-                mappingFile.createNewFile();
-            }
-
-            // Load existing properties
-            java.util.Properties props = new java.util.Properties();
-            if (mappingFile.exists()) {
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(mappingFile)) {
-                    props.load(fis);
-                }
-            }
-
-            // Update the user's image path
-            props.setProperty(userId, imagePath);
-
-            // Save the properties back to the file
-            try (java.io.FileOutputStream fos = new java.io.FileOutputStream(mappingFile)) {
-                props.store(fos, "User Profile Image Mappings");
-            }
-
-            System.out.println("Updated user profile mapping for " + userId + ": " + imagePath);
-
-        } catch (IOException e) {
-            System.err.println("Error saving user profile mapping: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Written in the background, atomically
+        LocalSnapshotStore.getInstance().setProfileImagePath(userId, imagePath);
+        System.out.println("Updated user profile mapping for " + userId + ": " + imagePath);
     }
 
     /**
@@ -1663,6 +1635,41 @@ public class UserSettingsPage extends JPanel {
         }
 
         refreshCurrentCategory();
+
+        // Replace the defaults with the stored preferences, so saves only send real changes
+        UserPreferencesService service = getPreferencesService();
+        if (service != null) {
+            service.loadUserPreferencesAsync(currentUserId, new UserPreferencesService.PreferencesCallback() {
+                @Override
+                public void onSuccess(UserPreferences preferences) {
+                    if (userPreferences == null) {
+                        return;
+                    }
+                    Set<String> edited = userPreferences.getDirtyFields();
+                    edited.remove("userId");
+                    edited.remove("profileImageUrl");
+                    if (!edited.isEmpty()) {
+                        return; // The user started editing the defaults, keep their changes
+                    }
+
+                    // The local profile image mapping wins over the stored URL
+                    UserPreferences loaded = preferences.copy();
+                    String imagePath = userPreferences.getProfileImageUrl();
+                    if (imagePath != null && !imagePath.isEmpty() && !imagePath.equals(loaded.getProfileImageUrl())) {
+                        loaded.setProfileImageUrl(imagePath);
+                    }
+                    userPreferences = loaded;
+
+                    // Delivered on the EDT: show the stored values instead of the defaults
+                    refreshCurrentCategory();
+                }
+
+                @Override
+                public void onError(String error) {
+                    System.err.println("Error loading preferences: " + error);
+                }
+            });
+        }
     }
 
     /**
@@ -1725,55 +1732,28 @@ public class UserSettingsPage extends JPanel {
                     saveButton.setEnabled(true);
                 }
                 
-                // Reset auto-save timer safely
-                try {
-                    if (autoSaveTimer != null && autoSaveTimer.isRunning()) {
-                        autoSaveTimer.restart();
-                    } else {
-                        startAutoSaveTimer();
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error with auto-save timer: " + e.getMessage());
-                }
-            }
-        });
-    }
-    
-    /**
-     * Starts the auto-save timer with debouncing
-     */
-    private void startAutoSaveTimer() {
-        if (autoSaveTimer != null) {
-            autoSaveTimer.stop();
-        }
-        
-        autoSaveTimer = new javax.swing.Timer(AUTO_SAVE_DELAY, e -> {
-            if (hasUnsavedChanges && !isUpdatingSettings) {
+                // Queue the change; the service merges a burst of edits into one write
                 autoSaveSettings();
             }
         });
-        autoSaveTimer.setRepeats(false);
-        autoSaveTimer.start();
     }
-    
+
     /**
-     * Initializes auto-save functionality
+     * @return The preferences service, or null if Firebase is not available
      */
-    private void initializeAutoSave() {
-        // Add shutdown hook to clean up timer
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            if (autoSaveTimer != null && autoSaveTimer.isRunning()) {
-                autoSaveTimer.stop();
-            }
-        }));
+    private UserPreferencesService getPreferencesService() {
+        if (preferencesService == null && firebaseService != null) {
+            preferencesService = new UserPreferencesService(firebaseService);
+        }
+        return preferencesService;
     }
-    
+
     /**
      * Cleanup method to be called when disposing the component
      */
     public void dispose() {
-        if (autoSaveTimer != null && autoSaveTimer.isRunning()) {
-            autoSaveTimer.stop();
+        if (preferencesService != null) {
+            preferencesService.flushPendingSaves(currentUserId);
         }
         isUpdatingSettings = false;
     }
@@ -1937,34 +1917,32 @@ public class UserSettingsPage extends JPanel {
 
     /**
      * Auto-saves settings in background without UI dialogs (completely non-blocking)
+     * Only the changed fields are queued; the service sends them at the end of its window.
      */
     private void autoSaveSettings() {
-        if (userPreferences == null || isUpdatingSettings) {
+        UserPreferencesService service = getPreferencesService();
+        if (userPreferences == null || service == null || !userPreferences.isDirty()) {
             return;
         }
-        
-        isUpdatingSettings = true;
-        
-        // Immediate UI feedback
-        SwingUtilities.invokeLater(() -> {
-            hasUnsavedChanges = false;
-            if (saveButton != null) {
-                saveButton.setEnabled(false);
+
+        service.scheduleSave(userPreferences, new UserPreferencesService.PreferencesCallback() {
+            @Override
+            public void onSuccess(UserPreferences preferences) {
+                if (!userPreferences.isDirty()) {
+                    hasUnsavedChanges = false;
+                    if (saveButton != null) {
+                        saveButton.setEnabled(false);
+                    }
+                }
             }
-        });
-        
-        // Perform save completely asynchronously
-        CompletableFuture.runAsync(() -> {
-            try {
-                // Simulate or perform actual save operations
-                // All Firebase operations should already be async with callbacks
-                Thread.sleep(50); // Minimal delay
-            } catch (Exception e) {
-                System.err.println("Error in auto-save: " + e.getMessage());
-            } finally {
-                SwingUtilities.invokeLater(() -> {
-                    isUpdatingSettings = false;
-                });
+
+            @Override
+            public void onError(String error) {
+                System.err.println("Error in auto-save: " + error);
+                hasUnsavedChanges = true;
+                if (saveButton != null) {
+                    saveButton.setEnabled(true);
+                }
             }
         });
     }
@@ -1981,6 +1959,15 @@ public class UserSettingsPage extends JPanel {
         saveButton.setEnabled(false);
         saveButton.setText("Enregistrement...");
 
+        // Send the queued changes now rather than at the end of the autosave window
+        UserPreferencesService service = getPreferencesService();
+        if (service != null) {
+            if (userPreferences.isDirty()) {
+                service.scheduleSave(userPreferences, null);
+            }
+            service.flushPendingSaves(currentUserId);
+        }
+
         // The profile image is already saved when it's changed,
         // so here we just need to finalize the save operation
         try {
@@ -0,0 +1,240 @@
+package utils;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AssetManager - Loads application images once and caches scaled variants
+ * Source images are decoded a single time, scaled copies are kept per requested size
+ * (with an extra variant at the screen scale factor on HiDPI displays) and
+ * procedurally drawn icons are memoized by name and size.
+ */
+public class AssetManager {
+
+    public static final String LOGO_PATH = "pictures/logoVibeApp.png";
+
+    private static AssetManager instance;
+
+    // Decoded source images; MISSING marks paths that do not exist or failed to decode
+    private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+    private final Map<String, BufferedImage> sourceImages = new ConcurrentHashMap<>();
+
+    // Scaled variants and generated icons, keyed by path/name and size
+    private final Map<String, BufferedImage> scaledImages = new ConcurrentHashMap<>();
+    private final Map<String, ImageIcon> icons = new ConcurrentHashMap<>();
+
+    private final double screenScale;
+
+    // java.awt.image.BaseMultiResolutionImage(Image...) when running on Java 9+, null on Java 8
+    private static final Constructor<?> MULTI_RESOLUTION_IMAGE = findMultiResolutionImage();
+
+    /**
+     * Draws an icon at the requested pixel size
+     */
+    public interface IconFactory {
+        ImageIcon create(int width, int height);
+    }
+
+    // Private constructor for singleton pattern
+    private AssetManager() {
+        screenScale = detectScreenScale();
+    }
+
+    // Singleton pattern to get the instance
+    public static synchronized AssetManager getInstance() {
+        if (instance == null) {
+            instance = new AssetManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the decoded image for a path, loading it on first use
+     * @param path Image file path
+     * @return The image, or null if the file is missing or unreadable
+     */
+    public BufferedImage getImage(String path) {
+        BufferedImage image = sourceImages.computeIfAbsent(path, this::readImage);
+        return image == MISSING ? null : image;
+    }
+
+    /**
+     * Returns a copy of an image scaled to the given size
+     * @param path Image file path
+     * @param width Target width
+     * @param height Target height
+     * @return The scaled image, or null if the source image is unavailable
+     */
+    public BufferedImage getScaledImage(String path, int width, int height) {
+        BufferedImage source = getImage(path);
+        if (source == null || width <= 0 || height <= 0) {
+            return null;
+        }
+        return scaledImages.computeIfAbsent(path + "@" + width + "x" + height,
+                key -> scale(source, width, height));
+    }
+
+    /**
+     * Returns a copy of an image scaled to a width, preserving its aspect ratio
+     * @param path Image file path
+     * @param width Target width
+     * @return The scaled image, or null if the source image is unavailable
+     */
+    public BufferedImage getImageForWidth(String path, int width) {
+        BufferedImage source = getImage(path);
+        if (source == null) {
+            return null;
+        }
+        int height = (int) (width * ((double) source.getHeight() / source.getWidth()));
+        return getScaledImage(path, width, height);
+    }
+
+    /**
+     * Returns an icon of an image file at the given size, with a screen-scale variant on HiDPI displays
+     * @param path Image file path
+     * @param width Icon width
+     * @param height Icon height
+     * @return The icon, or null if the source image is unavailable
+     */
+    public ImageIcon getIcon(String path, int width, int height) {
+        if (getImage(path) == null) {
+            return null;
+        }
+        return icons.computeIfAbsent("file:" + path + "@" + width + "x" + height, key -> {
+            BufferedImage base = getScaledImage(path, width, height);
+            if (screenScale <= 1.0 || MULTI_RESOLUTION_IMAGE == null) {
+                return new ImageIcon(base);
+            }
+            BufferedImage hiDpi = getScaledImage(path, (int) Math.ceil(width * screenScale),
+                    (int) Math.ceil(height * screenScale));
+            return new ImageIcon(multiResolution(base, hiDpi));
+        });
+    }
+
+    /**
+     * Returns a procedurally drawn icon, drawing it only once per name and size
+     * @param name Unique name of the icon (include any color or text it depends on)
+     * @param width Icon width
+     * @param height Icon height
+     * @param factory Draws the icon at a given pixel size
+     * @return The memoized icon
+     */
+    public ImageIcon getGeneratedIcon(String name, int width, int height, IconFactory factory) {
+        return icons.computeIfAbsent("gen:" + name + "@" + width + "x" + height, key -> {
+            ImageIcon base = factory.create(width, height);
+            if (screenScale <= 1.0 || MULTI_RESOLUTION_IMAGE == null) {
+                return base;
+            }
+            ImageIcon hiDpi = factory.create((int) Math.ceil(width * screenScale), (int) Math.ceil(height * screenScale));
+            return new ImageIcon(multiResolution(base.getImage(), hiDpi.getImage()));
+        });
+    }
+
+    /**
+     * Decodes the given images ahead of time (used to warm up the cache off the EDT)
+     * @param paths Image file paths
+     */
+    public void preload(String... paths) {
+        for (String path : paths) {
+            getImage(path);
+        }
+    }
+
+    /**
+     * Clears all cached images and icons
+     */
+    public void clearCache() {
+        sourceImages.clear();
+        scaledImages.clear();
+        icons.clear();
+    }
+
+    private BufferedImage readImage(String path) {
+        try {
+            File file = new File(path);
+            if (!file.exists()) {
+                System.out.println("Image file not found: " + file.getAbsolutePath());
+                return MISSING;
+            }
+            BufferedImage image = ImageIO.read(file);
+            return image != null ? image : MISSING;
+        } catch (Exception e) {
+            System.err.println("Error loading image " + path + ": " + e.getMessage());
+            return MISSING;
+        }
+    }
+
+    /**
+     * High quality downscale: halves the image with bilinear steps until close to the target,
+     * then finishes with a bicubic pass (comparable to SCALE_SMOOTH, much cheaper)
+     */
+    private BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+
+        while (currentWidth / 2 >= width && currentHeight / 2 >= height) {
+            currentWidth /= 2;
+            currentHeight /= 2;
+            current = draw(current, currentWidth, currentHeight, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+
+        return draw(current, width, height, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, Object interpolation) {
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = result.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return result;
+    }
+
+    /**
+     * Combines a base image and its screen-scale variant (requires MULTI_RESOLUTION_IMAGE)
+     * @return The multi-resolution image, or the base image if it cannot be built
+     */
+    private static Image multiResolution(Image base, Image hiDpi) {
+        try {
+            return (Image) MULTI_RESOLUTION_IMAGE.newInstance((Object) new Image[]{base, hiDpi});
+        } catch (Exception e) {
+            return base;
+        }
+    }
+
+    /**
+     * Looked up reflectively so the class still compiles and runs on Java 8, where HiDPI
+     * scaling does not apply and the base image alone is used
+     */
+    private static Constructor<?> findMultiResolutionImage() {
+        try {
+            return Class.forName("java.awt.image.BaseMultiResolutionImage").getConstructor(Image[].class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static double detectScreenScale() {
+        try {
+            if (GraphicsEnvironment.isHeadless()) {
+                return 1.0;
+            }
+            return GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice()
+                    .getDefaultConfiguration()
+                    .getDefaultTransform()
+                    .getScaleX();
+        } catch (Exception e) {
+            return 1.0;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExpiringStore - Bounded in-memory map whose entries expire after a fixed time
+ * Every entry lives for the same TTL, so insertion order is also expiry order: the sweep
+ * only walks the expired head of the map, and when the store is full the entry closest
+ * to expiry is evicted. Stores are swept by one shared daemon thread, and an expired
+ * entry is never returned even if the sweep has not reached it yet.
+ */
+public class ExpiringStore<K, V> {
+
+    private static ScheduledExecutorService sweeper;
+
+    private final String name;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>();
+    private final ScheduledFuture<?> sweepTask;
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param name Name used in the log when entries are evicted
+     * @param ttl Lifetime of an entry
+     * @param unit Unit of the TTL
+     * @param maxEntries Maximum number of entries kept
+     * @param sweepInterval Time between two sweeps, in milliseconds
+     */
+    public ExpiringStore(String name, long ttl, TimeUnit unit, int maxEntries, long sweepInterval) {
+        this.name = name;
+        this.ttlMs = unit.toMillis(ttl);
+        this.maxEntries = maxEntries;
+        this.sweepTask = getSweeper().scheduleWithFixedDelay(this::sweep,
+                sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getSweeper() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "expiring-store-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sweeper;
+    }
+
+    /**
+     * Stores a value for the full TTL, replacing any previous value for the key
+     * @param key Key
+     * @param value Value
+     */
+    public synchronized void put(K key, V value) {
+        // Re-inserting moves the key to the tail, keeping the map in expiry order
+        entries.remove(key);
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMs));
+
+        if (entries.size() > maxEntries) {
+            Iterator<K> eldest = entries.keySet().iterator();
+            K evicted = eldest.next();
+            eldest.remove();
+            System.out.println(name + " full, evicted entry for " + evicted);
+        }
+    }
+
+    /**
+     * @param key Key
+     * @return The value, or null if there is none or it has expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @param key Key
+     * @return The removed value, or null if there was none or it had expired
+     */
+    public synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry != null && entry.expiresAt > System.currentTimeMillis() ? entry.value : null;
+    }
+
+    /**
+     * @return Number of entries, including expired ones not swept yet
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes the expired entries
+     * @return Number of entries removed
+     */
+    public synchronized int sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().expiresAt > now) {
+                break; // Everything after this entry expires later
+            }
+            iterator.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Stops sweeping this store and drops its entries
+     */
+    public synchronized void close() {
+        sweepTask.cancel(false);
+        entries.clear();
+    }
+}
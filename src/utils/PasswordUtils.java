@@ -1,43 +1,60 @@
 package utils;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.Base64;
 
 /**
  * PasswordUtils - Utility class for password hashing and verification
- * Provides secure password hashing using SHA-256 with salt
+ * New hashes use PBKDF2-HMAC-SHA256 in a self-describing format, $pbkdf2-sha256$cost$salt$hash,
+ * at one cost (iteration count) shared by every client, so a hash written on one machine is
+ * never rewritten because another machine measures itself differently.
+ * A stored hash is checked by exactly one scheme, chosen from its format; the legacy formats
+ * (salted SHA-256, hex SHA-256, String.hashCode) are still recognized so existing accounts can
+ * sign in and be rehashed.
  */
 public class PasswordUtils {
 
     private static final String HASH_ALGORITHM = "SHA-256";
     private static final int SALT_LENGTH = 16;
 
+    private static final String PBKDF2_ID = "pbkdf2-sha256";
+    private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int PBKDF2_KEY_BITS = 256;
+    // Cost of every new hash; raising it rehashes each account once, at its next login
+    public static final int PBKDF2_ITERATIONS = 310_000;
+
+    /**
+     * Formats a stored hash can have, detected from its shape
+     */
+    public enum HashScheme {
+        PBKDF2,         // $pbkdf2-sha256$cost$salt$hash
+        SALTED_SHA256,  // Base64(salt + SHA-256(salt + password))
+        SHA256_HEX,     // hex SHA-256 of the password
+        HASH_CODE,      // String.hashCode of the password
+        UNKNOWN
+    }
+
     /**
-     * Hash a password using SHA-256 with salt
+     * Hash a password with PBKDF2 at the shared cost
      * @param password Plain text password
-     * @return Hashed password with salt
-     * @throws NoSuchAlgorithmException if SHA-256 is not available
+     * @return Hash in the $pbkdf2-sha256$cost$salt$hash format
+     * @throws NoSuchAlgorithmException if PBKDF2 is not available
      */
     public static String hashPassword(String password) throws NoSuchAlgorithmException {
-        // Generate a random salt
-        SecureRandom random = new SecureRandom();
-        byte[] salt = new byte[SALT_LENGTH];
-        random.nextBytes(salt);
-
-        // Hash the password with salt
-        MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
-        md.update(salt);
-        byte[] hashedPassword = md.digest(password.getBytes());
-
-        // Combine salt and hash
-        byte[] combined = new byte[salt.length + hashedPassword.length];
-        System.arraycopy(salt, 0, combined, 0, salt.length);
-        System.arraycopy(hashedPassword, 0, combined, salt.length, hashedPassword.length);
+        int iterations = PBKDF2_ITERATIONS;
+        byte[] salt = generateSalt();
+        byte[] hash = pbkdf2(password, salt, iterations);
 
-        // Return as Base64 encoded string
-        return Base64.getEncoder().encodeToString(combined);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return "$" + PBKDF2_ID + "$" + iterations + "$" + encoder.encodeToString(salt)
+                + "$" + encoder.encodeToString(hash);
     }
 
     /**
@@ -61,32 +78,117 @@ public class PasswordUtils {
     }
 
     /**
-     * Verify a password against a stored hash
+     * Verify a password against a stored hash, using the scheme the hash was made with
      * @param password Plain text password to verify
-     * @param storedHash Stored password hash
+     * @param storedHash Stored password hash, in any supported format
      * @return true if password matches, false otherwise
      */
     public static boolean verifyPassword(String password, String storedHash) {
-        try {
-            // Decode the stored hash
-            byte[] decoded = Base64.getDecoder().decode(storedHash);
+        if (password == null || storedHash == null) {
+            return false;
+        }
 
-            // Extract salt (first 16 bytes)
-            byte[] salt = new byte[SALT_LENGTH];
-            System.arraycopy(decoded, 0, salt, 0, SALT_LENGTH);
+        try {
+            switch (detectScheme(storedHash)) {
+                case PBKDF2: {
+                    String[] parts = storedHash.split("\\$");
+                    int iterations = Integer.parseInt(parts[2]);
+                    byte[] salt = Base64.getDecoder().decode(parts[3]);
+                    byte[] expected = Base64.getDecoder().decode(parts[4]);
+                    return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations, expected.length * 8));
+                }
+                case SALTED_SHA256: {
+                    byte[] salt = Arrays.copyOf(Base64.getDecoder().decode(storedHash), SALT_LENGTH);
+                    return constantTimeEquals(hashPasswordWithSalt(password, salt), storedHash);
+                }
+                case SHA256_HEX:
+                    return constantTimeEquals(simpleHash(password), storedHash.toLowerCase());
+                case HASH_CODE:
+                    return constantTimeEquals(String.valueOf(password.hashCode()), storedHash);
+                default:
+                    return false;
+            }
+        } catch (Exception e) {
+            System.err.println("Error verifying password: " + e.getMessage());
+            return false;
+        }
+    }
 
-            // Hash the provided password with the extracted salt
-            String hashedPassword = hashPasswordWithSalt(password, salt);
+    /**
+     * Tells whether a stored hash should be replaced after a successful login
+     * @param storedHash Stored password hash
+     * @return true for legacy formats and for PBKDF2 hashes not at the shared cost (weaker, or
+     *         costlier than a slow client should have to verify); never true twice for one account
+     */
+    public static boolean needsRehash(String storedHash) {
+        if (detectScheme(storedHash) != HashScheme.PBKDF2) {
+            return true;
+        }
+        try {
+            int iterations = Integer.parseInt(storedHash.split("\\$")[2]);
+            return iterations != PBKDF2_ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
 
-            // Compare with stored hash
-            return hashedPassword.equals(storedHash);
+    /**
+     * Detects the format of a stored hash
+     * @param storedHash Stored password hash
+     * @return The scheme it was made with
+     */
+    public static HashScheme detectScheme(String storedHash) {
+        if (storedHash == null || storedHash.isEmpty()) {
+            return HashScheme.UNKNOWN;
+        }
+        if (storedHash.startsWith("$" + PBKDF2_ID + "$")) {
+            return storedHash.split("\\$").length == 5 ? HashScheme.PBKDF2 : HashScheme.UNKNOWN;
+        }
+        if (storedHash.length() == 64 && storedHash.matches("[0-9a-fA-F]+")) {
+            return HashScheme.SHA256_HEX;
+        }
+        if (storedHash.matches("-?[0-9]{1,10}")) {
+            return HashScheme.HASH_CODE;
+        }
+        // 16-byte salt + 32-byte digest = 48 bytes = 64 Base64 characters
+        if (storedHash.length() == 64 && storedHash.matches("[A-Za-z0-9+/]+")) {
+            return HashScheme.SALTED_SHA256;
+        }
+        return HashScheme.UNKNOWN;
+    }
 
+    /**
+     * Loads the PBKDF2 provider ahead of time (call it early, off the EDT, to keep the
+     * provider start-up out of the first login)
+     */
+    public static void warmUp() {
+        try {
+            pbkdf2("warm-up", generateSalt(), 1);
         } catch (Exception e) {
-            System.err.println("Error verifying password: " + e.getMessage());
-            return false;
+            System.err.println("Error preparing password hashing: " + e.getMessage());
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) throws NoSuchAlgorithmException {
+        return pbkdf2(password, salt, iterations, PBKDF2_KEY_BITS);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations, int keyBits)
+            throws NoSuchAlgorithmException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyBits);
+        try {
+            return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException e) {
+            throw new IllegalStateException("Invalid PBKDF2 parameters", e);
+        } finally {
+            spec.clearPassword();
         }
     }
 
+    private static boolean constantTimeEquals(String a, String b) {
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Simple hash for backward compatibility (not recommended for production)
      * @param password Plain text password
@@ -95,7 +197,7 @@ public class PasswordUtils {
     public static String simpleHash(String password) {
         try {
             MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
-            byte[] hashedPassword = md.digest(password.getBytes());
+            byte[] hashedPassword = md.digest(password.getBytes(StandardCharsets.UTF_8));
 
             StringBuilder sb = new StringBuilder();
             for (byte b : hashedPassword) {